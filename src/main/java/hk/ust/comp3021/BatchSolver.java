@@ -0,0 +1,258 @@
+package hk.ust.comp3021;
+
+import hk.ust.comp3021.solver.SearchResult;
+import hk.ust.comp3021.solver.SolutionCache;
+import hk.ust.comp3021.solver.Solver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves every map of a directory within a time and memory budget per map, and reports how hard each one was,
+ * e.g., to rank a collection of maps by difficulty.
+ * <p>
+ * Maps are solved several at a time on a fixed pool of threads, each with a single-threaded
+ * {@link Solver#solve(Duration, long)}: solving separate maps in parallel keeps every core busy
+ * without the searches contending for a shared transposition table.
+ * Maps that are rotations or mirror images of each other are solved once, see {@link SolutionCache}.
+ * The memory limit applies to each map, so the heap must hold one search per thread.
+ * A map that cannot be loaded is reported with its error and does not stop the others.
+ */
+public class BatchSolver {
+
+    /**
+     * The extension of map files solved in a directory.
+     */
+    public static final String MAP_EXTENSION = ".map";
+
+    private static final String CSV_HEADER =
+        "map,status,pushes,moves,expanded_states,time_ms,peak_memory_bytes,error";
+
+    private final int threads;
+    private final Duration timeLimit;
+    private final long memoryLimit;
+    private final SolutionCache solutionCache = new SolutionCache();
+
+    /**
+     * @param threads     the number of maps to solve at the same time.
+     * @param timeLimit   the wall-clock time to search each map for.
+     * @param memoryLimit the approximate number of bytes the states held by the search of each map may take.
+     * @throws IllegalArgumentException if the number of threads is not positive,
+     *                                  the time limit is negative, or the memory limit is not positive.
+     */
+    public BatchSolver(int threads, @NotNull Duration timeLimit, long memoryLimit) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive.");
+        }
+        if (timeLimit.isNegative() || memoryLimit <= 0) {
+            throw new IllegalArgumentException("Search budget must not be negative.");
+        }
+        this.threads = threads;
+        this.timeLimit = timeLimit;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Solve every map file directly in a directory.
+     *
+     * @param directory the directory containing files ending with {@value #MAP_EXTENSION}.
+     * @return the report of each map, in the order of file names.
+     * @throws IOException          if the directory cannot be listed.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the maps to be solved.
+     */
+    public @NotNull List<MapReport> solveAll(@NotNull Path directory) throws IOException, InterruptedException {
+        final List<Path> mapFiles;
+        try (var files = Files.list(directory)) {
+            mapFiles = files
+                .filter(file -> Files.isRegularFile(file) && file.getFileName().toString().endsWith(MAP_EXTENSION))
+                .sorted(Comparator.comparing(file -> file.getFileName().toString()))
+                .toList();
+        }
+
+        final var executor = Executors.newFixedThreadPool(this.threads);
+        try {
+            final var futures = new ArrayList<Future<MapReport>>();
+            for (Path mapFile: mapFiles) {
+                futures.add(executor.submit(() -> this.solve(mapFile)));
+            }
+            final var reports = new ArrayList<MapReport>();
+            for (Future<MapReport> future: futures) {
+                reports.add(future.get());
+            }
+            return reports;
+        } catch (ExecutionException e) {
+            // Errors loading or solving a map are reported, so only errors of the JVM get here
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Solve a single map file.
+     *
+     * @param mapFile the map file.
+     * @return the report of the map.
+     */
+    public @NotNull MapReport solve(@NotNull Path mapFile) {
+        final var name = mapFile.getFileName().toString();
+        final long start = System.nanoTime();
+        try {
+            final var gameMap = SokobanGameFactory.loadGameMap(mapFile);
+            final var solver = new Solver(gameMap);
+            solver.setSolutionCache(this.solutionCache);
+            final var result = solver.solve(this.timeLimit, this.memoryLimit);
+            return new MapReport(name, result, System.nanoTime() - start, null);
+        } catch (IOException | IllegalArgumentException e) {
+            return new MapReport(name, null, System.nanoTime() - start, e.toString());
+        }
+    }
+
+    /**
+     * Write reports to a file, as JSON if its name ends with {@code .json}, and as CSV otherwise.
+     *
+     * @param reports the reports.
+     * @param file    the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeReport(@NotNull List<MapReport> reports, @NotNull Path file) throws IOException {
+        final var content = file.getFileName().toString().endsWith(".json") ? toJson(reports) : toCsv(reports);
+        Files.writeString(file, content);
+    }
+
+    /**
+     * Format reports as CSV.
+     * Pushes and moves are left empty unless the map was solved, and the error is empty unless it failed to load.
+     *
+     * @param reports the reports.
+     * @return a CSV table with a header and a row for each report.
+     */
+    public static @NotNull String toCsv(@NotNull List<MapReport> reports) {
+        final var builder = new StringBuilder(CSV_HEADER).append('\n');
+        for (MapReport report: reports) {
+            builder.append(csvField(report.map())).append(',')
+                .append(report.getStatus()).append(',')
+                .append(report.isSolved() ? report.result().pushes() : "").append(',')
+                .append(report.isSolved() ? report.result().moves().size() : "").append(',')
+                .append(report.getExpandedStates()).append(',')
+                .append(report.getMillis()).append(',')
+                .append(report.getPeakMemory()).append(',')
+                .append(report.error() == null ? "" : csvField(report.error())).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Format reports as JSON, with the same fields as {@link #toCsv(List)}, where fields left empty are null.
+     *
+     * @param reports the reports.
+     * @return a JSON array with an object for each report.
+     */
+    public static @NotNull String toJson(@NotNull List<MapReport> reports) {
+        final var builder = new StringBuilder("[\n");
+        for (int i = 0; i < reports.size(); ++i) {
+            final var report = reports.get(i);
+            builder.append("  {")
+                .append("\"map\": ").append(jsonString(report.map()))
+                .append(", \"status\": ").append(jsonString(report.getStatus()))
+                .append(", \"pushes\": ").append(report.isSolved() ? report.result().pushes() : "null")
+                .append(", \"moves\": ").append(report.isSolved() ? report.result().moves().size() : "null")
+                .append(", \"expanded_states\": ").append(report.getExpandedStates())
+                .append(", \"time_ms\": ").append(report.getMillis())
+                .append(", \"peak_memory_bytes\": ").append(report.getPeakMemory())
+                .append(", \"error\": ").append(report.error() == null ? "null" : jsonString(report.error()))
+                .append(i + 1 < reports.size() ? "},\n" : "}\n");
+        }
+        return builder.append("]\n").toString();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1
+            && value.indexOf('\r') == -1) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String value) {
+        final var builder = new StringBuilder("\"");
+        for (char c: value.toCharArray()) {
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * How a map was solved.
+     *
+     * @param map    the file name of the map.
+     * @param result the result of the search, or null if the map could not be loaded.
+     * @param nanos  the wall-clock time spent loading and solving the map, in nanoseconds.
+     * @param error  the error loading the map, or null if it was loaded.
+     */
+    public record MapReport(
+        @NotNull String map,
+        @Nullable SearchResult result,
+        long nanos,
+        @Nullable String error
+    ) {
+
+        /**
+         * @return true if a solution was found.
+         */
+        public boolean isSolved() {
+            return this.result != null && this.result.isSolved();
+        }
+
+        /**
+         * @return the name of the status of the search, or {@code ERROR} if the map could not be loaded.
+         */
+        public @NotNull String getStatus() {
+            return this.result == null ? "ERROR" : this.result.status().name();
+        }
+
+        /**
+         * @return the number of search states expanded, 0 if the map could not be loaded.
+         */
+        public long getExpandedStates() {
+            return this.result == null ? 0 : this.result.expandedStates();
+        }
+
+        /**
+         * @return the approximate peak memory taken by the search, see {@link SearchResult#peakMemory()}.
+         */
+        public long getPeakMemory() {
+            return this.result == null ? 0 : this.result.peakMemory();
+        }
+
+        /**
+         * @return the wall-clock time spent loading and solving the map, in milliseconds.
+         */
+        public long getMillis() {
+            return Duration.ofNanos(this.nanos).toMillis();
+        }
+    }
+}
@@ -3,14 +3,26 @@ package hk.ust.comp3021;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 
 /**
  * The holder of the entry point of the game.
  */
 public class Sokoban {
 
+    private static final String BATCH_OPTION = "--batch";
+    private static final String BATCH_USAGE =
+        "Usage: " + BATCH_OPTION + " <map directory> <report.csv|report.json> [threads] [seconds per map]";
+    private static final long DEFAULT_BATCH_SECONDS = 60;
+
     /**
      * The entry point of the program.
+     * <p>
+     * With {@code --batch <map directory> <report file> [threads] [seconds per map]}, solves every map of the
+     * directory instead of starting a game, and writes a report on each, see {@link BatchSolver}.
+     * By default, as many maps are solved at a time as there are processors, for 60 seconds each,
+     * and the searches share half of the maximum heap size.
      *
      * @param args The command line args.
      */
@@ -19,6 +31,10 @@ public class Sokoban {
             System.err.println("Map is not provided.");
             System.exit(1);
         }
+        if (args[0].equals(BATCH_OPTION)) {
+            runBatch(args);
+            return;
+        }
         final var mapFile = args[0];
         try {
             final var game = SokobanGameFactory.createTUIGame(mapFile);
@@ -28,4 +44,41 @@ public class Sokoban {
             System.exit(1);
         }
     }
+
+    private static void runBatch(String[] args) {
+        if (args.length < 3 || args.length > 5) {
+            System.err.println(BATCH_USAGE);
+            System.exit(1);
+        }
+        final int threads;
+        final long seconds;
+        try {
+            threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            seconds = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_BATCH_SECONDS;
+        } catch (NumberFormatException e) {
+            System.err.println(BATCH_USAGE);
+            System.exit(1);
+            return;
+        }
+        if (threads < 1 || seconds < 0) {
+            System.err.println(BATCH_USAGE);
+            System.exit(1);
+        }
+
+        final long memoryLimit = Runtime.getRuntime().maxMemory() / 2 / threads;
+        final var batchSolver = new BatchSolver(threads, Duration.ofSeconds(seconds), memoryLimit);
+        final var report = Path.of(args[2]);
+        try {
+            final var reports = batchSolver.solveAll(Path.of(args[1]));
+            BatchSolver.writeReport(reports, report);
+            final long solved = reports.stream().filter(BatchSolver.MapReport::isSolved).count();
+            System.out.printf("Solved %d of %d maps, report written to %s%n", solved, reports.size(), report);
+        } catch (IOException e) {
+            System.err.println("Failed to solve maps: " + e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
 }
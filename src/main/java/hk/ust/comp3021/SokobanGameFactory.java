@@ -3,6 +3,7 @@ package hk.ust.comp3021;
 import hk.ust.comp3021.game.GameMap;
 import hk.ust.comp3021.game.GameState;
 import hk.ust.comp3021.game.SokobanGame;
+import hk.ust.comp3021.solver.HintEngine;
 import hk.ust.comp3021.tui.TerminalInputEngine;
 import hk.ust.comp3021.tui.TerminalRenderingEngine;
 import hk.ust.comp3021.tui.TerminalSokobanGame;
@@ -43,7 +44,8 @@ public class SokobanGameFactory {
         return new TerminalSokobanGame(
             new GameState(gameMap),
             new TerminalInputEngine(System.in),
-            new TerminalRenderingEngine(System.out)
+            new TerminalRenderingEngine(System.out),
+            new HintEngine(gameMap)
         );
     }
 
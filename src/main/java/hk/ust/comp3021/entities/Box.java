@@ -1,9 +1,21 @@
 package hk.ust.comp3021.entities;
 
+import org.jetbrains.annotations.NotNull;
+
 /**
  * Denotes a box.
  */
 public final class Box extends Entity {
+
+    // At most 26 players, one for each upper-case letter
+    private static final Box[] INSTANCES = new Box[26];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; ++i) {
+            INSTANCES[i] = new Box(i);
+        }
+    }
+
     private final int playerId;
 
     /**
@@ -15,6 +27,20 @@ public final class Box extends Entity {
         this.playerId = playerId;
     }
 
+    /**
+     * Get the box that can be moved by the player with the given id.
+     * Boxes are immutable, so one instance per player id is shared by all boxes of that player.
+     *
+     * @param playerId the id of the player that can move this box.
+     * @return the shared box object.
+     */
+    public static @NotNull Box of(int playerId) {
+        if (playerId < 0 || playerId >= INSTANCES.length) {
+            return new Box(playerId);
+        }
+        return INSTANCES[playerId];
+    }
+
     /**
      * Get the id of the player that is allowed to move this box.
      *
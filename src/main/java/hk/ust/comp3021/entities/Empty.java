@@ -1,7 +1,21 @@
 package hk.ust.comp3021.entities;
 
+import org.jetbrains.annotations.NotNull;
+
 /**
  * Denote an empty cell.
  */
 public final class Empty extends Entity {
+
+    private static final Empty INSTANCE = new Empty();
+
+    /**
+     * Get the empty cell instance shared by all cells.
+     * Empty cells carry no state, so there is no need to create one per cell.
+     *
+     * @return the shared empty cell.
+     */
+    public static @NotNull Empty getInstance() {
+        return INSTANCE;
+    }
 }
@@ -1,9 +1,21 @@
 package hk.ust.comp3021.entities;
 
+import org.jetbrains.annotations.NotNull;
+
 /**
  * Denotes a player.
  */
 public final class Player extends Entity {
+
+    // At most 26 players, one for each upper-case letter
+    private static final Player[] INSTANCES = new Player[26];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; ++i) {
+            INSTANCES[i] = new Player(i);
+        }
+    }
+
     private final int id;
 
     /**
@@ -15,6 +27,20 @@ public final class Player extends Entity {
         this.id = id;
     }
 
+    /**
+     * Get the player with the given id.
+     * Players are immutable, so one instance per id is shared by all maps and game states.
+     *
+     * @param id id of the player.
+     * @return the shared player object.
+     */
+    public static @NotNull Player of(int id) {
+        if (id < 0 || id >= INSTANCES.length) {
+            return new Player(id);
+        }
+        return INSTANCES[id];
+    }
+
     /**
      * Get the player id.
      *
@@ -1,7 +1,21 @@
 package hk.ust.comp3021.entities;
 
+import org.jetbrains.annotations.NotNull;
+
 /**
  * Denotes a wall.
  */
 public final class Wall extends Entity {
+
+    private static final Wall INSTANCE = new Wall();
+
+    /**
+     * Get the wall instance shared by all cells.
+     * Walls carry no state, so there is no need to create one per cell.
+     *
+     * @return the shared wall.
+     */
+    public static @NotNull Wall getInstance() {
+        return INSTANCE;
+    }
 }
@@ -10,11 +10,27 @@ import org.jetbrains.annotations.NotNull;
 public abstract class AbstractSokobanGame implements SokobanGame {
     @NotNull
     protected final GameState state;
+    // Checks each push for deadlocks, created on the first push
+    private DeadlockDetector deadlockDetector;
+    // Whether the game can no longer be won unless pushes are undone
+    private boolean deadlocked;
 
     protected AbstractSokobanGame(@NotNull GameState gameState) {
         this.state = gameState;
     }
 
+    /**
+     * A game is deadlocked once a box has been pushed onto a dead square,
+     * or frozen against walls and other boxes while it or one of those boxes is off a destination.
+     * It stays deadlocked until the pushes leading to it are undone.
+     *
+     * @return True if the game can no longer be won from the current state.
+     * @see DeadlockDetector
+     */
+    protected boolean isDeadlocked() {
+        return this.deadlocked;
+    }
+
     /**
      * @return True is the game should stop running.
      * For example when the user specified to exit the game or the user won the game.
@@ -32,6 +48,11 @@ public abstract class AbstractSokobanGame implements SokobanGame {
             return true;
         }
 
+        // Game can no longer be won and the deadlock cannot be undone
+        if (this.deadlocked && this.state.getUndoQuota().isPresent() && this.state.getUndoQuota().get() == 0) {
+            return true;
+        }
+
         return false;
     }
 
@@ -58,6 +79,10 @@ public abstract class AbstractSokobanGame implements SokobanGame {
                 } else {
                     // Undo to last checkpoint
                     this.state.undo();
+                    // Games only become deadlocked by pushing, so an earlier state may not be
+                    if (this.deadlocked) {
+                        this.deadlocked = this.getDeadlockDetector().isDeadlocked();
+                    }
                     yield new ActionResult.Success(undo);
                 }
             }
@@ -96,6 +121,10 @@ public abstract class AbstractSokobanGame implements SokobanGame {
                                 this.state.move(playerPosition, nextDestination);
                                 // Checkpoint after moving Box
                                 this.state.checkpoint();
+                                // A deadlock can only appear around the pushed box, and never goes away by pushing
+                                if (!this.deadlocked) {
+                                    this.deadlocked = this.getDeadlockDetector().isDeadlockedAt(nextNextDestination);
+                                }
                                 yield new ActionResult.Success(move);
                             }
                             case null, default -> {
@@ -114,4 +143,11 @@ public abstract class AbstractSokobanGame implements SokobanGame {
             }
         };
     }
+
+    private DeadlockDetector getDeadlockDetector() {
+        if (this.deadlockDetector == null) {
+            this.deadlockDetector = new DeadlockDetector(this.state, this.state.getGameMap());
+        }
+        return this.deadlockDetector;
+    }
 }
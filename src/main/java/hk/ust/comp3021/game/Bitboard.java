@@ -0,0 +1,306 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A set of cells of a game map stored as bits in {@code long} words.
+ * <p>
+ * Cells are indexed by {@code y * width + x}, the same as in {@link GameState}.
+ * Set operations, subset tests and flood fills work on whole words at a time.
+ */
+public final class Bitboard {
+
+    private final int width;
+    private final int height;
+    private final long[] words;
+
+    /**
+     * Create an empty bitboard.
+     *
+     * @param width  width of the game map.
+     * @param height height of the game map.
+     */
+    public Bitboard(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.words = new long[(width * height + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    private Bitboard(@NotNull Bitboard other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.words = other.words.clone();
+    }
+
+    /**
+     * @return an independent copy of this bitboard.
+     */
+    public @NotNull Bitboard copy() {
+        return new Bitboard(this);
+    }
+
+    /**
+     * @return width of the game map.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * @return height of the game map.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * @param cell the cell index.
+     * @return true if the cell is in this set.
+     */
+    public boolean get(int cell) {
+        return (this.words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @param position the position of the cell.
+     * @return true if the cell is in this set.
+     */
+    public boolean get(@NotNull Position position) {
+        return this.get(position.y() * this.width + position.x());
+    }
+
+    /**
+     * @param cell the cell index to add to this set.
+     */
+    public void set(int cell) {
+        this.words[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * @param position the position of the cell to add to this set.
+     */
+    public void set(@NotNull Position position) {
+        this.set(position.y() * this.width + position.x());
+    }
+
+    /**
+     * @param cell the cell index to remove from this set.
+     */
+    public void clear(int cell) {
+        this.words[cell >>> 6] &= ~(1L << cell);
+    }
+
+    /**
+     * @param position the position of the cell to remove from this set.
+     */
+    public void clear(@NotNull Position position) {
+        this.clear(position.y() * this.width + position.x());
+    }
+
+    /**
+     * @return the number of cells in this set.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word: this.words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return true if there is no cell in this set.
+     */
+    public boolean isEmpty() {
+        for (long word: this.words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param other another bitboard of the same game map.
+     * @return true if every cell in the other set is also in this set.
+     */
+    public boolean containsAll(@NotNull Bitboard other) {
+        for (int i = 0; i < this.words.length; ++i) {
+            if ((other.words[i] & ~this.words[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param other another bitboard of the same game map.
+     * @return true if the two sets share any cell.
+     */
+    public boolean intersects(@NotNull Bitboard other) {
+        for (int i = 0; i < this.words.length; ++i) {
+            if ((other.words[i] & this.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keep only the cells that are also in the other set.
+     *
+     * @param other another bitboard of the same game map.
+     */
+    public void and(@NotNull Bitboard other) {
+        for (int i = 0; i < this.words.length; ++i) {
+            this.words[i] &= other.words[i];
+        }
+    }
+
+    /**
+     * Add all cells in the other set.
+     *
+     * @param other another bitboard of the same game map.
+     */
+    public void or(@NotNull Bitboard other) {
+        for (int i = 0; i < this.words.length; ++i) {
+            this.words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Remove all cells in the other set.
+     *
+     * @param other another bitboard of the same game map.
+     */
+    public void andNot(@NotNull Bitboard other) {
+        for (int i = 0; i < this.words.length; ++i) {
+            this.words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * @param from the cell index to start searching from, inclusive.
+     * @return the first cell in this set at or after the given cell, or -1 if there is none.
+     */
+    public int nextSetBit(int from) {
+        int index = from >>> 6;
+        if (index >= this.words.length) {
+            return -1;
+        }
+        long word = this.words[index] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == this.words.length) {
+                return -1;
+            }
+            word = this.words[index];
+        }
+    }
+
+    /**
+     * Find all cells reachable from the start cell by moving up, down, left and right through cells in this set.
+     * The whole frontier is expanded by shifting words, instead of visiting one cell at a time.
+     *
+     * @param start the cell index to start from.
+     * @return the reachable cells, including the start cell if it is in this set.
+     */
+    public @NotNull Bitboard flood(int start) {
+        final var reached = new Bitboard(this.width, this.height);
+        if (!this.get(start)) {
+            return reached;
+        }
+        reached.set(start);
+
+        // Cells that may receive a neighbour from the left or from the right without wrapping across rows
+        final var notFirstColumn = this.columnMask(0);
+        final var notLastColumn = this.columnMask(this.width - 1);
+
+        final long[] current = reached.words;
+        final long[] next = new long[current.length];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < current.length; ++i) {
+                long word = current[i];
+                // Move right: cell + 1
+                word |= shiftUp(current, i, 1) & notFirstColumn[i];
+                // Move left: cell - 1
+                word |= shiftDown(current, i, 1) & notLastColumn[i];
+                // Move down: cell + width
+                word |= shiftUp(current, i, this.width);
+                // Move up: cell - width
+                word |= shiftDown(current, i, this.width);
+                next[i] = word & this.words[i];
+            }
+            for (int i = 0; i < current.length; ++i) {
+                if (next[i] != current[i]) {
+                    current[i] = next[i];
+                    changed = true;
+                }
+            }
+        }
+        return reached;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Bitboard other)) {
+            return false;
+        }
+        return this.width == other.width && this.height == other.height && Arrays.equals(this.words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.words);
+    }
+
+    // Words of all cells except those in the given column
+    private long[] columnMask(int column) {
+        final long[] mask = new long[this.words.length];
+        Arrays.fill(mask, -1L);
+        for (int y = 0; y < this.height; ++y) {
+            final int cell = y * this.width + column;
+            mask[cell >>> 6] &= ~(1L << cell);
+        }
+        return mask;
+    }
+
+    // Word i of the set with every cell index increased by distance
+    private static long shiftUp(long[] words, int i, int distance) {
+        final int wordShift = distance >>> 6;
+        final int bitShift = distance & 63;
+        final int source = i - wordShift;
+        if (source < 0) {
+            return 0;
+        }
+        long word = words[source] << bitShift;
+        if (bitShift != 0 && source > 0) {
+            word |= words[source - 1] >>> (Long.SIZE - bitShift);
+        }
+        return word;
+    }
+
+    // Word i of the set with every cell index decreased by distance
+    private static long shiftDown(long[] words, int i, int distance) {
+        final int wordShift = distance >>> 6;
+        final int bitShift = distance & 63;
+        final int source = i + wordShift;
+        if (source >= words.length) {
+            return 0;
+        }
+        long word = words[source] >>> bitShift;
+        if (bitShift != 0 && source + 1 < words.length) {
+            word |= words[source + 1] << (Long.SIZE - bitShift);
+        }
+        return word;
+    }
+}
@@ -0,0 +1,119 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A history of checkpoints backed by a ring buffer.
+ * <p>
+ * A bounded history keeps at most {@code capacity} checkpoints.
+ * Pushing into a full history drops the oldest checkpoint, as it can never be reached by the remaining undo quota,
+ * and reuses its slot for the new one.
+ * An unbounded history grows as needed.
+ * The buffer is allocated lazily, so a large undo limit does not reserve memory up front.
+ *
+ * @param <T> the type of checkpoints.
+ */
+class CheckpointHistory<T> {
+
+    private static final int INITIAL_BUFFER_SIZE = 16;
+
+    // Maximum number of checkpoints kept, -1 means unbounded
+    private final int capacity;
+    // Ring buffer of checkpoints, the oldest one at head
+    private Object[] buffer;
+    private int head;
+    private int size;
+
+    /**
+     * Create an empty history.
+     *
+     * @param capacity the maximum number of checkpoints kept, or -1 if unbounded.
+     */
+    CheckpointHistory(int capacity) {
+        this.capacity = capacity;
+        this.buffer = new Object[capacity == -1 ? INITIAL_BUFFER_SIZE : Math.min(capacity, INITIAL_BUFFER_SIZE)];
+    }
+
+    /**
+     * Record a checkpoint as the most recent one, dropping the oldest one if the history is full.
+     *
+     * @param checkpoint the checkpoint.
+     */
+    void push(@NotNull T checkpoint) {
+        if (this.size == this.capacity) {
+            if (this.size == 0) {
+                this.evict(checkpoint);
+                return;
+            }
+            this.evict(this.removeOldest());
+        }
+        if (this.size == this.buffer.length) {
+            this.grow();
+        }
+        this.buffer[(this.head + this.size) % this.buffer.length] = checkpoint;
+        this.size++;
+    }
+
+    /**
+     * Remove and return the most recent checkpoint.
+     *
+     * @return the most recent checkpoint, or null if the history is empty.
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable T pop() {
+        if (this.size == 0) {
+            return null;
+        }
+        this.size--;
+        int index = (this.head + this.size) % this.buffer.length;
+        T checkpoint = (T) this.buffer[index];
+        this.buffer[index] = null;
+        return checkpoint;
+    }
+
+    /**
+     * @return true if there is no checkpoint in the history.
+     */
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return the number of checkpoints in the history.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Called with the oldest checkpoint when it is pushed out of a full history.
+     *
+     * @param checkpoint the checkpoint leaving the history.
+     */
+    protected void evict(@NotNull T checkpoint) {
+        // A bounded history forgets it
+    }
+
+    @SuppressWarnings("unchecked")
+    private T removeOldest() {
+        T checkpoint = (T) this.buffer[this.head];
+        this.buffer[this.head] = null;
+        this.head = (this.head + 1) % this.buffer.length;
+        this.size--;
+        return checkpoint;
+    }
+
+    private void grow() {
+        int newLength = this.buffer.length * 2;
+        if (this.capacity != -1) {
+            newLength = Math.min(newLength, this.capacity);
+        }
+        Object[] newBuffer = new Object[newLength];
+        for (int i = 0; i < this.size; ++i) {
+            newBuffer[i] = this.buffer[(this.head + i) % this.buffer.length];
+        }
+        this.buffer = newBuffer;
+        this.head = 0;
+    }
+}
@@ -0,0 +1,140 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.entities.Box;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Detects game states from which the game can no longer be won, by looking only around a box.
+ * <p>
+ * A box is deadlocked when it stands on a dead square of its owner, see {@link PushDistances#getDeadSquares()},
+ * or when it is frozen together with a box that is not on a destination.
+ * A box is frozen when it can be pushed neither horizontally nor vertically.
+ * Along an axis, a box cannot be pushed if there is a wall on either side, dead squares on both sides,
+ * or a frozen box on either side.
+ * While checking whether a neighbouring box is frozen, the box it was reached from is treated as a wall,
+ * so a 2x2 block of boxes and walls is found frozen, and the check visits only the boxes touching each other.
+ * <p>
+ * Pushing a box can only freeze the boxes around the cell it was pushed to,
+ * so checking the pushed box after each push finds every new deadlock.
+ */
+final class DeadlockDetector {
+
+    private final GameState state;
+    private final GameMap gameMap;
+    private final int width;
+    private final int height;
+    private final Bitboard floor;
+    private final Bitboard destinations;
+    // Boxes found frozen so far in the current check, treated as walls
+    private final Bitboard frozen;
+    private final int[] frozenCells;
+    private int frozenCount;
+    private boolean frozenOffDestination;
+
+    /**
+     * @param state   the game state to check.
+     * @param gameMap the game map the game state was created from.
+     */
+    DeadlockDetector(@NotNull GameState state, @NotNull GameMap gameMap) {
+        this.state = state;
+        this.gameMap = gameMap;
+        this.width = gameMap.getMaxWidth();
+        this.height = gameMap.getMaxHeight();
+        this.floor = gameMap.getFloorBitboard();
+        this.destinations = gameMap.getDestinationsBitboard();
+        this.frozen = new Bitboard(this.width, this.height);
+        this.frozenCells = new int[this.width * this.height];
+    }
+
+    /**
+     * Check whether a box makes the game unwinnable.
+     *
+     * @param position the position of the box.
+     * @return true if the box is on a dead square or frozen together with a box off destination,
+     * false if it is not or there is no box at the position.
+     */
+    boolean isDeadlockedAt(@NotNull Position position) {
+        if (!(this.state.getEntity(position) instanceof Box box)) {
+            return false;
+        }
+        if (this.isDead(box.getPlayerId(), position.x(), position.y())) {
+            return true;
+        }
+        this.frozenOffDestination = false;
+        final boolean deadlocked = this.isFrozen(position.x(), position.y(), box.getPlayerId())
+            && this.frozenOffDestination;
+        for (int i = 0; i < this.frozenCount; ++i) {
+            this.frozen.clear(this.frozenCells[i]);
+        }
+        this.frozenCount = 0;
+        return deadlocked;
+    }
+
+    /**
+     * Check every box, e.g., after the game state has been reverted to an earlier one.
+     *
+     * @return true if any box makes the game unwinnable.
+     */
+    boolean isDeadlocked() {
+        for (int y = 0; y < this.height; ++y) {
+            for (int x = 0; x < this.width; ++x) {
+                if (this.isDeadlockedAt(Position.of(x, y))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isFrozen(int x, int y, int owner) {
+        final int cell = y * this.width + x;
+        final int count = this.frozenCount;
+        final boolean offDestination = this.frozenOffDestination;
+        this.frozen.set(cell);
+        this.frozenCells[this.frozenCount++] = cell;
+        if (this.isBlocked(x, y, 1, 0, owner) && this.isBlocked(x, y, 0, 1, owner)) {
+            if (!this.destinations.get(cell)) {
+                this.frozenOffDestination = true;
+            }
+            return true;
+        }
+        // Not frozen, so neither it nor the boxes found frozen by taking it as a wall are walls
+        while (this.frozenCount > count) {
+            this.frozen.clear(this.frozenCells[--this.frozenCount]);
+        }
+        this.frozenOffDestination = offDestination;
+        return false;
+    }
+
+    // Whether the box at (x, y) cannot be pushed along the axis (dx, dy)
+    private boolean isBlocked(int x, int y, int dx, int dy, int owner) {
+        final int x1 = x - dx;
+        final int y1 = y - dy;
+        final int x2 = x + dx;
+        final int y2 = y + dy;
+        if (this.isWall(x1, y1) || this.isWall(x2, y2)) {
+            return true;
+        }
+        if (this.isDead(owner, x1, y1) && this.isDead(owner, x2, y2)) {
+            return true;
+        }
+        return this.isFrozenBox(x1, y1) || this.isFrozenBox(x2, y2);
+    }
+
+    private boolean isFrozenBox(int x, int y) {
+        return this.state.getEntity(Position.of(x, y)) instanceof Box box && this.isFrozen(x, y, box.getPlayerId());
+    }
+
+    // Walls, cells outside the map, and boxes found frozen
+    private boolean isWall(int x, int y) {
+        if (x < 0 || x >= this.width || y < 0 || y >= this.height) {
+            return true;
+        }
+        final int cell = y * this.width + x;
+        return !this.floor.get(cell) || this.frozen.get(cell);
+    }
+
+    private boolean isDead(int owner, int x, int y) {
+        return this.gameMap.getPushDistances(owner).getDeadSquares().get(y * this.width + x);
+    }
+}
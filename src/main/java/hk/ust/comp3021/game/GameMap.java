@@ -20,14 +20,26 @@ import java.util.*;
  */
 public class GameMap {
 
+    private static final int MAX_PLAYERS = 26;
+
     private int maxWidth;
     private int maxHeight;
-    private Set<Position> wallsPositions;
     private Set<Position> destinations;
     private Map<Position, Integer> initialBoxesPositions;
     private Map<Position, Integer> initialPlayersPositions;
     private int undoLimit;
     private Entity[][] entities;
+    // Bitboards over cells indexed by y * maxWidth + x
+    private Bitboard wallsBitboard;
+    private Bitboard destinationsBitboard;
+    // Initial boxes of each player indexed by player id
+    private Bitboard[] initialBoxesBitboards;
+    // Static layer shared by all game states created from this map, built on first use
+    private volatile StaticLayer staticLayer;
+    // Push distances of each player indexed by player id, each built on first use
+    private volatile PushDistances[] pushDistances = new PushDistances[MAX_PLAYERS];
+    // Tunnels, articulation points and goal rooms, built on first use
+    private volatile MapStructure mapStructure;
 
     /**
      * Create a new GameMap with width, height, set of box destinations and undo limit.
@@ -46,6 +58,16 @@ public class GameMap {
         this.maxHeight = maxHeight;
         this.destinations = destinations;
         this.undoLimit = undoLimit;
+
+        this.wallsBitboard = new Bitboard(maxWidth, maxHeight);
+        this.destinationsBitboard = new Bitboard(maxWidth, maxHeight);
+        for (Position destination: destinations) {
+            this.destinationsBitboard.set(destination);
+        }
+        this.initialBoxesBitboards = new Bitboard[MAX_PLAYERS];
+        for (int id = 0; id < MAX_PLAYERS; ++id) {
+            this.initialBoxesBitboards[id] = new Bitboard(maxWidth, maxHeight);
+        }
     }
 
     /**
@@ -96,7 +118,6 @@ public class GameMap {
         Set<Position> destinations = new HashSet<>();
         Map<Position, Integer> initialBoxesPositions = new HashMap<>();
         Map<Position, Integer> initialPlayersPositions = new HashMap<>();
-        Set<Position> wallsPositions = new HashSet<>();
 
         for (String currentLine: mapTextLines) {
             int lineLength = currentLine.length();
@@ -105,6 +126,7 @@ public class GameMap {
             }
         }
         Entity[][] entities = new Entity[maxWidth][maxHeight];
+        Bitboard wallsBitboard = new Bitboard(maxWidth, maxHeight);
 
 
         for (int y = 0; y < maxHeight; ++y) {
@@ -120,7 +142,7 @@ public class GameMap {
                         throw new IllegalArgumentException("Multiple same upper-case letters in map.");
                     } else {
                         initialPlayersPositions.put(Position.of(x, y), playerId);
-                        entities[x][y] = new Player(playerId);
+                        entities[x][y] = Player.of(playerId);
                     }
                 }
 
@@ -128,24 +150,24 @@ public class GameMap {
                 if (currentChar >= 'a' && currentChar <= 'z') {
                     int playerId = currentChar - 'a';
                     initialBoxesPositions.put(Position.of(x, y), playerId);
-                    entities[x][y] = new Box(playerId);
+                    entities[x][y] = Box.of(playerId);
                 }
 
                 // Case: Wall
                 if (currentChar == '#') {
-                    wallsPositions.add(Position.of(x, y));
-                    entities[x][y] = new Wall();
+                    wallsBitboard.set(y * maxWidth + x);
+                    entities[x][y] = Wall.getInstance();
                 }
 
                 // Case: Destination
                 if (currentChar == '@') {
                     destinations.add(Position.of(x, y));
-                    entities[x][y] = new Empty();
+                    entities[x][y] = Empty.getInstance();
                 }
 
                 // Case: Empty
                 if (currentChar == '.') {
-                    entities[x][y] = new Empty();
+                    entities[x][y] = Empty.getInstance();
                 }
 
                 // Case: null
@@ -186,7 +208,10 @@ public class GameMap {
         tempGameMap.entities = entities;
         tempGameMap.initialBoxesPositions = initialBoxesPositions;
         tempGameMap.initialPlayersPositions = initialPlayersPositions;
-        tempGameMap.wallsPositions = wallsPositions;
+        tempGameMap.wallsBitboard = wallsBitboard;
+        for (Map.Entry<Position, Integer> box: initialBoxesPositions.entrySet()) {
+            tempGameMap.initialBoxesBitboards[box.getValue()].set(box.getKey());
+        }
         return tempGameMap;
     }
 
@@ -202,6 +227,12 @@ public class GameMap {
         return this.entities[position.x()][position.y()];
     }
 
+    // Same as getEntity(Position) without creating a Position
+    @Nullable
+    Entity getEntity(int x, int y) {
+        return this.entities[x][y];
+    }
+
     /**
      * Put one entity at the given position in the game map.
      *
@@ -211,6 +242,20 @@ public class GameMap {
     public void putEntity(Position position, Entity entity) {
         // DONE
         this.entities[position.x()][position.y()] = entity;
+
+        // Keep bitboards in sync with the entities
+        this.staticLayer = null;
+        this.pushDistances = new PushDistances[MAX_PLAYERS];
+        this.mapStructure = null;
+        this.wallsBitboard.clear(position);
+        for (Bitboard boxesBitboard: this.initialBoxesBitboards) {
+            boxesBitboard.clear(position);
+        }
+        switch (entity) {
+            case Wall wall -> this.wallsBitboard.set(position);
+            case Box box -> this.initialBoxesBitboards[box.getPlayerId()].set(position);
+            case null, default -> {}
+        }
     }
 
     /**
@@ -223,6 +268,146 @@ public class GameMap {
         return this.destinations;
     }
 
+    /**
+     * Get the walls in the game map as a bitboard.
+     * The returned bitboard is shared and must not be modified.
+     *
+     * @return a bitboard of wall cells.
+     */
+    public @NotNull @Unmodifiable Bitboard getWallsBitboard() {
+        return this.wallsBitboard;
+    }
+
+    /**
+     * Get all box destinations in the game map as a bitboard.
+     * The returned bitboard is shared and must not be modified.
+     *
+     * @return a bitboard of box destination cells.
+     */
+    public @NotNull @Unmodifiable Bitboard getDestinationsBitboard() {
+        return this.destinationsBitboard;
+    }
+
+    /**
+     * Get the initial locations of boxes that can be moved by the given player as a bitboard.
+     * The returned bitboard is shared and must not be modified.
+     *
+     * @param playerId the player id.
+     * @return a bitboard of cells initially occupied by boxes of the player.
+     */
+    public @NotNull @Unmodifiable Bitboard getInitialBoxesBitboard(int playerId) {
+        return this.initialBoxesBitboards[playerId];
+    }
+
+    /**
+     * Get all cells where players and boxes can be, i.e., cells that are neither walls nor outside the map,
+     * as a bitboard.
+     * The returned bitboard is shared and must not be modified.
+     *
+     * @return a bitboard of floor cells.
+     */
+    public @NotNull @Unmodifiable Bitboard getFloorBitboard() {
+        return this.getStaticLayer().floor();
+    }
+
+    /**
+     * Get the push distances from every cell to every box destination for the boxes of a player,
+     * and the dead squares from which they can never reach a destination.
+     * They are computed on first use and shared by everything working on this map.
+     *
+     * @param playerId the player id.
+     * @return the push distances of the player.
+     */
+    public @NotNull PushDistances getPushDistances(int playerId) {
+        final PushDistances[] cache = this.pushDistances;
+        PushDistances distances = cache[playerId];
+        if (distances == null) {
+            // Push distances are immutable and building them is idempotent, so racing threads at worst build twice
+            final var layer = this.getStaticLayer();
+            distances = new PushDistances(layer.floor(), this.destinationsBitboard, layer.initialPlayerCells()[playerId]);
+            cache[playerId] = distances;
+        }
+        return distances;
+    }
+
+    /**
+     * Get the tunnels, articulation points and goal rooms of the floor of this map.
+     * They are computed on first use and shared by everything working on this map.
+     *
+     * @return the structure of the map.
+     */
+    public @NotNull MapStructure getMapStructure() {
+        MapStructure structure = this.mapStructure;
+        if (structure == null) {
+            // The structure is immutable and building it is idempotent, so racing threads at worst build twice
+            final var layer = this.getStaticLayer();
+            final var occupied = new Bitboard(this.maxWidth, this.maxHeight);
+            for (int cell: layer.initialPlayerCells()) {
+                if (cell != -1) {
+                    occupied.set(cell);
+                }
+            }
+            for (int cell: layer.initialBoxCells()) {
+                occupied.set(cell);
+            }
+            structure = new MapStructure(layer.floor(), this.destinationsBitboard, occupied);
+            this.mapStructure = structure;
+        }
+        return structure;
+    }
+
+    /**
+     * Get the part of this map that never changes as the game goes, shared by all game states created from it.
+     *
+     * @return the static layer.
+     */
+    @NotNull StaticLayer getStaticLayer() {
+        StaticLayer layer = this.staticLayer;
+        if (layer == null) {
+            // Building is idempotent, so racing threads at worst build it twice
+            layer = this.buildStaticLayer();
+            this.staticLayer = layer;
+        }
+        return layer;
+    }
+
+    private StaticLayer buildStaticLayer() {
+        final var floor = new Bitboard(this.maxWidth, this.maxHeight);
+        final var initialPlayerCells = new int[MAX_PLAYERS];
+        Arrays.fill(initialPlayerCells, -1);
+        int boxCount = 0;
+        for (int y = 0; y < this.maxHeight; ++y) {
+            for (int x = 0; x < this.maxWidth; ++x) {
+                if (this.entities[x][y] instanceof Box) {
+                    boxCount++;
+                }
+            }
+        }
+        final var initialBoxCells = new int[boxCount];
+        final var boxOwners = new byte[boxCount];
+
+        int boxIndex = 0;
+        for (int y = 0; y < this.maxHeight; ++y) {
+            for (int x = 0; x < this.maxWidth; ++x) {
+                final int cell = y * this.maxWidth + x;
+                switch (this.entities[x][y]) {
+                    case Player player -> {
+                        floor.set(cell);
+                        initialPlayerCells[player.getId()] = cell;
+                    }
+                    case Box box -> {
+                        floor.set(cell);
+                        initialBoxCells[boxIndex] = cell;
+                        boxOwners[boxIndex++] = (byte) box.getPlayerId();
+                    }
+                    case Empty empty -> floor.set(cell);
+                    case null, default -> {}
+                }
+            }
+        }
+        return new StaticLayer(floor, initialPlayerCells, initialBoxCells, boxOwners);
+    }
+
     /**
      * Get the undo limit of the game map.
      *
@@ -262,4 +447,18 @@ public class GameMap {
         // DONE
         return this.maxHeight;
     }
+
+    /**
+     * The part of a game map that never changes as the game goes.
+     * It is shared read-only by all game states created from the map,
+     * so that a game state only holds the locations of players and boxes.
+     * Cells are indexed by {@code y * maxWidth + x}.
+     *
+     * @param floor              cells that are neither walls nor outside the map.
+     * @param initialPlayerCells initial cell of each player indexed by player id, -1 if there is no such player.
+     * @param initialBoxCells    initial cell of each box indexed by box index.
+     * @param boxOwners          player id of the owner of each box indexed by box index.
+     */
+    record StaticLayer(Bitboard floor, int[] initialPlayerCells, int[] initialBoxCells, byte[] boxOwners) {
+    }
 }
@@ -6,6 +6,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -19,22 +23,52 @@ import java.util.*;
  * <li>A move history.</li>
  * <li>Current location of player.</li>
  * <li>Undo quota left.</li>
+ * <p>
+ * Walls, floor and box destinations never change, so they are read from the static layer of the game map,
+ * which is shared by all game states created from it.
+ * A game state only holds the cells of players and boxes, indexed by {@code y * width + x},
+ * and a small table from occupied cells to their occupants,
+ * so its memory and construction time depend on the number of players and boxes, not on the size of the map.
+ * {@link GameState#getEntity(Position)} maps them back to the shared {@link Entity} instances.
  */
 public class GameState {
 
+    private static final int MAX_PLAYERS = 26;
+
+    // Occupant codes, a player code is PLAYER + player id and a box code is BOX + box index
+    private static final short PLAYER = 0;
+    private static final short BOX = PLAYER + MAX_PLAYERS;
+
     private final GameMap originalGameMap;
-    // Current locations of all crates
-    private Map<Position, Integer> currentCratesLocations;
+    // Walls, floor and initial locations shared with the game map
+    private final GameMap.StaticLayer staticLayer;
+    private final int width;
+    private final int height;
     // Most recent Action
     Action mostRecentAction;
-    // Current location of player
-    private Map<Integer, Position> currentPlayersLocations;
     // Undo quota left
     private int undoQuotaLeft;
-    // Map of Entity at current instance
-    private Entity[][] currentMap;
-    // Checkpoints
-    private List<Checkpoint> checkpoints;
+    // Occupant code of each cell occupied by a player or box at current instance
+    private OccupancyTable occupants;
+    // Current cell of each player indexed by player id, -1 if there is no such player
+    private int[] playerCells;
+    // Current cell of each box indexed by box index
+    private int[] boxCells;
+    // Whether occupants, playerCells and boxCells are shared with a fork and must be copied before writing
+    private boolean dynamicLayerShared;
+    // Player id of the owner of each box indexed by box index, shared with the game map
+    private final byte[] boxOwners;
+    // Box destination cells, shared with the game map
+    private final Bitboard destinationCells;
+    // Number of boxes currently located at box destinations
+    private int boxesOnDestinations;
+    // Zobrist hash of players and boxes, maintained incrementally by move() and undo()
+    private long zobristHash;
+    // Checkpoints, each holding the moves between it and the previous checkpoint
+    private CheckpointHistory<Checkpoint> checkpoints;
+    // Moves since the last checkpoint as (code, from cell, to cell) triples, one per moved entity
+    private int[] pendingDeltas = new int[3 * 4];
+    private int pendingDeltaCount;
 
     /**
      * Create a running game state from a game map.
@@ -44,11 +78,77 @@ public class GameState {
     public GameState(@NotNull GameMap map) {
         // DONE
         this.originalGameMap = map;
+        this.width = map.getMaxWidth();
+        this.height = map.getMaxHeight();
         this.undoQuotaLeft = originalGameMap.getUndoLimit().isPresent() ? originalGameMap.getUndoLimit().get() : -1;
-        this.checkpoints = new ArrayList<>();
+        // No more checkpoints than the undo limit can ever be reverted, -1 keeps all of them
+        this.checkpoints = new CheckpointHistory<>(this.undoQuotaLeft);
+
+        this.staticLayer = map.getStaticLayer();
+        this.destinationCells = map.getDestinationsBitboard();
+        this.boxOwners = this.staticLayer.boxOwners();
+        this.playerCells = new int[MAX_PLAYERS];
+        this.boxCells = new int[this.boxOwners.length];
+        int playerCount = 0;
+        for (int cell: this.staticLayer.initialPlayerCells()) {
+            if (cell != -1) {
+                playerCount++;
+            }
+        }
+        this.occupants = new OccupancyTable(playerCount + this.boxCells.length);
+        this.initializeFromOriginalGameMap();
+    }
+
+    /**
+     * Create a running game state from a game map, keeping at most the given number of checkpoints on the heap.
+     * <p>
+     * If the game has unlimited undo, older checkpoints are written to a memory-mapped file owned by this game state
+     * and read back transparently by {@link GameState#undo()}.
+     * Otherwise, the history is already bounded by the undo limit and this is the same as {@link #GameState(GameMap)}.
+     *
+     * @param map                 the game map from which to create this game state.
+     * @param inMemoryCheckpoints the number of most recent checkpoints kept on the heap.
+     * @throws IllegalArgumentException if the game has unlimited undo and inMemoryCheckpoints is negative.
+     */
+    public GameState(@NotNull GameMap map, int inMemoryCheckpoints) {
+        this(map);
+        if (this.undoQuotaLeft == -1) {
+            this.checkpoints = new SpillingCheckpointHistory<>(inMemoryCheckpoints, new CheckpointCodec());
+        }
+    }
 
-        this.currentMap = this.initializeMapFromOriginalGameMap();
-        this.updateStatesFromCurrentMap();
+    // Create a fork sharing the dynamic layer of the other game state
+    private GameState(@NotNull GameState other) {
+        this.originalGameMap = other.originalGameMap;
+        this.staticLayer = other.staticLayer;
+        this.width = other.width;
+        this.height = other.height;
+        this.destinationCells = other.destinationCells;
+        this.boxOwners = other.boxOwners;
+        this.undoQuotaLeft = other.undoQuotaLeft;
+        this.checkpoints = new CheckpointHistory<>(this.undoQuotaLeft);
+
+        this.occupants = other.occupants;
+        this.playerCells = other.playerCells;
+        this.boxCells = other.boxCells;
+        this.boxesOnDestinations = other.boxesOnDestinations;
+        this.zobristHash = other.zobristHash;
+        this.dynamicLayerShared = true;
+    }
+
+    /**
+     * Create an independent game state at the same state as this one.
+     * <p>
+     * The fork shares the locations of players and boxes with this game state until either of them moves,
+     * and only then copies them, so forking costs O(1) and the first move after it O(number of players and boxes).
+     * The fork has the same undo quota left but starts with an empty history,
+     * i.e., undo in the fork reverts to checkpoints recorded after forking, or to the state it was forked from.
+     *
+     * @return the fork.
+     */
+    public @NotNull GameState fork() {
+        this.dynamicLayerShared = true;
+        return new GameState(this);
     }
 
     /**
@@ -59,7 +159,10 @@ public class GameState {
      */
     public @Nullable Position getPlayerPositionById(int id) {
         // DONE
-        return this.currentPlayersLocations.get(id);
+        if (id < 0 || id >= MAX_PLAYERS || this.playerCells[id] == -1) {
+            return null;
+        }
+        return this.positionOf(this.playerCells[id]);
     }
 
     /**
@@ -69,7 +172,13 @@ public class GameState {
      */
     public @NotNull Set<Position> getAllPlayerPositions() {
         // DONE
-        return new HashSet<>(this.currentPlayersLocations.values());
+        final var positions = new HashSet<Position>();
+        for (int cell: this.playerCells) {
+            if (cell != -1) {
+                positions.add(this.positionOf(cell));
+            }
+        }
+        return positions;
     }
 
     /**
@@ -80,7 +189,18 @@ public class GameState {
      */
     public @Nullable Entity getEntity(@NotNull Position position) {
         // DONE
-        return this.currentMap[position.x()][position.y()];
+        final int cell = this.cellOf(position);
+        final short code = this.occupants.get(cell);
+        if (code >= BOX) {
+            return Box.of(this.boxOwners[code - BOX]);
+        } else if (code >= PLAYER) {
+            return Player.of(code - PLAYER);
+        } else if (this.staticLayer.floor().get(cell)) {
+            return Empty.getInstance();
+        } else if (this.originalGameMap.getWallsBitboard().get(cell)) {
+            return Wall.getInstance();
+        }
+        return null;
     }
 
     /**
@@ -118,7 +238,8 @@ public class GameState {
      */
     public boolean isWin() {
         // DONE
-        return this.originalGameMap.getDestinations().containsAll(this.currentCratesLocations.keySet());
+        // boxesOnDestinations is maintained incrementally by move() and undo()
+        return this.boxesOnDestinations == this.boxCells.length;
     }
 
     /**
@@ -132,19 +253,24 @@ public class GameState {
     public void move(Position from, Position to) {
         // DONE
         // Perform swapping 2 Entities Positions
-        Entity entityFrom = this.currentMap[from.x()][from.y()];
-
-        switch (entityFrom) {
-            case Player player -> this.currentPlayersLocations.put(player.getId(), to);
-            case Box box -> {
-                this.currentCratesLocations.remove(from);
-                this.currentCratesLocations.put(to, box.getPlayerId());
-            }
-            case null, default -> {}
+        final int fromCell = this.cellOf(from);
+        final int toCell = this.cellOf(to);
+        final short code = this.occupants.get(fromCell);
+        final short displacedCode = this.occupants.get(toCell);
+        if (code != OccupancyTable.NONE || displacedCode != OccupancyTable.NONE) {
+            this.ensureDynamicLayerWritable();
         }
 
-        this.currentMap[from.x()][from.y()] = this.currentMap[to.x()][to.y()];
-        this.currentMap[to.x()][to.y()] = entityFrom;
+        if (code != OccupancyTable.NONE) {
+            this.occupants.remove(fromCell);
+        }
+        if (displacedCode != OccupancyTable.NONE) {
+            this.occupants.remove(toCell);
+            this.relocate(displacedCode, toCell, fromCell);
+        }
+        if (code != OccupancyTable.NONE) {
+            this.relocate(code, fromCell, toCell);
+        }
     }
 
     /**
@@ -154,10 +280,14 @@ public class GameState {
      * <p>
      * Checkpoint is used in {@link GameState#undo()}.
      * Every undo actions reverts the game state to the last checkpoint.
+     * <p>
+     * Only the entities moved since the previous checkpoint are recorded,
+     * so a checkpoint after a push costs the player and the box, not every entity in the game map.
      */
     public void checkpoint() {
         // DONE
-        this.checkpoints.add(Checkpoint.of(this.currentPlayersLocations, this.currentCratesLocations));
+        this.checkpoints.push(new Checkpoint(Arrays.copyOf(this.pendingDeltas, this.pendingDeltaCount)));
+        this.pendingDeltaCount = 0;
     }
 
     /**
@@ -166,50 +296,121 @@ public class GameState {
      * <p>
      * If there is no checkpoint recorded, i.e., before moving any box when the game starts,
      * revert to the initial game state.
+     * <p>
+     * Only the most recent checkpoints within the undo limit are kept.
+     * Each undo of a checkpoint takes one undo quota, so the checkpoints kept are never fewer than the quota left.
      */
     public void undo() {
         // DONE
-        if (this.getUndoQuota().isPresent() && !this.checkpoints.isEmpty()) {
-            this.undoQuotaLeft--;
-        }
-
         this.mostRecentAction = null;
 
-        if (!this.checkpoints.isEmpty()) {
-            this.checkpoints.remove(this.checkpoints.size() - 1);
+        // Revert moves since the last checkpoint, i.e., back to the last checkpoint
+        this.revert(this.pendingDeltas, this.pendingDeltaCount);
+        this.pendingDeltaCount = 0;
+
+        // Revert moves recorded in the last checkpoint, i.e., back to the previous checkpoint or initial game state
+        Checkpoint lastCheckpoint = this.checkpoints.pop();
+        if (lastCheckpoint != null) {
+            if (this.getUndoQuota().isPresent()) {
+                this.undoQuotaLeft--;
+            }
+            this.revert(lastCheckpoint.deltas(), lastCheckpoint.deltas().length);
         }
-        if (this.checkpoints.isEmpty()) {
-            // Revert to initial game state
-            this.currentMap = this.initializeMapFromOriginalGameMap();
-        } else {
-            // Revert to previous checkpoint
-            Checkpoint checkpoint = this.checkpoints.get(this.checkpoints.size() - 1);
-
-            // Remove Players and Boxes from currentMap
-            for (int playerId: checkpoint.playerLocations.keySet()) {
-                // Remove Player from currentMap
-                Position playerPosition = this.getPlayerPositionById(playerId);
-                this.currentMap[playerPosition.x()][playerPosition.y()] = new Empty();
+    }
+
+    /**
+     * Get the Zobrist hash of the current locations of players and boxes.
+     * It is updated incrementally as the game goes, and is the same for equal game states across sessions.
+     *
+     * @return the 64-bit Zobrist hash.
+     * @see Zobrist
+     */
+    public long getZobristHash() {
+        return this.zobristHash;
+    }
+
+    /**
+     * Encode the current locations of players and boxes in a canonical compact form.
+     * <p>
+     * The encoding lists the cell of each player in order of player id,
+     * followed by the cells of the boxes of each player in order of player id and then cell index.
+     * Which players exist and how many boxes each of them has is fixed by the game map,
+     * so it is not encoded and two encodings are only comparable for game states of the same map.
+     * Each cell takes 2 bytes, or 4 bytes if the map has more than 65536 cells.
+     *
+     * @return the encoding, equal for game states with equal locations of players and boxes.
+     */
+    public byte @NotNull [] encode() {
+        final int cellBytes = this.width * this.height > 1 << 16 ? 4 : 2;
+        int playerCount = 0;
+        for (int cell: this.playerCells) {
+            if (cell != -1) {
+                playerCount++;
             }
-            for (Position cratePosition: this.currentCratesLocations.keySet()) {
-                // Remove Box from currentMap
-                this.currentMap[cratePosition.x()][cratePosition.y()] = new Empty();
+        }
+        final var buffer = ByteBuffer.allocate((playerCount + this.boxCells.length) * cellBytes);
+        for (int cell: this.playerCells) {
+            if (cell != -1) {
+                putCell(buffer, cell, cellBytes);
             }
+        }
+        // Boxes of the same player are interchangeable, so sort them by owner and then by cell
+        final long[] boxes = new long[this.boxCells.length];
+        for (int index = 0; index < boxes.length; ++index) {
+            boxes[index] = ((long) this.boxOwners[index] << 32) | this.boxCells[index];
+        }
+        Arrays.sort(boxes);
+        for (long box: boxes) {
+            putCell(buffer, (int) box, cellBytes);
+        }
+        return buffer.array();
+    }
 
-            // Add Players and Boxes to currentMap by Checkpoint Positions
-            for (int playerId: checkpoint.playerLocations.keySet()) {
-                // Add Player to currentMap
-                Position playerPosition = checkpoint.playerLocations.get(playerId);
-                this.currentMap[playerPosition.x()][playerPosition.y()] = new Player(playerId);
-            }
-            for (Position cratePosition: checkpoint.cratesLocations.keySet()) {
-                // Add Box to currentMap
-                int playerId = checkpoint.cratesLocations.get(cratePosition);
-                this.currentMap[cratePosition.x()][cratePosition.y()] = new Box(playerId);
+    /**
+     * Two game states are equal if they are of the same game map and have all players and boxes at the same cells.
+     * Undo quota and history are not compared.
+     * <p>
+     * Game states with different Zobrist hashes are told apart in O(1),
+     * otherwise the locations are compared in O(number of players and boxes).
+     * Note that game states are mutable, so a game state used as a key of a hash table must not be moved afterwards,
+     * e.g., use a {@link #fork()} of it.
+     *
+     * @param o the other object.
+     * @return true if the other object is an equal game state.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GameState other) || this.zobristHash != other.zobristHash) {
+            return false;
+        }
+        if (this.originalGameMap != other.originalGameMap
+            && (this.width != other.width
+            || !this.originalGameMap.getWallsBitboard().equals(other.originalGameMap.getWallsBitboard())
+            || !this.destinationCells.equals(other.destinationCells)
+            || !this.staticLayer.floor().equals(other.staticLayer.floor()))) {
+            return false;
+        }
+        if (!Arrays.equals(this.playerCells, other.playerCells) || this.boxCells.length != other.boxCells.length) {
+            return false;
+        }
+        for (int index = 0; index < this.boxCells.length; ++index) {
+            final short code = other.occupants.get(this.boxCells[index]);
+            if (code < BOX || other.boxOwners[code - BOX] != this.boxOwners[index]) {
+                return false;
             }
         }
+        return true;
+    }
 
-        this.updateStatesFromCurrentMap();
+    /**
+     * @return a hash code derived from {@link #getZobristHash()}.
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.zobristHash);
     }
 
     /**
@@ -220,7 +421,7 @@ public class GameState {
      */
     public int getMapMaxWidth() {
         // DONE
-        return this.originalGameMap.getMaxWidth();
+        return this.width;
     }
 
     /**
@@ -231,44 +432,180 @@ public class GameState {
      */
     public int getMapMaxHeight() {
         // DONE
-        return this.originalGameMap.getMaxHeight();
+        return this.height;
+    }
+
+    /**
+     * Get the game map this game state was created from.
+     * <b>The game map must not be modified.</b>
+     *
+     * @return the game map.
+     */
+    public @NotNull GameMap getGameMap() {
+        return this.originalGameMap;
     }
 
     // Helper functions
-    private Entity[][] initializeMapFromOriginalGameMap() {
-        Entity[][] tempMap = new Entity[this.getMapMaxWidth()][];
-        for (int x = 0; x < this.getMapMaxWidth(); ++x) {
-            tempMap[x] = new Entity[this.getMapMaxHeight()];
-            for (int y = 0; y < this.getMapMaxHeight(); ++y) {
-                tempMap[x][y] = this.originalGameMap.getEntity(Position.of(x, y));
+    private void initializeFromOriginalGameMap() {
+        this.ensureDynamicLayerWritable();
+        this.occupants.clear();
+        this.boxesOnDestinations = 0;
+        this.zobristHash = 0;
+
+        final int[] initialPlayerCells = this.staticLayer.initialPlayerCells();
+        for (int id = 0; id < MAX_PLAYERS; ++id) {
+            this.playerCells[id] = initialPlayerCells[id];
+            if (initialPlayerCells[id] != -1) {
+                this.occupants.put(initialPlayerCells[id], (short) (PLAYER + id));
+                this.zobristHash ^= this.zobristKey((short) (PLAYER + id), initialPlayerCells[id]);
+            }
+        }
+        final int[] initialBoxCells = this.staticLayer.initialBoxCells();
+        for (int index = 0; index < initialBoxCells.length; ++index) {
+            this.boxCells[index] = initialBoxCells[index];
+            this.occupants.put(initialBoxCells[index], (short) (BOX + index));
+            this.zobristHash ^= this.zobristKey((short) (BOX + index), initialBoxCells[index]);
+            if (this.destinationCells.get(initialBoxCells[index])) {
+                this.boxesOnDestinations++;
+            }
+        }
+    }
+
+    private int cellOf(Position position) {
+        if (position.x() < 0 || position.x() >= this.width || position.y() < 0 || position.y() >= this.height) {
+            throw new ArrayIndexOutOfBoundsException("Position out of game map: " + position);
+        }
+        return position.y() * this.width + position.x();
+    }
+
+    private Position positionOf(int cell) {
+        return Position.of(cell % this.width, cell / this.width);
+    }
+
+    private void place(short code, int cell) {
+        if (code >= BOX) {
+            this.boxCells[code - BOX] = cell;
+        } else {
+            this.playerCells[code - PLAYER] = cell;
+        }
+    }
+
+    // Put a player or box that has been removed from fromCell at toCell
+    private void relocate(short code, int fromCell, int toCell) {
+        this.occupants.put(toCell, code);
+        this.place(code, toCell);
+        this.zobristHash ^= this.zobristKey(code, fromCell) ^ this.zobristKey(code, toCell);
+        if (code >= BOX) {
+            if (this.destinationCells.get(fromCell)) {
+                this.boxesOnDestinations--;
+            }
+            if (this.destinationCells.get(toCell)) {
+                this.boxesOnDestinations++;
             }
         }
-        return tempMap;
+        this.journal(code, fromCell, toCell);
     }
 
-    private void updateStatesFromCurrentMap() {
-        this.currentCratesLocations = new HashMap<>();
-        this.currentPlayersLocations = new HashMap<>();
-        for (int x = 0; x < this.getMapMaxWidth(); ++x) {
-            for (int y = 0; y < this.getMapMaxHeight(); ++y) {
-                switch (this.getEntity(Position.of(x, y))) {
-                    case Box box -> this.currentCratesLocations.put(Position.of(x, y), box.getPlayerId());
-                    case Player player -> this.currentPlayersLocations.put(player.getId(), Position.of(x, y));
-                    case null, default -> {}
-                }
+    // Journal the move, merging it with earlier moves of the same entity since the last checkpoint
+    private void journal(short code, int fromCell, int toCell) {
+        int origin = fromCell;
+        for (int i = 0; i < this.pendingDeltaCount; i += 3) {
+            if (this.pendingDeltas[i + 2] == fromCell) {
+                origin = this.pendingDeltas[i + 1];
+                // Remove the earlier move by moving the last triple into its place
+                this.pendingDeltaCount -= 3;
+                System.arraycopy(this.pendingDeltas, this.pendingDeltaCount, this.pendingDeltas, i, 3);
+                break;
+            }
+        }
+        if (origin != toCell) {
+            if (this.pendingDeltaCount == this.pendingDeltas.length) {
+                this.pendingDeltas = Arrays.copyOf(this.pendingDeltas, this.pendingDeltas.length * 2);
             }
+            this.pendingDeltas[this.pendingDeltaCount++] = code;
+            this.pendingDeltas[this.pendingDeltaCount++] = origin;
+            this.pendingDeltas[this.pendingDeltaCount++] = toCell;
         }
     }
 
-    private record Checkpoint(
-            Map<Integer, Position> playerLocations,
-            Map<Position, Integer> cratesLocations
-    ) {
-        static @NotNull Checkpoint of(
-                Map<Integer, Position> playerLocations,
-                Map<Position, Integer> cratesLocations
-        ) {
-            return new Checkpoint(new HashMap<>(playerLocations), new HashMap<>(cratesLocations));
+    private long zobristKey(short code, int cell) {
+        if (code >= BOX) {
+            return Zobrist.box(this.boxOwners[code - BOX], cell);
+        }
+        return Zobrist.player(code - PLAYER, cell);
+    }
+
+    private static void putCell(ByteBuffer buffer, int cell, int cellBytes) {
+        if (cellBytes == 2) {
+            buffer.putShort((short) cell);
+        } else {
+            buffer.putInt(cell);
+        }
+    }
+
+    private void ensureDynamicLayerWritable() {
+        if (this.dynamicLayerShared) {
+            this.occupants = this.occupants.copy();
+            this.playerCells = this.playerCells.clone();
+            this.boxCells = this.boxCells.clone();
+            this.dynamicLayerShared = false;
+        }
+    }
+
+    private void revert(int[] deltas, int length) {
+        if (length > 0) {
+            this.ensureDynamicLayerWritable();
+        }
+        // Remove moved Players and Boxes first, as an entity may be reverted onto a cell another one has left
+        for (int i = 0; i < length; i += 3) {
+            final int toCell = deltas[i + 2];
+            this.occupants.remove(toCell);
+            this.zobristHash ^= this.zobristKey((short) deltas[i], toCell);
+            if (deltas[i] >= BOX && this.destinationCells.get(toCell)) {
+                this.boxesOnDestinations--;
+            }
+        }
+
+        // Put moved Players and Boxes back to where they were
+        for (int i = 0; i < length; i += 3) {
+            final short code = (short) deltas[i];
+            final int fromCell = deltas[i + 1];
+            this.occupants.put(fromCell, code);
+            this.place(code, fromCell);
+            this.zobristHash ^= this.zobristKey(code, fromCell);
+            if (code >= BOX && this.destinationCells.get(fromCell)) {
+                this.boxesOnDestinations++;
+            }
+        }
+    }
+
+    /**
+     * @param deltas the moves between the previous checkpoint and this checkpoint,
+     *               as (code, from cell, to cell) triples, one per moved entity.
+     */
+    private record Checkpoint(int[] deltas) {
+    }
+
+    /**
+     * Writes the deltas of a checkpoint as they are.
+     */
+    private static class CheckpointCodec implements SpillingCheckpointHistory.Codec<Checkpoint> {
+
+        @Override
+        public void write(@NotNull Checkpoint checkpoint, @NotNull DataOutput out) throws IOException {
+            out.writeInt(checkpoint.deltas().length);
+            for (int value: checkpoint.deltas()) {
+                out.writeInt(value);
+            }
+        }
+
+        @Override
+        public @NotNull Checkpoint read(@NotNull DataInput in) throws IOException {
+            final var deltas = new int[in.readInt()];
+            for (int i = 0; i < deltas.length; ++i) {
+                deltas[i] = in.readInt();
+            }
+            return new Checkpoint(deltas);
         }
     }
 }
@@ -0,0 +1,225 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The layout of the floor of a game map that forces how boxes move through it, apart from players and boxes.
+ * <ul>
+ * <li>Tunnels are one cell wide: a box in a horizontal tunnel cell has walls above and below it,
+ * so it can only be pushed left or right, and likewise for vertical tunnels.</li>
+ * <li>Articulation points are floor cells that split the floor into parts when blocked, e.g., by a box.</li>
+ * <li>Goal rooms are parts of the floor holding box destinations that are only entered through one articulation
+ * point, their entrance, and that hold no players or boxes initially, so every box on their destinations has been
+ * pushed in through the entrance.</li>
+ * </ul>
+ * <p>
+ * Cells are indexed by {@code y * width + x}.
+ * Instances are immutable, and built once per game map by {@link GameMap#getMapStructure()}.
+ */
+public final class MapStructure {
+
+    private final Bitboard horizontalTunnels;
+    private final Bitboard verticalTunnels;
+    private final Bitboard articulationPoints;
+    private final List<GoalRoom> goalRooms;
+
+    /**
+     * A goal room of a game map.
+     * The cells of a room are a shared bitboard and must not be modified.
+     *
+     * @param entrance the cell the room is entered through, which is not part of the room.
+     * @param cells    the floor cells of the room.
+     */
+    public record GoalRoom(int entrance, @NotNull @Unmodifiable Bitboard cells) {
+    }
+
+    /**
+     * Find the structure of the floor.
+     *
+     * @param floor        cells that are neither walls nor outside the map.
+     * @param destinations box destinations.
+     * @param occupied     cells initially occupied by players or boxes.
+     */
+    MapStructure(@NotNull Bitboard floor, @NotNull Bitboard destinations, @NotNull Bitboard occupied) {
+        final int width = floor.getWidth();
+        final int height = floor.getHeight();
+        this.horizontalTunnels = new Bitboard(width, height);
+        this.verticalTunnels = new Bitboard(width, height);
+        for (int cell = floor.nextSetBit(0); cell != -1; cell = floor.nextSetBit(cell + 1)) {
+            final int x = cell % width;
+            final int y = cell / width;
+            if (!isFloor(floor, x, y - 1) && !isFloor(floor, x, y + 1)) {
+                this.horizontalTunnels.set(cell);
+            }
+            if (!isFloor(floor, x - 1, y) && !isFloor(floor, x + 1, y)) {
+                this.verticalTunnels.set(cell);
+            }
+        }
+        this.articulationPoints = findArticulationPoints(floor);
+        this.goalRooms = findGoalRooms(floor, destinations, occupied, this.articulationPoints);
+    }
+
+    /**
+     * Get the floor cells with walls or the edge of the map above and below them, which boxes can only be pushed
+     * left or right from.
+     * The returned bitboard is shared and must not be modified.
+     *
+     * @return a bitboard of horizontal tunnel cells.
+     */
+    public @NotNull @Unmodifiable Bitboard getHorizontalTunnels() {
+        return this.horizontalTunnels;
+    }
+
+    /**
+     * Get the floor cells with walls or the edge of the map left and right of them, which boxes can only be pushed
+     * up or down from.
+     * The returned bitboard is shared and must not be modified.
+     *
+     * @return a bitboard of vertical tunnel cells.
+     */
+    public @NotNull @Unmodifiable Bitboard getVerticalTunnels() {
+        return this.verticalTunnels;
+    }
+
+    /**
+     * Get the floor cells that split the floor cells connected to them into several parts when they are blocked.
+     * The returned bitboard is shared and must not be modified.
+     *
+     * @return a bitboard of articulation points.
+     */
+    public @NotNull @Unmodifiable Bitboard getArticulationPoints() {
+        return this.articulationPoints;
+    }
+
+    /**
+     * Get the goal rooms of the map. Rooms never overlap: a room inside a larger one, e.g., behind a corridor
+     * leading into the larger one, is left out.
+     *
+     * @return the goal rooms, in the ascending order of their entrances.
+     */
+    public @NotNull @Unmodifiable List<GoalRoom> getGoalRooms() {
+        return this.goalRooms;
+    }
+
+    private static boolean isFloor(Bitboard floor, int x, int y) {
+        return x >= 0 && x < floor.getWidth() && y >= 0 && y < floor.getHeight() && floor.get(y * floor.getWidth() + x);
+    }
+
+    // Tarjan's algorithm, with an explicit stack so that long corridors do not overflow the call stack
+    private static Bitboard findArticulationPoints(Bitboard floor) {
+        final int width = floor.getWidth();
+        final int area = width * floor.getHeight();
+        final int[] offsets = {-width, width, -1, 1};
+        final var points = new Bitboard(width, floor.getHeight());
+        // Order each cell was discovered in, from 1, and the earliest discovered cell reachable from its subtree
+        final int[] discovered = new int[area];
+        final int[] low = new int[area];
+        final int[] parent = new int[area];
+        // Index of the next offset to try from each cell on the stack
+        final int[] next = new int[area];
+        final int[] stack = new int[area];
+        int order = 0;
+        for (int root = floor.nextSetBit(0); root != -1; root = floor.nextSetBit(root + 1)) {
+            if (discovered[root] != 0) {
+                continue;
+            }
+            int rootChildren = 0;
+            int top = 0;
+            stack[top++] = root;
+            parent[root] = -1;
+            discovered[root] = low[root] = ++order;
+            while (top > 0) {
+                final int cell = stack[top - 1];
+                if (next[cell] < offsets.length) {
+                    final int neighbour = neighbour(floor, cell, offsets[next[cell]++]);
+                    if (neighbour == -1) {
+                        continue;
+                    }
+                    if (discovered[neighbour] == 0) {
+                        parent[neighbour] = cell;
+                        discovered[neighbour] = low[neighbour] = ++order;
+                        stack[top++] = neighbour;
+                        if (cell == root) {
+                            rootChildren++;
+                        }
+                    } else if (neighbour != parent[cell]) {
+                        low[cell] = Math.min(low[cell], discovered[neighbour]);
+                    }
+                    continue;
+                }
+                top--;
+                final int up = parent[cell];
+                if (up != -1) {
+                    low[up] = Math.min(low[up], low[cell]);
+                    if (up != root && low[cell] >= discovered[up]) {
+                        points.set(up);
+                    }
+                }
+            }
+            if (rootChildren > 1) {
+                points.set(root);
+            }
+        }
+        return points;
+    }
+
+    // For each articulation point, the parts cut off by it that hold destinations and no players or boxes
+    private static List<GoalRoom> findGoalRooms(
+        Bitboard floor,
+        Bitboard destinations,
+        Bitboard occupied,
+        Bitboard articulationPoints
+    ) {
+        final var candidates = new ArrayList<GoalRoom>();
+        final int[] offsets = {-floor.getWidth(), floor.getWidth(), -1, 1};
+        for (int entrance = articulationPoints.nextSetBit(0); entrance != -1;
+             entrance = articulationPoints.nextSetBit(entrance + 1)) {
+            if (destinations.get(entrance) || occupied.get(entrance)) {
+                continue;
+            }
+            final var rest = floor.copy();
+            rest.clear(entrance);
+            for (int offset: offsets) {
+                final int start = neighbour(floor, entrance, offset);
+                if (start == -1 || !rest.get(start)) {
+                    continue;
+                }
+                final var cells = rest.flood(start);
+                rest.andNot(cells);
+                if (cells.intersects(destinations) && !cells.intersects(occupied)) {
+                    candidates.add(new GoalRoom(entrance, cells));
+                }
+            }
+        }
+
+        final var rooms = new ArrayList<GoalRoom>();
+        for (GoalRoom room: candidates) {
+            boolean inner = false;
+            for (GoalRoom other: candidates) {
+                inner |= other != room && other.cells().get(room.entrance()) && other.cells().containsAll(room.cells());
+            }
+            if (!inner) {
+                rooms.add(room);
+            }
+        }
+        return List.copyOf(rooms);
+    }
+
+    // The floor cell at the offset from a cell, or -1
+    private static int neighbour(Bitboard floor, int cell, int offset) {
+        final int width = floor.getWidth();
+        final int next = cell + offset;
+        if (next < 0 || next >= width * floor.getHeight()) {
+            return -1;
+        }
+        // Moving left or right must not wrap to another row
+        if ((offset == -1 || offset == 1) && next / width != cell / width) {
+            return -1;
+        }
+        return floor.get(next) ? next : -1;
+    }
+}
@@ -0,0 +1,122 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A map from occupied cells to the codes of the players or boxes occupying them.
+ * <p>
+ * It is an open-addressing hash table with linear probing, sized from the number of players and boxes,
+ * so its memory does not depend on the size of the game map.
+ */
+final class OccupancyTable {
+
+    /**
+     * The code returned for cells that are not occupied.
+     */
+    static final short NONE = -1;
+
+    private static final int FREE = -1;
+
+    // Occupied cell of each slot, FREE if the slot is not used
+    private final int[] cells;
+    // Code of the occupant of each slot
+    private final short[] codes;
+    private final int mask;
+
+    /**
+     * Create an empty table.
+     *
+     * @param maxOccupants the maximum number of cells occupied at the same time.
+     */
+    OccupancyTable(int maxOccupants) {
+        // Keep the load factor at most one half
+        final int capacity = Math.max(4, Integer.highestOneBit(Math.max(1, maxOccupants) * 2 - 1) << 1);
+        this.cells = new int[capacity];
+        this.codes = new short[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(this.cells, FREE);
+    }
+
+    private OccupancyTable(@NotNull OccupancyTable other) {
+        this.cells = other.cells.clone();
+        this.codes = other.codes.clone();
+        this.mask = other.mask;
+    }
+
+    /**
+     * @return an independent copy of this table.
+     */
+    @NotNull OccupancyTable copy() {
+        return new OccupancyTable(this);
+    }
+
+    /**
+     * @param cell the cell index.
+     * @return the code of the occupant of the cell, or {@link #NONE} if it is not occupied.
+     */
+    short get(int cell) {
+        for (int slot = this.slotOf(cell); ; slot = (slot + 1) & this.mask) {
+            final int key = this.cells[slot];
+            if (key == cell) {
+                return this.codes[slot];
+            }
+            if (key == FREE) {
+                return NONE;
+            }
+        }
+    }
+
+    /**
+     * @param cell the cell index.
+     * @param code the code of the occupant of the cell.
+     */
+    void put(int cell, short code) {
+        int slot = this.slotOf(cell);
+        while (this.cells[slot] != FREE && this.cells[slot] != cell) {
+            slot = (slot + 1) & this.mask;
+        }
+        this.cells[slot] = cell;
+        this.codes[slot] = code;
+    }
+
+    /**
+     * @param cell the cell index to mark as not occupied.
+     */
+    void remove(int cell) {
+        int slot = this.slotOf(cell);
+        while (this.cells[slot] != cell) {
+            if (this.cells[slot] == FREE) {
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+
+        // Shift later entries of the probe sequence back into the hole, so that no tombstone is needed
+        int hole = slot;
+        for (int next = (hole + 1) & this.mask; this.cells[next] != FREE; next = (next + 1) & this.mask) {
+            final int home = this.slotOf(this.cells[next]);
+            // The entry may fill the hole only if its home slot is not cyclically within (hole, next]
+            final boolean homeAfterHole = hole <= next ? home > hole && home <= next : home > hole || home <= next;
+            if (!homeAfterHole) {
+                this.cells[hole] = this.cells[next];
+                this.codes[hole] = this.codes[next];
+                hole = next;
+            }
+        }
+        this.cells[hole] = FREE;
+    }
+
+    /**
+     * Mark all cells as not occupied.
+     */
+    void clear() {
+        Arrays.fill(this.cells, FREE);
+    }
+
+    private int slotOf(int cell) {
+        final int hash = cell * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & this.mask;
+    }
+}
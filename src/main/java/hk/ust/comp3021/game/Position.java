@@ -12,15 +12,30 @@ import org.jetbrains.annotations.NotNull;
  */
 public record Position(int x, int y) {
 
+    // Positions within CACHE_SIZE x CACHE_SIZE are created once and shared, which covers any practical game map
+    private static final int CACHE_SIZE = 128;
+    private static final Position[] CACHE = new Position[CACHE_SIZE * CACHE_SIZE];
+
     /**
      * Creates a new position.
+     * Positions on the top-left 128 x 128 cells are cached, so calling this in game loops does not allocate.
      *
      * @param x The horizontal displacement.
      * @param y The vertical displacement.
      * @return The newly created position.
      */
     public static @NotNull Position of(int x, int y) {
-        return new Position(x, y);
+        if (x < 0 || x >= CACHE_SIZE || y < 0 || y >= CACHE_SIZE) {
+            return new Position(x, y);
+        }
+        // Positions are immutable, so racing threads at worst create the same position twice
+        final int index = y * CACHE_SIZE + x;
+        Position position = CACHE[index];
+        if (position == null) {
+            position = new Position(x, y);
+            CACHE[index] = position;
+        }
+        return position;
     }
 
 }
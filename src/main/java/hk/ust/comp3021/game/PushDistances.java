@@ -0,0 +1,143 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.Arrays;
+
+/**
+ * The number of pushes a player needs to move one of its boxes from each cell to each box destination,
+ * ignoring all other boxes and players.
+ * <p>
+ * A box can only be pushed by its owner, from the cell behind it,
+ * so only cells the owner can walk to when boxes and players are ignored take part.
+ * Cells from which a box of the player can never reach any destination are dead squares:
+ * a box pushed onto one makes the game unwinnable.
+ * <p>
+ * Cells are indexed by {@code y * width + x}, and destinations by the ascending order of their cells.
+ * Instances are immutable, and built once per game map and player by {@link GameMap#getPushDistances(int)}.
+ */
+public final class PushDistances {
+
+    /**
+     * The distance from a cell from which the destination can never be reached.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final int area;
+    private final int[] destinationCells;
+    // Distance from each cell to each destination at index destination * area + cell
+    private final int[] distances;
+    // Distance from each cell to its nearest destination
+    private final int[] nearest;
+    private final Bitboard deadSquares;
+
+    /**
+     * Compute the push distances of a player by pulling a box backwards from every destination.
+     *
+     * @param floor        cells that are neither walls nor outside the map.
+     * @param destinations box destinations.
+     * @param playerCell   the cell of the player, or -1 if there is no such player.
+     */
+    PushDistances(@NotNull Bitboard floor, @NotNull Bitboard destinations, int playerCell) {
+        final int width = floor.getWidth();
+        this.area = width * floor.getHeight();
+        final Bitboard walkable = playerCell == -1 ? new Bitboard(width, floor.getHeight()) : floor.flood(playerCell);
+
+        this.destinationCells = new int[destinations.cardinality()];
+        for (int i = 0, cell = destinations.nextSetBit(0); cell != -1; cell = destinations.nextSetBit(cell + 1)) {
+            this.destinationCells[i++] = cell;
+        }
+
+        this.distances = new int[this.destinationCells.length * this.area];
+        this.nearest = new int[this.area];
+        Arrays.fill(this.distances, UNREACHABLE);
+        Arrays.fill(this.nearest, UNREACHABLE);
+        final int[] queue = new int[this.area];
+        final int[] offsets = {-width, width, -1, 1};
+        for (int d = 0; d < this.destinationCells.length; ++d) {
+            final int base = d * this.area;
+            int tail = 0;
+            this.distances[base + this.destinationCells[d]] = 0;
+            queue[tail++] = this.destinationCells[d];
+            for (int head = 0; head < tail; ++head) {
+                final int cell = queue[head];
+                for (int offset: offsets) {
+                    // The box came from the neighbour, pushed by the player standing one cell further
+                    final int from = neighbour(walkable, width, cell, offset);
+                    if (from == -1 || this.distances[base + from] != UNREACHABLE
+                        || neighbour(walkable, width, from, offset) == -1) {
+                        continue;
+                    }
+                    this.distances[base + from] = this.distances[base + cell] + 1;
+                    queue[tail++] = from;
+                }
+            }
+            for (int cell = 0; cell < this.area; ++cell) {
+                this.nearest[cell] = Math.min(this.nearest[cell], this.distances[base + cell]);
+            }
+        }
+
+        this.deadSquares = new Bitboard(width, floor.getHeight());
+        for (int cell = floor.nextSetBit(0); cell != -1; cell = floor.nextSetBit(cell + 1)) {
+            if (this.nearest[cell] == UNREACHABLE) {
+                this.deadSquares.set(cell);
+            }
+        }
+    }
+
+    /**
+     * @return the number of box destinations.
+     */
+    public int getDestinationCount() {
+        return this.destinationCells.length;
+    }
+
+    /**
+     * @param destination the index of the destination.
+     * @return the cell of the destination.
+     */
+    public int getDestinationCell(int destination) {
+        return this.destinationCells[destination];
+    }
+
+    /**
+     * @param cell        the cell of a box of the player.
+     * @param destination the index of the destination.
+     * @return the number of pushes to move the box to the destination, or {@link #UNREACHABLE}.
+     */
+    public int get(int cell, int destination) {
+        return this.distances[destination * this.area + cell];
+    }
+
+    /**
+     * @param cell the cell of a box of the player.
+     * @return the number of pushes to move the box to its nearest destination, or {@link #UNREACHABLE}.
+     */
+    public int getNearest(int cell) {
+        return this.nearest[cell];
+    }
+
+    /**
+     * Get the floor cells from which a box of the player can never reach any destination.
+     * The returned bitboard is shared and must not be modified.
+     *
+     * @return a bitboard of dead squares.
+     */
+    public @NotNull @Unmodifiable Bitboard getDeadSquares() {
+        return this.deadSquares;
+    }
+
+    // The neighbour of a cell at the offset if the player can walk there, or -1
+    private static int neighbour(Bitboard walkable, int width, int cell, int offset) {
+        final int next = cell + offset;
+        if (next < 0 || next >= walkable.getWidth() * walkable.getHeight()) {
+            return -1;
+        }
+        // Moving left or right must not wrap to another row
+        if ((offset == -1 || offset == 1) && next / width != cell / width) {
+            return -1;
+        }
+        return walkable.get(next) ? next : -1;
+    }
+}
@@ -0,0 +1,194 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.lang.ref.Cleaner;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An unbounded history of checkpoints that keeps only the most recent ones on the heap.
+ * <p>
+ * Checkpoints pushed out of the in-memory ring buffer are appended to a memory-mapped file owned by this history,
+ * and paged back in one by one once the in-memory ones have been popped.
+ * The file is created on the first spill and deleted when the history is garbage collected or the JVM exits.
+ * <p>
+ * Each record in the file is the encoded checkpoint followed by its length,
+ * so the most recent record can be read backwards from the end of the file.
+ *
+ * @param <T> the type of checkpoints.
+ */
+class SpillingCheckpointHistory<T> extends CheckpointHistory<T> {
+
+    private static final int SEGMENT_SIZE = 1 << 20;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Codec<T> codec;
+    // Memory-mapped segments of the file, each of SEGMENT_SIZE bytes
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private FileChannel channel;
+    // End of the last record in the file
+    private long end;
+    // Number of checkpoints in the file
+    private int spilledCount;
+
+    /**
+     * Create an empty history.
+     *
+     * @param inMemoryCapacity the number of most recent checkpoints kept on the heap.
+     * @param codec            the codec to write checkpoints to and read them from the file.
+     * @throws IllegalArgumentException if inMemoryCapacity is negative.
+     */
+    SpillingCheckpointHistory(int inMemoryCapacity, @NotNull Codec<T> codec) {
+        super(checkCapacity(inMemoryCapacity));
+        this.codec = codec;
+    }
+
+    // A negative capacity would make the ring buffer unbounded, so nothing would ever spill
+    private static int checkCapacity(int inMemoryCapacity) {
+        if (inMemoryCapacity < 0) {
+            throw new IllegalArgumentException("inMemoryCapacity does not accept negative numbers.");
+        }
+        return inMemoryCapacity;
+    }
+
+    @Override
+    @Nullable T pop() {
+        T checkpoint = super.pop();
+        if (checkpoint == null && this.spilledCount > 0) {
+            checkpoint = this.readLast();
+        }
+        return checkpoint;
+    }
+
+    @Override
+    boolean isEmpty() {
+        return super.isEmpty() && this.spilledCount == 0;
+    }
+
+    @Override
+    int size() {
+        return super.size() + this.spilledCount;
+    }
+
+    @Override
+    protected void evict(@NotNull T checkpoint) {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new DataOutputStream(bytes)) {
+            this.codec.write(checkpoint, out);
+            out.writeInt(bytes.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode checkpoint", e);
+        }
+        this.write(bytes.toByteArray());
+        this.spilledCount++;
+    }
+
+    private T readLast() {
+        final var lengthBytes = new byte[Integer.BYTES];
+        this.read(this.end - Integer.BYTES, lengthBytes);
+        final int length = ((lengthBytes[0] & 0xFF) << 24) | ((lengthBytes[1] & 0xFF) << 16)
+            | ((lengthBytes[2] & 0xFF) << 8) | (lengthBytes[3] & 0xFF);
+        final var record = new byte[length];
+        this.end -= Integer.BYTES + length;
+        this.read(this.end, record);
+        this.spilledCount--;
+        try (final var in = new DataInputStream(new ByteArrayInputStream(record))) {
+            return this.codec.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode checkpoint", e);
+        }
+    }
+
+    private void write(byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length) {
+            final var segment = this.segmentAt(this.end);
+            final int position = (int) (this.end % SEGMENT_SIZE);
+            final int length = Math.min(bytes.length - offset, SEGMENT_SIZE - position);
+            segment.put(position, bytes, offset, length);
+            offset += length;
+            this.end += length;
+        }
+    }
+
+    private void read(long from, byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length) {
+            final var segment = this.segments.get((int) (from / SEGMENT_SIZE));
+            final int position = (int) (from % SEGMENT_SIZE);
+            final int length = Math.min(bytes.length - offset, SEGMENT_SIZE - position);
+            segment.get(position, bytes, offset, length);
+            offset += length;
+            from += length;
+        }
+    }
+
+    private MappedByteBuffer segmentAt(long position) {
+        final int index = (int) (position / SEGMENT_SIZE);
+        try {
+            if (this.channel == null) {
+                final var file = Files.createTempFile("sokoban-checkpoints-", ".bin");
+                this.channel = FileChannel.open(
+                    file,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE
+                );
+                CLEANER.register(this, new ChannelCloser(this.channel));
+            }
+            while (this.segments.size() <= index) {
+                final long start = (long) this.segments.size() * SEGMENT_SIZE;
+                this.segments.add(this.channel.map(FileChannel.MapMode.READ_WRITE, start, SEGMENT_SIZE));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map checkpoint file", e);
+        }
+        return this.segments.get(index);
+    }
+
+    /**
+     * Converts checkpoints to and from their representation in the file.
+     *
+     * @param <T> the type of checkpoints.
+     */
+    interface Codec<T> {
+
+        /**
+         * @param checkpoint the checkpoint to encode.
+         * @param out        the output to write the checkpoint to.
+         * @throws IOException if the output cannot be written.
+         */
+        void write(@NotNull T checkpoint, @NotNull DataOutput out) throws IOException;
+
+        /**
+         * @param in the input to read a checkpoint written by {@link #write(Object, DataOutput)} from.
+         * @return the decoded checkpoint.
+         * @throws IOException if the input cannot be read.
+         */
+        @NotNull T read(@NotNull DataInput in) throws IOException;
+    }
+
+    /**
+     * Closes, and thereby deletes, the checkpoint file once the history is unreachable.
+     *
+     * @param channel the channel of the checkpoint file.
+     */
+    private record ChannelCloser(FileChannel channel) implements Runnable {
+        @Override
+        public void run() {
+            try {
+                this.channel.close();
+            } catch (IOException ignored) {
+                // The file is still deleted on exit
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package hk.ust.comp3021.game;
+
+/**
+ * Zobrist keys of players and boxes at cells of a game map.
+ * <p>
+ * The hash of a state is the XOR of the keys of all its players and boxes,
+ * so moving one entity updates it with two XORs.
+ * Boxes of the same player are interchangeable, so their key depends on the owner rather than the box.
+ * Keys are derived from a fixed mixing function instead of a random table,
+ * so they need no memory per map and are the same across sessions and runs.
+ */
+public final class Zobrist {
+
+    private static final int MAX_PLAYERS = 26;
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param playerId the player id.
+     * @param cell     the cell index of the player.
+     * @return the key of the player at the cell.
+     */
+    public static long player(int playerId, int cell) {
+        return mix(((long) playerId << 32) | cell);
+    }
+
+    /**
+     * @param ownerId the id of the player that can move the box.
+     * @param cell    the cell index of the box.
+     * @return the key of a box of the owner at the cell.
+     */
+    public static long box(int ownerId, int cell) {
+        return mix(((long) (MAX_PLAYERS + ownerId) << 32) | cell);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
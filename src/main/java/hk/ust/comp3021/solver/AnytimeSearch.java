@@ -0,0 +1,164 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * An anytime weighted A* search that stops at a deadline or once it holds too many states.
+ * <p>
+ * Nodes are ordered by the number of pushes plus {@value #WEIGHT} times the estimate,
+ * which dives towards a solution much sooner than A* but may find one with more pushes.
+ * The search goes on after the first solution, dropping every node whose estimated total cost
+ * reaches the number of pushes of the best solution so far, so each solution found has fewer pushes than the last.
+ * As the estimate never overestimates, the best solution has the fewest pushes once no node is left.
+ * <p>
+ * Until a solution is found, the expanded node with the lowest estimate is kept, so that a search
+ * stopped early can still tell how close it got.
+ */
+final class AnytimeSearch {
+
+    /**
+     * Weight of the estimate in the order of nodes.
+     */
+    static final int WEIGHT = 2;
+
+    private static final Comparator<Node> BY_WEIGHTED_COST =
+        Comparator.comparingInt((Node node) -> node.pushes() + WEIGHT * node.estimate())
+            .thenComparingInt(Node::estimate);
+
+    private final Board board;
+    private final Heuristic heuristic;
+    private final @Nullable PatternDatabase patterns;
+    private final @Nullable Macros macros;
+    private final TranspositionTable table;
+    private final long deadline;
+    private final long maxStates;
+    private Node goal;
+    private Node closest;
+    private long expanded;
+    private long dropped;
+    private long peakStates;
+    private boolean exhausted;
+
+    /**
+     * @param board     the board to search on.
+     * @param heuristic the heuristic guiding the search.
+     * @param patterns  the pattern databases of the board, or null if there are none.
+     * @param macros    the macro moves to take, or null to push one cell at a time.
+     * @param table     the transposition table.
+     * @param deadline  the value of {@link System#nanoTime()} at which to stop.
+     * @param maxStates the number of states held in the table and open list at which to stop.
+     */
+    AnytimeSearch(
+        @NotNull Board board,
+        @NotNull Heuristic heuristic,
+        @Nullable PatternDatabase patterns,
+        @Nullable Macros macros,
+        @NotNull TranspositionTable table,
+        long deadline,
+        long maxStates
+    ) {
+        this.board = board;
+        this.heuristic = heuristic;
+        this.patterns = patterns;
+        this.macros = macros;
+        this.table = table;
+        this.deadline = deadline;
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Search from the initial node until the budget runs out or no node is left.
+     *
+     * @param initial the initial node.
+     */
+    void run(@NotNull Node initial) {
+        final var expander = new Expander(this.board, true, this.macros);
+        final var estimator = Estimator.create(this.board, this.heuristic, this.patterns);
+        final var open = new PriorityQueue<>(BY_WEIGHTED_COST);
+        this.table.offer(initial);
+        open.add(initial);
+        this.closest = initial;
+        while (!open.isEmpty()) {
+            final long held = this.table.size() + open.size();
+            this.peakStates = Math.max(this.peakStates, held);
+            if (System.nanoTime() - this.deadline >= 0 || held > this.maxStates) {
+                return;
+            }
+            final Node node = open.poll();
+            if (this.goal != null && node.cost() >= this.goal.pushes() || this.table.isSuperseded(node)) {
+                continue;
+            }
+            if (node.estimate() == 0) {
+                this.goal = node;
+                continue;
+            }
+            if (!this.table.markExpanded(node)) {
+                this.dropped++;
+                continue;
+            }
+            this.expanded++;
+            if (node.estimate() < this.closest.estimate()) {
+                this.closest = node;
+            }
+            estimator.load(node.state().boxes);
+            expander.expand(node.state(), (next, step) -> {
+                final int pushes = node.pushes() + step.pushes();
+                final int estimate = estimator.afterStep(node, step);
+                if (estimate == Board.UNREACHABLE || this.goal != null && pushes + estimate >= this.goal.pushes()) {
+                    return;
+                }
+                final var child = node.child(next, step, estimate);
+                if (this.table.offer(child)) {
+                    open.add(child);
+                }
+            });
+        }
+        this.exhausted = true;
+    }
+
+    /**
+     * @return the goal node of the solution with the fewest pushes found, or null if none was found.
+     */
+    @Nullable Node goal() {
+        return this.goal;
+    }
+
+    /**
+     * @return the expanded node with the lowest estimate.
+     */
+    @NotNull Node closest() {
+        return this.closest;
+    }
+
+    /**
+     * @return the number of nodes expanded.
+     */
+    long expanded() {
+        return this.expanded;
+    }
+
+    /**
+     * @return the number of nodes given up on, because the transposition table had no room to record them.
+     */
+    long dropped() {
+        return this.dropped;
+    }
+
+    /**
+     * @return the largest number of states held in the table and open list at once.
+     */
+    long peakStates() {
+        return this.peakStates;
+    }
+
+    /**
+     * @return true if the search ended because no node was left rather than because the budget ran out.
+     */
+    boolean isExhausted() {
+        return this.exhausted;
+    }
+}
@@ -0,0 +1,407 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A bidirectional A* that searches forwards from the initial state by pushes, and backwards from solved states
+ * by pulls, until the two searches meet.
+ * <p>
+ * The backward search starts from every solved state: each way to share the destinations among the boxes of the
+ * players, with each player anywhere it can stand, see {@link #MAX_SEEDS}. A player only pulls its own boxes,
+ * the reverse of {@link Expander}. Its estimate is a minimum-cost matching of boxes to the cells boxes of the same
+ * owner started from, by the fewest pushes to bring a box from the initial cell to the cell of the box,
+ * so boxes are never pulled where no initial box of their owner could be pushed.
+ * The estimates of both directions never decrease by more than the push taken, so the nodes expanded in either
+ * direction were reached with the fewest pushes.
+ * <p>
+ * Each direction records the states it reaches in its own table, and each state reached is looked up in the table of
+ * the other direction, which gives a solution through the state. The search expands the direction with fewer open
+ * nodes, and stops once no open node of either direction can lead to a solution with fewer pushes than the best one
+ * found, which therefore has as few pushes as the result of the forward search alone.
+ * Steps recorded by the backward search lead from each state to the state it was reached from,
+ * so the steps of a solution are read forwards from the meeting state.
+ * <p>
+ * A search must not be used by several threads at the same time.
+ */
+final class BidirectionalSearch {
+
+    /**
+     * The number of solved states above which the backward search starts from only some of them.
+     * It is then no longer a bound on the pushes of a solution, and the search stops as the forward search would.
+     */
+    static final int MAX_SEEDS = 1 << 12;
+
+    private final Board board;
+    private final Heuristic heuristic;
+    private final @Nullable PatternDatabase patterns;
+    private final Expander expander;
+    private final HashTranspositionTable forward = new HashTranspositionTable();
+    private final HashTranspositionTable backward = new HashTranspositionTable();
+    // Fewest pushes from the initial cell of each box to each cell, UNREACHABLE if there is no way
+    private final int[][] fromStart;
+    // Index of the owner of each box
+    private final int[] owner;
+    // Cells each player index can ever stand on
+    private final boolean[][] walkable;
+    private final List<SearchState> seeds = new ArrayList<>();
+    private boolean seedsComplete = true;
+    private SearchState meeting;
+    private int bestPushes = Board.UNREACHABLE;
+    private long expanded;
+
+    /**
+     * @param board     the board to search on.
+     * @param heuristic the heuristic guiding the forward search.
+     * @param patterns  the pattern databases of the board, or null if there are none.
+     * @param expander  the expander of the board.
+     * @param players   the cell of each player index in the initial state.
+     * @param boxes     the cells of boxes in the initial state, grouped by owner.
+     */
+    BidirectionalSearch(
+        @NotNull Board board,
+        @NotNull Heuristic heuristic,
+        @Nullable PatternDatabase patterns,
+        @NotNull Expander expander,
+        int @NotNull [] players,
+        int @NotNull [] boxes
+    ) {
+        this.board = board;
+        this.heuristic = heuristic;
+        this.patterns = patterns;
+        this.expander = expander;
+        this.walkable = new boolean[board.playerCount()][];
+        this.fromStart = new int[board.boxCount()][];
+        this.owner = new int[board.boxCount()];
+        for (int k = 0; k < board.playerCount(); ++k) {
+            this.walkable[k] = this.floodFloor(players[k]);
+            for (int b = board.boxStart[k]; b < board.boxStart[k + 1]; ++b) {
+                this.owner[b] = k;
+                this.fromStart[b] = this.pushDistancesFrom(k, boxes[b]);
+            }
+        }
+    }
+
+    /**
+     * Search from the initial node until the best solution is found or the search space is exhausted.
+     *
+     * @param initial the initial node of the forward search.
+     * @return the steps of the solution with the fewest pushes, or null if there is no solution.
+     */
+    @Nullable List<Step> run(@NotNull Node initial) {
+        final var forwardOpen = new PriorityQueue<>(Solver.BY_COST);
+        final var backwardOpen = new PriorityQueue<>(Solver.BY_COST);
+        final var estimator = Estimator.create(this.board, this.heuristic, this.patterns);
+        final var backwardEstimator = new MatchingEstimator(
+            this.board,
+            (k, cell, b) -> this.owner[b] == k ? this.fromStart[b][cell] : Board.UNREACHABLE
+        );
+        this.forward.offer(initial);
+        forwardOpen.add(initial);
+        if (initial.estimate() == 0) {
+            this.meet(initial.state(), initial.pushes());
+        }
+        this.seed();
+        for (SearchState seed: this.seeds) {
+            final int estimate = backwardEstimator.load(seed.boxes);
+            final var node = new Node(seed, null, null, 0, estimate);
+            if (estimate != Board.UNREACHABLE && this.backward.offer(node)) {
+                backwardOpen.add(node);
+                this.meetForward(seed, 0);
+            }
+        }
+
+        while (true) {
+            final Node nextForward = poll(forwardOpen, this.forward, false);
+            final Node nextBackward = poll(backwardOpen, this.backward, false);
+            if (nextForward == null || this.seedsComplete && nextBackward == null) {
+                // Every state on a path to a solution has been reached
+                break;
+            }
+            int bound = nextForward.cost();
+            if (this.seedsComplete) {
+                bound = Math.max(bound, nextBackward.cost());
+            }
+            if (this.bestPushes <= bound) {
+                break;
+            }
+            if (nextBackward == null || forwardOpen.size() <= backwardOpen.size()) {
+                this.expandForward(poll(forwardOpen, this.forward, true), estimator, forwardOpen);
+            } else {
+                this.expandBackward(poll(backwardOpen, this.backward, true), backwardEstimator, backwardOpen);
+            }
+        }
+        return this.meeting == null ? null : this.path();
+    }
+
+    /**
+     * @return the number of nodes expanded in both directions.
+     */
+    long expanded() {
+        return this.expanded;
+    }
+
+    private void expandForward(Node node, Estimator estimator, PriorityQueue<Node> open) {
+        this.expanded++;
+        estimator.load(node.state().boxes);
+        this.expander.expand(node.state(), (next, step) -> {
+            final int pushes = node.pushes() + step.pushes();
+            final int estimate = estimator.afterStep(node, step);
+            if (estimate == Board.UNREACHABLE || pushes + estimate >= this.bestPushes) {
+                return;
+            }
+            final var child = node.child(next, step, estimate);
+            if (!this.forward.offer(child)) {
+                return;
+            }
+            if (estimate == 0) {
+                this.meet(next, pushes);
+            } else {
+                open.add(child);
+                this.meetBackward(next, pushes);
+            }
+        });
+    }
+
+    private void expandBackward(Node node, MatchingEstimator estimator, PriorityQueue<Node> open) {
+        this.expanded++;
+        estimator.load(node.state().boxes);
+        this.expander.expandReverse(node.state(), (previous, step) -> {
+            int pushes = node.pushes();
+            int estimate = node.estimate();
+            // The push is the step from the pulled state back to the state the pull was taken from
+            if (step instanceof Step.Push push) {
+                pushes++;
+                estimate = estimator.afterMove(push.player(), this.board.neighbour(push.box(), push.direction()), push.box());
+            }
+            if (estimate == Board.UNREACHABLE || pushes + estimate >= this.bestPushes) {
+                return;
+            }
+            final var child = node.child(previous, step, estimate);
+            if (this.backward.offer(child)) {
+                open.add(child);
+                this.meetForward(previous, pushes);
+            }
+        });
+    }
+
+    // Record a solution through a state reached forwards, if the backward search reached it too
+    private void meetBackward(SearchState state, int pushes) {
+        final var entry = this.backward.get(state);
+        if (entry != null) {
+            this.meet(state, pushes + entry.pushes());
+        }
+    }
+
+    // Record a solution through a state reached backwards, if the forward search reached it too
+    private void meetForward(SearchState state, int pushes) {
+        final var entry = this.forward.get(state);
+        if (entry != null) {
+            this.meet(state, pushes + entry.pushes());
+        }
+    }
+
+    private void meet(SearchState state, int pushes) {
+        if (pushes < this.bestPushes) {
+            this.bestPushes = pushes;
+            this.meeting = state;
+        }
+    }
+
+    // The best open node that is not superseded, removed from the open list if remove, or null if there is none
+    private static Node poll(PriorityQueue<Node> open, HashTranspositionTable table, boolean remove) {
+        while (!open.isEmpty() && table.isSuperseded(open.peek())) {
+            open.poll();
+        }
+        return remove ? open.poll() : open.peek();
+    }
+
+    // The steps to the meeting state, followed by the steps recorded backwards from it up to a solved state
+    private List<Step> path() {
+        final var entry = this.forward.get(this.meeting);
+        assert entry != null;
+        final var steps = new ArrayList<>(
+            this.forward.path(new Node(this.meeting, entry.parent(), entry.step(), entry.pushes(), 0))
+        );
+        SearchState state = this.meeting;
+        TranspositionTable.Entry next = this.backward.get(state);
+        while (next != null && next.step() != null && !this.isSolved(state)) {
+            final SearchState parent = next.parent();
+            assert parent != null;
+            steps.add(next.step());
+            // A player sharing its area ends a push next to the box, but may have pulled it from elsewhere
+            if (next.step() instanceof Step.Push push && !this.expander.apply(state, push).equals(parent)) {
+                steps.add(new Step.Walk(push.player(), parent.players[push.player()]));
+            }
+            state = parent;
+            next = this.backward.get(state);
+        }
+        return steps;
+    }
+
+    private boolean isSolved(SearchState state) {
+        for (int box: state.boxes) {
+            if (!this.board.isDestination(box)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Cells reachable from a cell through floor, ignoring boxes and players
+    private boolean[] floodFloor(int start) {
+        final boolean[] reached = new boolean[this.board.area];
+        final int[] queue = new int[this.board.area];
+        int tail = 0;
+        reached[start] = true;
+        queue[tail++] = start;
+        for (int head = 0; head < tail; ++head) {
+            for (Direction direction: Direction.ALL) {
+                final int next = this.board.neighbour(queue[head], direction);
+                if (next != Board.NONE && !reached[next]) {
+                    reached[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return reached;
+    }
+
+    // Fewest pushes by player k of a box from a cell to each cell, ignoring other boxes and players
+    private int[] pushDistancesFrom(int k, int start) {
+        final int[] distances = new int[this.board.area];
+        Arrays.fill(distances, Board.UNREACHABLE);
+        final int[] queue = new int[this.board.area];
+        int tail = 0;
+        distances[start] = 0;
+        queue[tail++] = start;
+        for (int head = 0; head < tail; ++head) {
+            final int cell = queue[head];
+            for (Direction direction: Direction.ALL) {
+                final int behind = this.board.neighbour(cell, direction.opposite());
+                final int to = this.board.neighbour(cell, direction);
+                if (behind != Board.NONE && this.walkable[k][behind] && to != Board.NONE && this.walkable[k][to]
+                    && distances[to] == Board.UNREACHABLE) {
+                    distances[to] = distances[cell] + 1;
+                    queue[tail++] = to;
+                }
+            }
+        }
+        return distances;
+    }
+
+    // Collect the solved states into seeds, as many as MAX_SEEDS
+    private void seed() {
+        final int[] destinations = new int[this.board.boxCount()];
+        for (int cell = 0, d = 0; cell < this.board.area && d < destinations.length; ++cell) {
+            if (this.board.isDestination(cell)) {
+                destinations[d++] = cell;
+            }
+        }
+        final int[] next = Arrays.copyOf(this.board.boxStart, this.board.playerCount());
+        this.seedBoxes(destinations, 0, next, new int[this.board.boxCount()]);
+    }
+
+    // Share the destinations from index d on among the players with boxes left to place
+    private void seedBoxes(int[] destinations, int d, int[] next, int[] boxes) {
+        if (!this.seedsComplete) {
+            return;
+        }
+        if (d == destinations.length) {
+            this.seedPlayers(boxes);
+            return;
+        }
+        for (int k = 0; k < this.board.playerCount(); ++k) {
+            if (next[k] < this.board.boxStart[k + 1]) {
+                boxes[next[k]++] = destinations[d];
+                this.seedBoxes(destinations, d + 1, next, boxes);
+                next[k]--;
+            }
+        }
+    }
+
+    // Place the players in every way around a layout of boxes on destinations
+    private void seedPlayers(int[] boxes) {
+        // Areas of free floor, each listing its cells in ascending order
+        final int[] area = new int[this.board.area];
+        Arrays.fill(area, -1);
+        for (int box: boxes) {
+            area[box] = Integer.MAX_VALUE;
+        }
+        final var areas = new ArrayList<int[]>();
+        final int[] queue = new int[this.board.area];
+        for (int cell = 0; cell < this.board.area; ++cell) {
+            if (area[cell] != -1 || !this.board.isFloor(cell)) {
+                continue;
+            }
+            int tail = 0;
+            area[cell] = areas.size();
+            queue[tail++] = cell;
+            for (int head = 0; head < tail; ++head) {
+                for (Direction direction: Direction.ALL) {
+                    final int neighbour = this.board.neighbour(queue[head], direction);
+                    if (neighbour != Board.NONE && area[neighbour] == -1) {
+                        area[neighbour] = areas.size();
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+            final int[] cells = Arrays.copyOf(queue, tail);
+            Arrays.sort(cells);
+            areas.add(cells);
+        }
+        this.seedAreas(boxes, areas, 0, new int[this.board.playerCount()]);
+    }
+
+    // Choose the area of each player from index k on
+    private void seedAreas(int[] boxes, List<int[]> areas, int k, int[] areaOf) {
+        if (!this.seedsComplete) {
+            return;
+        }
+        if (k == areaOf.length) {
+            final int[] sharing = new int[areas.size()];
+            for (int a: areaOf) {
+                sharing[a]++;
+            }
+            this.seedCells(boxes, areas, areaOf, sharing, 0, new int[areaOf.length]);
+            return;
+        }
+        for (int a = 0; a < areas.size(); ++a) {
+            if (this.walkable[k][areas.get(a)[0]]) {
+                areaOf[k] = a;
+                this.seedAreas(boxes, areas, k + 1, areaOf);
+            }
+        }
+    }
+
+    // Choose the cell of each player from index k on: the first cell of its area if it is alone there, else any
+    private void seedCells(int[] boxes, List<int[]> areas, int[] areaOf, int[] sharing, int k, int[] players) {
+        if (!this.seedsComplete) {
+            return;
+        }
+        if (k == players.length) {
+            if (this.seeds.size() == MAX_SEEDS) {
+                this.seedsComplete = false;
+                return;
+            }
+            this.seeds.add(this.expander.initial(players.clone(), boxes.clone()));
+            return;
+        }
+        final int[] cells = areas.get(areaOf[k]);
+        for (int i = 0; i < (sharing[areaOf[k]] == 1 ? 1 : cells.length); ++i) {
+            boolean taken = false;
+            for (int j = 0; j < k && !taken; ++j) {
+                taken = players[j] == cells[i];
+            }
+            if (!taken) {
+                players[k] = cells[i];
+                this.seedCells(boxes, areas, areaOf, sharing, k + 1, players);
+            }
+        }
+    }
+}
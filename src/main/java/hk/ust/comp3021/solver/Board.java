@@ -0,0 +1,272 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Player;
+import hk.ust.comp3021.game.Bitboard;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.game.PushDistances;
+import hk.ust.comp3021.game.Zobrist;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The parts of a game map the solver needs, precomputed once per map.
+ * <p>
+ * Cells are indexed by {@code y * width + x}, the same as in {@link GameState}.
+ * Players are indexed by the ascending order of their ids,
+ * and boxes are grouped by the index of their owner, so that the boxes of player {@code k}
+ * are at indices {@code [boxStart[k], boxStart[k + 1])} of {@link SearchState#boxes}.
+ */
+final class Board {
+
+    /**
+     * Marks a missing cell, e.g., the neighbour of a cell next to a wall.
+     */
+    static final int NONE = -1;
+
+    /**
+     * Push distance of cells from which a box can never reach a destination.
+     */
+    static final int UNREACHABLE = PushDistances.UNREACHABLE;
+
+    final int width;
+    final int height;
+    final int area;
+    // Neighbour of each cell in each direction at index cell * 4 + direction, NONE if it is not floor
+    private final int[] neighbours;
+    private final boolean[] floor;
+    private final boolean[] destination;
+    // Push distances of the boxes of each player index, shared with the game map
+    private final PushDistances[] pushDistances;
+    // Player id of each player index
+    final int[] playerIds;
+    // Start of the boxes of each player index, with an extra entry for the total number of boxes
+    final int[] boxStart;
+    // Image of each floor cell under each symmetry of the map other than the identity, see findSymmetries
+    final int[][] symmetries;
+
+    /**
+     * @param gameMap the game map to solve.
+     */
+    Board(@NotNull GameMap gameMap) {
+        this.width = gameMap.getMaxWidth();
+        this.height = gameMap.getMaxHeight();
+        this.area = this.width * this.height;
+
+        final Bitboard floorBitboard = gameMap.getFloorBitboard();
+        final Bitboard destinationsBitboard = gameMap.getDestinationsBitboard();
+        this.floor = new boolean[this.area];
+        this.destination = new boolean[this.area];
+        for (int cell = 0; cell < this.area; ++cell) {
+            this.floor[cell] = floorBitboard.get(cell);
+            this.destination[cell] = destinationsBitboard.get(cell);
+        }
+
+        this.neighbours = new int[this.area * Direction.ALL.length];
+        for (int y = 0; y < this.height; ++y) {
+            for (int x = 0; x < this.width; ++x) {
+                for (Direction direction: Direction.ALL) {
+                    final int nx = x + direction.dx;
+                    final int ny = y + direction.dy;
+                    final boolean inside = nx >= 0 && nx < this.width && ny >= 0 && ny < this.height;
+                    final int neighbour = ny * this.width + nx;
+                    this.neighbours[(y * this.width + x) * Direction.ALL.length + direction.ordinal()] =
+                        inside && this.floor[neighbour] ? neighbour : NONE;
+                }
+            }
+        }
+
+        this.playerIds = gameMap.getPlayerIds().stream().mapToInt(Integer::intValue).sorted().toArray();
+        this.boxStart = new int[this.playerIds.length + 1];
+        for (int k = 0; k < this.playerIds.length; ++k) {
+            this.boxStart[k + 1] = this.boxStart[k] + gameMap.getInitialBoxesBitboard(this.playerIds[k]).cardinality();
+        }
+
+        this.pushDistances = new PushDistances[this.playerIds.length];
+        for (int k = 0; k < this.playerIds.length; ++k) {
+            this.pushDistances[k] = gameMap.getPushDistances(this.playerIds[k]);
+        }
+        this.symmetries = this.findSymmetries();
+    }
+
+    /**
+     * @param cell      the cell index.
+     * @param direction the direction.
+     * @return the floor cell next to the cell in the direction, or {@link #NONE} if there is none.
+     */
+    int neighbour(int cell, @NotNull Direction direction) {
+        return this.neighbours[cell * Direction.ALL.length + direction.ordinal()];
+    }
+
+    /**
+     * @param cell the cell index.
+     * @return true if the cell is neither a wall nor outside the map.
+     */
+    boolean isFloor(int cell) {
+        return this.floor[cell];
+    }
+
+    /**
+     * @param cell the cell index.
+     * @return true if the cell is a box destination.
+     */
+    boolean isDestination(int cell) {
+        return this.destination[cell];
+    }
+
+    /**
+     * @param k    the player index.
+     * @param cell the cell index.
+     * @return true if a box of the player pushed onto the cell can never reach a destination.
+     */
+    boolean isDead(int k, int cell) {
+        return this.pushDistances[k].getNearest(cell) == UNREACHABLE;
+    }
+
+    /**
+     * @param k the player index.
+     * @return the push distances of the boxes of the player.
+     */
+    @NotNull PushDistances pushDistances(int k) {
+        return this.pushDistances[k];
+    }
+
+    /**
+     * @return the number of players.
+     */
+    int playerCount() {
+        return this.playerIds.length;
+    }
+
+    /**
+     * @return the number of boxes.
+     */
+    int boxCount() {
+        return this.boxStart[this.playerIds.length];
+    }
+
+    /**
+     * @param players cell of each player index.
+     * @param boxes   cells of boxes grouped by owner.
+     * @return the Zobrist hash of the layout, the same as {@link GameState#getZobristHash()} of the same layout.
+     */
+    long hash(int @NotNull [] players, int @NotNull [] boxes) {
+        long hash = 0;
+        for (int k = 0; k < players.length; ++k) {
+            hash ^= Zobrist.player(this.playerIds[k], players[k]);
+            for (int b = this.boxStart[k]; b < this.boxStart[k + 1]; ++b) {
+                hash ^= Zobrist.box(this.playerIds[k], boxes[b]);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Read the locations of players and boxes from a game state of this map.
+     *
+     * @param gameState the game state.
+     * @param players   receives the cell of each player index.
+     * @param boxes     receives the cells of boxes grouped by owner, ascending within each group.
+     */
+    void read(@NotNull GameState gameState, int @NotNull [] players, int @NotNull [] boxes) {
+        final int[] next = Arrays.copyOf(this.boxStart, this.playerIds.length);
+        for (int cell = 0; cell < this.area; ++cell) {
+            if (!this.floor[cell]) {
+                continue;
+            }
+            switch (gameState.getEntity(Position.of(cell % this.width, cell / this.width))) {
+                case Player player -> players[this.indexOf(player.getId())] = cell;
+                case Box box -> {
+                    final int k = this.indexOf(box.getPlayerId());
+                    boxes[next[k]++] = cell;
+                }
+                case null, default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * @param playerId the player id.
+     * @return the index of the player.
+     */
+    int indexOf(int playerId) {
+        final int k = Arrays.binarySearch(this.playerIds, playerId);
+        if (k < 0) {
+            throw new IllegalArgumentException("Player " + playerId + " is not in the game map.");
+        }
+        return k;
+    }
+
+    /**
+     * Find the symmetries of the map apart from players and boxes, i.e., those mapping the bounding rectangle of the
+     * floor onto itself, floor onto floor and destinations onto destinations, such that the push distances of every
+     * player are the same from the image of each cell to the image of each destination.
+     * Mapping the players and boxes of a state by such a symmetry gives a state with the same solutions up to the
+     * symmetry, so only one of them needs to be searched.
+     *
+     * @return the image of each cell under each symmetry other than the identity, {@link #NONE} off the floor.
+     */
+    private int[][] findSymmetries() {
+        int minX = this.width;
+        int minY = this.height;
+        int maxX = -1;
+        int maxY = -1;
+        for (int cell = 0; cell < this.area; ++cell) {
+            if (this.floor[cell]) {
+                minX = Math.min(minX, cell % this.width);
+                minY = Math.min(minY, cell / this.width);
+                maxX = Math.max(maxX, cell % this.width);
+                maxY = Math.max(maxY, cell / this.width);
+            }
+        }
+        final int boundWidth = maxX - minX + 1;
+        final int boundHeight = maxY - minY + 1;
+        // Index of each destination, in the ascending order of cells as in PushDistances
+        final int[] destinationIndex = new int[this.area];
+        for (int cell = 0, d = 0; cell < this.area; ++cell) {
+            destinationIndex[cell] = this.destination[cell] ? d++ : NONE;
+        }
+
+        final var symmetries = new ArrayList<int[]>();
+        for (Symmetry symmetry: Symmetry.ALL) {
+            if (symmetry == Symmetry.IDENTITY || maxX < 0 || symmetry.swapsAxes() && boundWidth != boundHeight) {
+                continue;
+            }
+            final int[] image = new int[this.area];
+            Arrays.fill(image, NONE);
+            boolean symmetric = true;
+            for (int cell = 0; cell < this.area && symmetric; ++cell) {
+                if (!this.floor[cell]) {
+                    continue;
+                }
+                final int x = cell % this.width - minX;
+                final int y = cell / this.width - minY;
+                image[cell] = (minY + symmetry.y(x, y, boundWidth, boundHeight)) * this.width
+                    + minX + symmetry.x(x, y, boundWidth, boundHeight);
+                symmetric = this.floor[image[cell]] && this.destination[image[cell]] == this.destination[cell];
+            }
+            for (int k = 0; k < this.playerIds.length && symmetric; ++k) {
+                for (int cell = 0; cell < this.area && symmetric; ++cell) {
+                    if (!this.destination[cell]) {
+                        continue;
+                    }
+                    final int d = destinationIndex[cell];
+                    final int imageD = destinationIndex[image[cell]];
+                    for (int from = 0; from < this.area && symmetric; ++from) {
+                        symmetric = !this.floor[from]
+                            || this.pushDistances[k].get(from, d) == this.pushDistances[k].get(image[from], imageD);
+                    }
+                }
+            }
+            if (symmetric) {
+                symmetries.add(image);
+            }
+        }
+        return symmetries.toArray(int[][]::new);
+    }
+}
@@ -0,0 +1,58 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The four directions a player can move in.
+ * Opposite directions differ only in the lowest bit of their ordinal.
+ */
+enum Direction {
+    UP(0, -1),
+    DOWN(0, 1),
+    LEFT(-1, 0),
+    RIGHT(1, 0);
+
+    static final Direction[] ALL = values();
+
+    final int dx;
+    final int dy;
+
+    Direction(int dx, int dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * @param move a move action.
+     * @return the direction of the move.
+     */
+    static @NotNull Direction of(@NotNull Move move) {
+        return switch (move) {
+            case Move.Up up -> UP;
+            case Move.Down down -> DOWN;
+            case Move.Left left -> LEFT;
+            case Move.Right right -> RIGHT;
+        };
+    }
+
+    /**
+     * @return the opposite direction.
+     */
+    @NotNull Direction opposite() {
+        return ALL[this.ordinal() ^ 1];
+    }
+
+    /**
+     * @param playerId the id of the player to move.
+     * @return the move action of the player in this direction.
+     */
+    @NotNull Move toMove(int playerId) {
+        return switch (this) {
+            case UP -> new Move.Up(playerId);
+            case DOWN -> new Move.Down(playerId);
+            case LEFT -> new Move.Left(playerId);
+            case RIGHT -> new Move.Right(playerId);
+        };
+    }
+}
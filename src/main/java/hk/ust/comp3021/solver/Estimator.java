@@ -0,0 +1,93 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Computes the {@link Heuristic} of search states.
+ * An estimate never exceeds the actual number of pushes left, and is 0 exactly when every box is on a destination.
+ * <p>
+ * An estimator keeps what it computed for the state being expanded,
+ * so that the estimate of each successor, which differs from it by at most one push, is cheap to compute.
+ * It keeps scratch buffers, so it must not be shared between threads.
+ */
+interface Estimator {
+
+    /**
+     * Create an estimator of a heuristic other than {@link Heuristic#PATTERN_DATABASE}, which needs the databases.
+     *
+     * @param board     the board to search on.
+     * @param heuristic the heuristic to compute.
+     * @return the estimator.
+     */
+    static @NotNull Estimator create(@NotNull Board board, @NotNull Heuristic heuristic) {
+        return create(board, heuristic, null);
+    }
+
+    /**
+     * Create an estimator.
+     * Without pattern databases, or with none built for the board, {@link Heuristic#PATTERN_DATABASE} is estimated
+     * as {@link Heuristic#MIN_COST_MATCHING}, which it is never lower than.
+     *
+     * @param board     the board to search on.
+     * @param heuristic the heuristic to compute.
+     * @param patterns  the pattern databases of the board, or null if there are none.
+     * @return the estimator.
+     */
+    static @NotNull Estimator create(
+        @NotNull Board board,
+        @NotNull Heuristic heuristic,
+        @Nullable PatternDatabase patterns
+    ) {
+        return switch (heuristic) {
+            case NEAREST_DESTINATION -> new NearestDestinationEstimator(board);
+            case MIN_COST_MATCHING -> new MatchingEstimator(board);
+            case PATTERN_DATABASE -> patterns == null || patterns.groupCount() == 0
+                ? new MatchingEstimator(board)
+                : new PatternDatabaseEstimator(board, patterns);
+        };
+    }
+
+    /**
+     * Compute the estimate of a state from scratch, and keep it as the state successors are estimated from.
+     *
+     * @param boxes cells of boxes grouped by owner.
+     * @return the estimate, or {@link Board#UNREACHABLE} if the boxes can never all reach destinations.
+     */
+    int load(int @NotNull [] boxes);
+
+    /**
+     * Compute the estimate of the state after a push from the loaded state, which stays loaded.
+     *
+     * @param push the push.
+     * @return the estimate, or {@link Board#UNREACHABLE} if the boxes can never all reach destinations.
+     */
+    int afterPush(@NotNull Step.Push push);
+
+    /**
+     * Compute the estimate of the state after a box of the loaded state moved, e.g., by a macro move,
+     * which stays loaded.
+     *
+     * @param k    the index of the owner of the box.
+     * @param from the cell of the box in the loaded state.
+     * @param to   the cell the box moved to.
+     * @return the estimate, or {@link Board#UNREACHABLE} if the boxes can never all reach destinations.
+     */
+    int afterMove(int k, int from, int to);
+
+    /**
+     * Compute the estimate of a successor of a node whose state is loaded.
+     * Walks do not move boxes, so only pushes and macro moves change the estimate.
+     *
+     * @param node the node whose state is loaded.
+     * @param step the step from the node to the successor.
+     * @return the estimate, or {@link Board#UNREACHABLE} if the boxes can never all reach destinations.
+     */
+    default int afterStep(@NotNull Node node, @NotNull Step step) {
+        return switch (step) {
+            case Step.Push push -> this.afterPush(push);
+            case Step.Macro macro -> this.afterMove(macro.player(), macro.box(), macro.to());
+            case Step.Walk walk -> node.estimate();
+        };
+    }
+}
@@ -0,0 +1,758 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.utils.ShouldNotReachException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Generates the successors of search states.
+ * <p>
+ * A player can push one of its own boxes from any cell it can walk to without passing through boxes or other players,
+ * so the successors of a state are mostly pushes.
+ * A player that is alone in its area of the map is moved to the first cell of the area, see {@link SearchState}.
+ * Another player may still push a box into its area, and the player could stand in any part of the rest of the area
+ * the box leaves, so a successor is generated for each part.
+ * Players sharing an area keep their exact cells, since they may stand in each other's way,
+ * and each of them may also walk to any cell it can reach without pushing.
+ * For a search backwards from solved states, {@link #expandReverse(SearchState, BiConsumer)} generates the
+ * predecessors of states instead, by pulling boxes, see {@link BidirectionalSearch}.
+ * <p>
+ * On a map with symmetries, see {@link Board#symmetries}, each successor is replaced by its canonical image,
+ * the least of its images under the symmetries, so that a transposition table records symmetric states once.
+ * The steps of a path then lead to the canonical images, see {@link #unfold(SearchState, List)}.
+ * <p>
+ * With {@link Macros}, a push that starts a macro move is followed through to its end,
+ * and its successor is generated with a {@link Step.Macro} instead of a {@link Step.Push}.
+ * <p>
+ * An expander keeps scratch buffers for flood fills, so it must not be shared between threads.
+ */
+final class Expander {
+
+    private static final int FREE = -1;
+    // Occupant of a cell holding a box of player index k is BOX - k
+    private static final int BOX = -2;
+
+    private final Board board;
+    // Occupant of each cell of the state being expanded: FREE, a player index, or BOX - owner index
+    private final int[] occupant;
+    // Cells reached by the last flood fill are marked with the current stamp
+    private final int[] mark;
+    private int stamp;
+    // Cells reached by the last flood fill in the order they were reached
+    private final int[] queue;
+    // Pushes found for the player being expanded, as pairs of box index and direction
+    private final int[] pushes;
+    // Whether each player of the state being expanded is alone in its area
+    private final boolean[] alone;
+    // Symmetries successors are reduced by, none if successors are not replaced by their canonical images
+    private final int[][] symmetries;
+    private final boolean reduceSymmetry;
+    private final @Nullable Macros macros;
+    // Successors of the state being expanded and the steps to them, kept until it is unloaded
+    private final List<SearchState> successors = new ArrayList<>();
+    private final List<Step> successorSteps = new ArrayList<>();
+    // The least image found by the last call of leastSymmetry
+    private SearchState leastImage;
+    // Cell of the box after the pushes followed by the last call of follow, and their number
+    private int followedTo;
+    private int followedPushes;
+
+    /**
+     * Create an expander that replaces successors by their canonical images if the board has symmetries.
+     *
+     * @param board the board to search on.
+     */
+    Expander(@NotNull Board board) {
+        this(board, true, null);
+    }
+
+    /**
+     * @param board          the board to search on.
+     * @param reduceSymmetry whether to replace successors by their canonical images.
+     * @param macros         the macro moves to take, or null to push one cell at a time.
+     *                       Only symmetries that keep the macro moves are then reduced, see {@link Macros#symmetries}.
+     */
+    Expander(@NotNull Board board, boolean reduceSymmetry, @Nullable Macros macros) {
+        this.board = board;
+        this.macros = macros;
+        this.symmetries = !reduceSymmetry ? new int[0][] : macros != null ? macros.symmetries : board.symmetries;
+        this.reduceSymmetry = this.symmetries.length > 0;
+        this.occupant = new int[board.area];
+        this.mark = new int[board.area];
+        this.queue = new int[board.area];
+        this.pushes = new int[board.boxCount() * Direction.ALL.length * 2];
+        this.alone = new boolean[board.playerCount()];
+        Arrays.fill(this.occupant, FREE);
+    }
+
+    /**
+     * Create the search state of a layout.
+     *
+     * @param players cell of each player index, moved to the first cell of its area if the player is alone in it.
+     * @param boxes   cells of boxes grouped by owner, ascending within each group.
+     * @return the search state.
+     */
+    @NotNull SearchState initial(int @NotNull [] players, int @NotNull [] boxes) {
+        final int[] cells = players.clone();
+        this.load(cells, boxes);
+        this.normalize(players);
+        this.unload(cells, boxes);
+        return new SearchState(players, boxes, this.board.hash(players, boxes));
+    }
+
+    /**
+     * Generate all successors of a state.
+     *
+     * @param state the state to expand.
+     * @param sink  receives each successor and the step leading to it.
+     */
+    void expand(@NotNull SearchState state, @NotNull BiConsumer<SearchState, Step> sink) {
+        // Finding canonical images needs the occupants of each image, so successors wait until the state is unloaded
+        final BiConsumer<SearchState, Step> generate = !this.reduceSymmetry ? sink : (next, step) -> {
+            this.successors.add(next);
+            this.successorSteps.add(step);
+        };
+        this.load(state.players, state.boxes);
+        for (int k = 0; k < state.players.length; ++k) {
+            this.alone[k] = state.players.length > 1 && this.countMates(k, state.players[k]) == 0;
+        }
+        for (int k = 0; k < state.players.length; ++k) {
+            this.expandPushes(state, k, generate);
+        }
+        for (int k = 0; k < state.players.length; ++k) {
+            this.expandWalks(state, k, false, generate);
+        }
+        this.unload(state.players, state.boxes);
+        for (int i = 0; i < this.successors.size(); ++i) {
+            sink.accept(this.canonical(this.successors.get(i)), this.successorSteps.get(i));
+        }
+        this.successors.clear();
+        this.successorSteps.clear();
+    }
+
+    /**
+     * Generate all predecessors of a state, i.e., the states from which a push or walk leads to it.
+     * A player pulls one of its boxes by stepping away from it, the reverse of a push.
+     * Each predecessor is passed with the step leading from it to the state,
+     * so that a path found backwards is read forwards by following the steps.
+     *
+     * @param state the state to expand.
+     * @param sink  receives each predecessor and the step from it to the state.
+     */
+    void expandReverse(@NotNull SearchState state, @NotNull BiConsumer<SearchState, Step> sink) {
+        this.load(state.players, state.boxes);
+        for (int k = 0; k < state.players.length; ++k) {
+            this.expandPulls(state, k, sink);
+        }
+        for (int k = 0; k < state.players.length; ++k) {
+            this.expandWalks(state, k, true, sink);
+        }
+        this.unload(state.players, state.boxes);
+    }
+
+    /**
+     * Take a step generated by {@link #expand(SearchState, BiConsumer)} again.
+     *
+     * @param state the state the step was generated from.
+     * @param step  the step.
+     * @return the same successor as generated for the step.
+     */
+    @NotNull SearchState apply(@NotNull SearchState state, @NotNull Step step) {
+        return switch (step) {
+            case Step.Push push -> this.applyPush(state, push.player(), push.box(), push.direction(), push.aside());
+            case Step.Macro macro -> this.applyPush(state, macro.player(), macro.box(), macro.direction(), null);
+            case Step.Walk walk -> {
+                final int[] players = state.players.clone();
+                players[walk.player()] = walk.to();
+                yield new SearchState(players, state.boxes, this.board.hash(players, state.boxes));
+            }
+        };
+    }
+
+    /**
+     * Break a step generated by {@link #expand(SearchState, BiConsumer)} into single pushes.
+     *
+     * @param state the state the step was generated from.
+     * @param step  the step.
+     * @return the pushes of a push or macro move in the order they are taken, or nothing for a walk.
+     */
+    @NotNull List<Step.Push> pushes(@NotNull SearchState state, @NotNull Step step) {
+        final var pushes = new ArrayList<Step.Push>();
+        this.load(state.players, state.boxes);
+        switch (step) {
+            case Step.Push push -> this.follow(state, push.player(), push.box(), push.direction(), pushes);
+            case Step.Macro macro -> this.follow(state, macro.player(), macro.box(), macro.direction(), pushes);
+            case Step.Walk walk -> {
+            }
+        }
+        this.unload(state.players, state.boxes);
+        return pushes;
+    }
+
+    /**
+     * Find the player that steps aside for a push generated by {@link #expand(SearchState, BiConsumer)},
+     * see {@link Step.Push#aside()}.
+     *
+     * @param state the state the push was generated from.
+     * @param push  the push, with a direction to step aside in.
+     * @return the index of the player alone in the area the box is pushed into.
+     */
+    int stepsAside(@NotNull SearchState state, @NotNull Step.Push push) {
+        this.load(state.players, state.boxes);
+        final int other = this.loneIn(this.board.neighbour(push.box(), push.direction()), push.player());
+        this.unload(state.players, state.boxes);
+        if (other < 0 || push.aside() == null) {
+            throw new ShouldNotReachException();
+        }
+        return other;
+    }
+
+    private SearchState applyPush(SearchState state, int k, int box, Direction direction, @Nullable Direction aside) {
+        int b = this.board.boxStart[k];
+        while (state.boxes[b] != box) {
+            b++;
+        }
+        this.load(state.players, state.boxes);
+        final var next = this.push(state, k, b, direction, aside);
+        this.unload(state.players, state.boxes);
+        return next;
+    }
+
+    /**
+     * Take the steps of a path through states generated by {@link #expand(SearchState, BiConsumer)} again,
+     * and map each through the symmetries by which the states before it were replaced,
+     * so that the steps lead from the state the path starts from.
+     *
+     * @param initial the state the path starts from.
+     * @param steps   the steps, each from the state generated by the step before it.
+     * @return the steps leading from the initial state through the images of the states on the path.
+     */
+    @NotNull List<Step> unfold(@NotNull SearchState initial, @NotNull List<Step> steps) {
+        if (!this.reduceSymmetry) {
+            return steps;
+        }
+        final var unfolded = new ArrayList<Step>(steps.size());
+        // Cell of the initial state matching each cell of the state the next step is taken from, null if the same
+        int[] toInitial = null;
+        SearchState state = initial;
+        for (Step step: steps) {
+            unfolded.add(toInitial == null ? step : this.mapStep(step, toInitial));
+            final int symmetry = this.leastSymmetry(this.apply(state, step));
+            state = this.leastImage;
+            if (symmetry != -1) {
+                final int[] image = this.symmetries[symmetry];
+                final int[] composed = new int[this.board.area];
+                for (int cell = 0; cell < this.board.area; ++cell) {
+                    if (image[cell] != Board.NONE) {
+                        composed[image[cell]] = toInitial == null ? cell : toInitial[cell];
+                    }
+                }
+                toInitial = composed;
+            }
+        }
+        return unfolded;
+    }
+
+    private Step mapStep(Step step, int[] toInitial) {
+        return switch (step) {
+            case Step.Push push -> new Step.Push(
+                push.player(),
+                toInitial[push.box()],
+                this.mapDirection(push.box(), push.direction(), toInitial),
+                push.aside() == null ? null : this.mapDirection(
+                    this.board.neighbour(push.box(), push.direction()), push.aside(), toInitial
+                )
+            );
+            case Step.Macro macro -> new Step.Macro(
+                macro.player(),
+                toInitial[macro.box()],
+                this.mapDirection(macro.box(), macro.direction(), toInitial),
+                toInitial[macro.to()],
+                macro.pushes()
+            );
+            case Step.Walk walk -> new Step.Walk(walk.player(), toInitial[walk.to()]);
+        };
+    }
+
+    // The direction from the cell matching a cell to the cell matching its neighbour in a direction
+    private Direction mapDirection(int cell, Direction direction, int[] toInitial) {
+        final int from = toInitial[cell];
+        final int to = toInitial[this.board.neighbour(cell, direction)];
+        for (Direction image: Direction.ALL) {
+            if (this.board.neighbour(from, image) == to) {
+                return image;
+            }
+        }
+        throw new ShouldNotReachException();
+    }
+
+    // The least image of a state under the symmetries of the board, which must have no state loaded
+    private SearchState canonical(SearchState state) {
+        this.leastSymmetry(state);
+        return this.leastImage;
+    }
+
+    // Find the least image of a state by hash and then cells, and return the index of its symmetry or -1 for itself
+    private int leastSymmetry(SearchState state) {
+        this.leastImage = state;
+        int least = -1;
+        for (int i = 0; i < this.symmetries.length; ++i) {
+            final int[] image = this.symmetries[i];
+            final int[] players = new int[state.players.length];
+            final int[] boxes = new int[state.boxes.length];
+            for (int k = 0; k < players.length; ++k) {
+                players[k] = image[state.players[k]];
+                for (int b = this.board.boxStart[k]; b < this.board.boxStart[k + 1]; ++b) {
+                    boxes[b] = image[state.boxes[b]];
+                }
+                Arrays.sort(boxes, this.board.boxStart[k], this.board.boxStart[k + 1]);
+            }
+            final var candidate = this.initial(players, boxes);
+            if (compare(candidate, this.leastImage) < 0) {
+                this.leastImage = candidate;
+                least = i;
+            }
+        }
+        return least;
+    }
+
+    private static int compare(SearchState a, SearchState b) {
+        final int byHash = Long.compare(a.hash, b.hash);
+        if (byHash != 0) {
+            return byHash;
+        }
+        final int byPlayers = Arrays.compare(a.players, b.players);
+        return byPlayers != 0 ? byPlayers : Arrays.compare(a.boxes, b.boxes);
+    }
+
+    private void expandPushes(SearchState state, int k, BiConsumer<SearchState, Step> sink) {
+        this.flood(state.players[k], false, Board.NONE, Board.NONE);
+        int count = 0;
+        for (int b = this.board.boxStart[k]; b < this.board.boxStart[k + 1]; ++b) {
+            final int box = state.boxes[b];
+            for (Direction direction: Direction.ALL) {
+                final int from = this.board.neighbour(box, direction.opposite());
+                final int to = this.board.neighbour(box, direction);
+                // The player leaves its own cell to get behind the box, so the box may be pushed into it,
+                // and a player alone in its area can leave its cell too
+                if (from != Board.NONE && this.isReached(from) && to != Board.NONE
+                    && (this.occupant[to] == FREE || to == state.players[k] || this.isAlone(this.occupant[to]))
+                    && !this.board.isDead(k, to)) {
+                    this.pushes[count++] = b;
+                    this.pushes[count++] = direction.ordinal();
+                }
+            }
+        }
+        // Creating successors floods again, so pushes are collected first
+        for (int i = 0; i < count; i += 2) {
+            final int b = this.pushes[i];
+            final var direction = Direction.ALL[this.pushes[i + 1]];
+            final int box = state.boxes[b];
+            final int to = this.board.neighbour(box, direction);
+            final int other = state.players.length > 1 ? this.loneIn(to, k) : -1;
+            if (other >= 0) {
+                this.expandAside(state, k, b, direction, other, sink);
+                continue;
+            }
+            final var next = this.push(state, k, b, direction, null);
+            sink.accept(next, this.followedPushes == 1
+                ? new Step.Push(k, box, direction)
+                : new Step.Macro(k, box, direction, this.followedTo, this.followedPushes)
+            );
+        }
+    }
+
+    // Push box b of player k into the area of another player alone in it. The box may cut the rest of the area into
+    // parts, and the other player could have walked to any of them first, so it steps aside to each part in turn,
+    // unless it stands in that part already
+    private void expandAside(
+        SearchState state,
+        int k,
+        int b,
+        Direction direction,
+        int other,
+        BiConsumer<SearchState, Step> sink
+    ) {
+        final int box = state.boxes[b];
+        final int to = this.board.neighbour(box, direction);
+        for (Direction aside: Direction.ALL) {
+            if (this.isPart(to, aside, other)) {
+                final var stepAside = this.stepAside(state, to, aside, other);
+                sink.accept(this.push(state, k, b, direction, stepAside), new Step.Push(k, box, direction, stepAside));
+            }
+        }
+    }
+
+    // Whether the neighbour in a direction of the cell a box is pushed into is the first one found of a part of the
+    // area of the other player that the box leaves, which is then left reached by the last flood fill
+    private boolean isPart(int to, Direction aside, int other) {
+        if (this.asideCell(to, aside, other) == Board.NONE) {
+            return false;
+        }
+        // A part reached from a neighbour in an earlier direction has been found already
+        for (int d = 0; d < aside.ordinal(); ++d) {
+            final int neighbour = this.board.neighbour(to, Direction.ALL[d]);
+            if (neighbour != Board.NONE && this.isReached(neighbour)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The direction the other player steps aside in to the part found by isPart, or null if it stands there already
+    private @Nullable Direction stepAside(SearchState state, int to, Direction aside, int other) {
+        return state.players[other] != to && this.isReached(state.players[other]) ? null : aside;
+    }
+
+    private void expandPulls(SearchState state, int k, BiConsumer<SearchState, Step> sink) {
+        this.flood(state.players[k], false, Board.NONE, Board.NONE);
+        int count = 0;
+        for (int b = this.board.boxStart[k]; b < this.board.boxStart[k + 1]; ++b) {
+            final int box = state.boxes[b];
+            for (Direction direction: Direction.ALL) {
+                // The player stands next to the box and steps away from it, so the box follows into its cell
+                final int at = this.board.neighbour(box, direction);
+                if (at == Board.NONE || !this.isReached(at)) {
+                    continue;
+                }
+                // A player in the cell stepped into is next to a cell reached, so it shares the area of the player
+                // and is never alone in it; it walks out of the way by itself, see expandWalks
+                final int to = this.board.neighbour(at, direction);
+                if (to != Board.NONE && (this.occupant[to] == FREE || to == state.players[k])) {
+                    this.pushes[count++] = b;
+                    this.pushes[count++] = direction.ordinal();
+                }
+            }
+        }
+        for (int i = 0; i < count; i += 2) {
+            final int b = this.pushes[i];
+            final var direction = Direction.ALL[this.pushes[i + 1]];
+            final int box = state.boxes[b];
+            final int at = this.board.neighbour(box, direction);
+            final int to = this.board.neighbour(at, direction);
+            final var previous = this.displace(state, k, b, at, to, null);
+            final var push = this.pushBack(state, previous, k, box, at, direction.opposite());
+            if (push != null) {
+                sink.accept(previous, push);
+            }
+        }
+    }
+
+    // The push by player k from a predecessor back to the state, of the box it pulled from a cell to the cell at,
+    // or null if there is none. A player alone in the area the box is pushed into steps aside as in expandAside,
+    // so the pull only leads back if it stepped aside to its cell in the state. Any other cell of the part is one
+    // it keeps while sharing its area, and walks to after the push, so the pull is taken from before the walk.
+    private Step.@Nullable Push pushBack(
+        SearchState state,
+        SearchState previous,
+        int k,
+        int box,
+        int at,
+        Direction direction
+    ) {
+        this.unload(state.players, state.boxes);
+        this.load(previous.players, previous.boxes);
+        final int other = state.players.length > 1 ? this.loneIn(box, k) : -1;
+        Step.Push push = other < 0 ? new Step.Push(k, at, direction) : null;
+        if (other >= 0) {
+            int b = this.board.boxStart[k];
+            while (previous.boxes[b] != at) {
+                b++;
+            }
+            for (Direction aside: Direction.ALL) {
+                if (this.isPart(box, aside, other)) {
+                    final var stepAside = this.stepAside(previous, box, aside, other);
+                    final var next = this.displace(previous, k, b, box, at, stepAside);
+                    if (next.players[other] == state.players[other]) {
+                        push = new Step.Push(k, at, direction, stepAside);
+                        break;
+                    }
+                }
+            }
+        }
+        this.unload(previous.players, previous.boxes);
+        this.load(state.players, state.boxes);
+        return push;
+    }
+
+    // Push box b of player k, and on to the end of the macro move the push starts if there is one.
+    // A player alone in the area the box is pushed into steps aside in the given direction, if any.
+    private SearchState push(SearchState state, int k, int b, Direction direction, @Nullable Direction aside) {
+        final int player = this.follow(state, k, state.boxes[b], direction, null);
+        return this.displace(state, k, b, this.followedTo, player, aside);
+    }
+
+    /**
+     * Follow a push of a box through the macro move it starts, if any, on the loaded state.
+     * The cell of the box after the last push and the number of pushes are kept in {@link #followedTo}
+     * and {@link #followedPushes}.
+     *
+     * @param state     the loaded state.
+     * @param k         the index of the player pushing.
+     * @param box       the cell of the box before the push.
+     * @param direction the direction of the push.
+     * @param pushes    receives each push, or null.
+     * @return the cell of the player after the last push.
+     */
+    private int follow(SearchState state, int k, int box, Direction direction, @Nullable List<Step.Push> pushes) {
+        int player = box;
+        int at = this.board.neighbour(box, direction);
+        int count = 1;
+        if (pushes != null) {
+            pushes.add(new Step.Push(k, box, direction));
+        }
+        // A player alone in the area the box enters could stand anywhere along a macro move, so the box stops there
+        final boolean entersLoneArea = this.macros != null && state.players.length > 1 && this.loneIn(at, k) >= 0;
+        while (this.macros != null && !entersLoneArea) {
+            final int room = this.macros.roomEntered(at, direction);
+            final int[] route = room == Board.NONE ? null : this.roomRoute(state, k, room, direction);
+            if (route != null) {
+                for (int push: route) {
+                    final var next = Direction.ALL[push % Direction.ALL.length];
+                    player = push / Direction.ALL.length;
+                    at = this.board.neighbour(player, next);
+                    if (pushes != null) {
+                        pushes.add(new Step.Push(k, player, next));
+                    }
+                }
+                count += route.length;
+                break;
+            }
+            // Along a tunnel, the box can only go on or back, so it goes on until it is out or stuck
+            final int ahead = this.board.neighbour(at, direction);
+            if (this.board.isDestination(at) || !this.macros.isTunnel(at, direction)
+                || !this.macros.isTunnel(player, direction) || ahead == Board.NONE
+                || this.occupant[ahead] != FREE && ahead != state.players[k] || this.board.isDead(k, ahead)) {
+                break;
+            }
+            if (pushes != null) {
+                pushes.add(new Step.Push(k, at, direction));
+            }
+            player = at;
+            at = ahead;
+            count++;
+        }
+        this.followedTo = at;
+        this.followedPushes = count;
+        return player;
+    }
+
+    // The route into a room whose entrance a box has just been pushed onto, if the room holds no players,
+    // and boxes only on the first destinations of its fill order
+    private int @Nullable [] roomRoute(SearchState state, int k, int room, Direction direction) {
+        int filled = 0;
+        int last = Board.NONE;
+        for (int cell: this.macros.cells(room)) {
+            final int other = this.occupant[cell];
+            if (other >= 0 && cell != state.players[k]) {
+                return null;
+            }
+            if (other <= BOX) {
+                if (this.macros.fillIndex(cell) == Board.NONE) {
+                    return null;
+                }
+                filled++;
+                last = Math.max(last, this.macros.fillIndex(cell));
+            }
+        }
+        return last == filled - 1 ? this.macros.route(room, filled, direction) : null;
+    }
+
+    // Move box b of player k and the player to free cells, or the player into the cell the box leaves.
+    // If the box goes into the area of another player alone in it, the other player steps aside to the first cell
+    // of the part of its area in the given direction, if any.
+    private SearchState displace(SearchState state, int k, int b, int boxTo, int playerTo, @Nullable Direction aside) {
+        final int box = state.boxes[b];
+        final int[] players = state.players.clone();
+        final int[] boxes = state.boxes.clone();
+        final int other = aside == null ? -1 : this.loneIn(boxTo, k);
+        final int asideTo = aside == null || other < 0 ? Board.NONE : this.asideCell(boxTo, aside, other);
+        if (aside != null) {
+            if (asideTo == Board.NONE) {
+                throw new ShouldNotReachException();
+            }
+            this.occupant[state.players[other]] = FREE;
+            players[other] = asideTo;
+            this.occupant[asideTo] = other;
+        }
+        players[k] = playerTo;
+        boxes[b] = boxTo;
+        // Keep the group of the box sorted
+        for (int i = b; i > this.board.boxStart[k] && boxes[i - 1] > boxes[i]; --i) {
+            swap(boxes, i - 1, i);
+        }
+        for (int i = b; i + 1 < this.board.boxStart[k + 1] && boxes[i + 1] < boxes[i]; ++i) {
+            swap(boxes, i, i + 1);
+        }
+
+        // Normalize on the occupants after the move, then restore the occupants of the state being expanded
+        this.occupant[state.players[k]] = FREE;
+        this.occupant[box] = FREE;
+        this.occupant[playerTo] = k;
+        this.occupant[boxTo] = BOX - k;
+        this.normalize(players);
+        this.occupant[boxTo] = FREE;
+        this.occupant[playerTo] = FREE;
+        this.occupant[box] = BOX - k;
+        this.occupant[state.players[k]] = k;
+        if (aside != null) {
+            this.occupant[asideTo] = FREE;
+            this.occupant[state.players[other]] = other;
+        }
+        return new SearchState(players, boxes, this.board.hash(players, boxes));
+    }
+
+    // The first cell of the part of the area around a cell that its neighbour in a direction is in, without passing
+    // through the cell, or NONE if the neighbour is neither free nor the player alone in the area;
+    // the part is left reached by the last flood fill
+    private int asideCell(int cell, Direction aside, int other) {
+        final int start = this.board.neighbour(cell, aside);
+        if (start == Board.NONE || this.occupant[start] != FREE && this.occupant[start] != other) {
+            return Board.NONE;
+        }
+        final int size = this.flood(start, true, Board.NONE, cell);
+        int first = start;
+        for (int i = 1; i < size; ++i) {
+            first = Math.min(first, this.queue[i]);
+        }
+        return first;
+    }
+
+    // Walks of player q sharing its area to each cell it can reach, as steps from the state to the successor,
+    // or from the predecessor to the state if reverse. Any of them may be what lets another player by.
+    private void expandWalks(SearchState state, int q, boolean reverse, BiConsumer<SearchState, Step> sink) {
+        if (this.countMates(q, state.players[q]) == 0) {
+            return;
+        }
+        final int size = this.flood(state.players[q], false, Board.NONE, Board.NONE);
+        for (int i = 1; i < size; ++i) {
+            final int to = this.queue[i];
+            final int[] players = state.players.clone();
+            players[q] = to;
+            sink.accept(
+                new SearchState(players, state.boxes, this.board.hash(players, state.boxes)),
+                new Step.Walk(q, reverse ? state.players[q] : to)
+            );
+        }
+    }
+
+    // The number of other players in the area of player k
+    private int countMates(int k, int cell) {
+        final int size = this.flood(cell, true, Board.NONE, Board.NONE);
+        int count = 0;
+        for (int i = 0; i < size; ++i) {
+            final int other = this.occupant[this.queue[i]];
+            if (other >= 0 && other != k) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The player other than k that is alone in the area of a cell, or -1 if there is none
+    private int loneIn(int cell, int k) {
+        final int size = this.flood(cell, true, Board.NONE, Board.NONE);
+        int lone = -1;
+        for (int i = 0; i < size; ++i) {
+            final int other = this.occupant[this.queue[i]];
+            if (other == k || other >= 0 && lone >= 0) {
+                return -1;
+            }
+            if (other >= 0) {
+                lone = other;
+            }
+        }
+        return lone;
+    }
+
+    // Move each player that is alone in its area to the first cell of the area
+    private void normalize(int[] players) {
+        for (int k = 0; k < players.length; ++k) {
+            final int size = this.flood(players[k], true, Board.NONE, Board.NONE);
+            int first = Integer.MAX_VALUE;
+            boolean alone = true;
+            for (int i = 0; i < size && alone; ++i) {
+                final int cell = this.queue[i];
+                final int other = this.occupant[cell];
+                alone = other < 0 || other == k;
+                first = Math.min(first, cell);
+            }
+            if (alone) {
+                players[k] = first;
+            }
+        }
+    }
+
+    /**
+     * Flood fill from a cell through free floor cells.
+     *
+     * @param start          the cell to start from, which is always reached.
+     * @param throughPlayers whether cells occupied by players are passable.
+     * @param ignored        a cell treated as free, or {@link Board#NONE}.
+     * @param blocked        a cell treated as occupied, or {@link Board#NONE}.
+     * @return the number of cells reached, which are listed at the start of {@link #queue}.
+     */
+    private int flood(int start, boolean throughPlayers, int ignored, int blocked) {
+        if (++this.stamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.mark, 0);
+            this.stamp = 1;
+        }
+        this.mark[start] = this.stamp;
+        this.queue[0] = start;
+        int tail = 1;
+        for (int head = 0; head < tail; ++head) {
+            final int cell = this.queue[head];
+            for (Direction direction: Direction.ALL) {
+                final int next = this.board.neighbour(cell, direction);
+                if (next == Board.NONE || next == blocked || this.mark[next] == this.stamp) {
+                    continue;
+                }
+                final int other = this.occupant[next];
+                if (next != ignored && (other <= BOX || other >= 0 && !throughPlayers)) {
+                    continue;
+                }
+                this.mark[next] = this.stamp;
+                this.queue[tail++] = next;
+            }
+        }
+        return tail;
+    }
+
+    // Whether the occupant of a cell is a player alone in its area in the state being expanded
+    private boolean isAlone(int occupant) {
+        return occupant >= 0 && this.alone[occupant];
+    }
+
+    private boolean isReached(int cell) {
+        return this.mark[cell] == this.stamp;
+    }
+
+    private void load(int[] players, int[] boxes) {
+        for (int k = 0; k < players.length; ++k) {
+            this.occupant[players[k]] = k;
+            for (int b = this.board.boxStart[k]; b < this.board.boxStart[k + 1]; ++b) {
+                this.occupant[boxes[b]] = BOX - k;
+            }
+        }
+    }
+
+    private void unload(int[] players, int[] boxes) {
+        for (int player: players) {
+            this.occupant[player] = FREE;
+        }
+        for (int box: boxes) {
+            this.occupant[box] = FREE;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        final int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+}
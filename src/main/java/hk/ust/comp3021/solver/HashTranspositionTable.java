@@ -0,0 +1,78 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A transposition table backed by a hash map, for use by a single thread.
+ * It never forgets a state, so it grows with the number of states reached.
+ */
+final class HashTranspositionTable implements TranspositionTable {
+
+    private final Map<SearchState, Entry> entries = new HashMap<>();
+
+    @Override
+    public boolean offer(@NotNull Node node) {
+        final Entry best = this.entries.get(node.state());
+        if (best != null && best.pushes() <= node.pushes()) {
+            return false;
+        }
+        this.entries.put(node.state(), Entry.of(node));
+        return true;
+    }
+
+    @Override
+    public boolean isSuperseded(@NotNull Node node) {
+        final Entry best = this.entries.get(node.state());
+        return best != null && best.pushes() < node.pushes();
+    }
+
+    @Override
+    public boolean markExpanded(@NotNull Node node) {
+        return true;
+    }
+
+    @Override
+    public @NotNull List<Step> path(@NotNull Node goal) {
+        return walkBack(goal, this.entries::get);
+    }
+
+    /**
+     * @param state a search state.
+     * @return the best way recorded to reach the state, or null if it was not reached.
+     */
+    @Nullable Entry get(@NotNull SearchState state) {
+        return this.entries.get(state);
+    }
+
+    @Override
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Follow recorded entries from the parent of a goal back to the initial state.
+     *
+     * @param goal   the goal node.
+     * @param lookup the recorded entry of a state.
+     * @return the steps from the initial state to the goal.
+     */
+    static @NotNull List<Step> walkBack(@NotNull Node goal, @NotNull Function<SearchState, Entry> lookup) {
+        final var steps = new ArrayList<Step>();
+        Entry entry = Entry.of(goal);
+        while (entry.step() != null) {
+            steps.add(entry.step());
+            entry = Objects.requireNonNull(lookup.apply(Objects.requireNonNull(entry.parent())));
+        }
+        Collections.reverse(steps);
+        return steps;
+    }
+}
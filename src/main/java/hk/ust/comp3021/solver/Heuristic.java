@@ -0,0 +1,30 @@
+package hk.ust.comp3021.solver;
+
+/**
+ * The lower bound of the number of pushes left that guides the search of a {@link Solver}.
+ * None of them overestimates, so the solver finds a solution with the fewest pushes with any.
+ */
+public enum Heuristic {
+
+    /**
+     * The sum of the push distances of each box to its nearest destination.
+     * It is the cheapest to compute, but several boxes may count on the same destination.
+     */
+    NEAREST_DESTINATION,
+
+    /**
+     * The smallest sum of push distances over all assignments of boxes to distinct destinations.
+     * It is never lower than {@link #NEAREST_DESTINATION}, so the search expands fewer states,
+     * at the cost of an assignment problem per expanded state.
+     */
+    MIN_COST_MATCHING,
+
+    /**
+     * The larger of {@link #MIN_COST_MATCHING} and bounds from pattern databases: for groups of a few destinations
+     * close to each other, the fewest pushes that fill each group with any boxes, ignoring all other boxes.
+     * The databases catch boxes in each other's way, or a player that has to get around a box, which the matching
+     * misses. They are built once per map, and can be kept on disk, see {@link Solver#setPatternDatabaseDirectory}.
+     * It is never lower than {@link #MIN_COST_MATCHING}, and the same on maps with more than one player.
+     */
+    PATTERN_DATABASE
+}
@@ -0,0 +1,244 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.game.Zobrist;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Hints the next move of a player towards a solution, quickly enough to be asked for between two inputs.
+ * <p>
+ * Every plan found is cached state by state, so a player who follows the hints is answered from the cache.
+ * A player who walked off the plan without pushing a box is led back to the nearest cached state
+ * with the same boxes, provided the other players are where they were there.
+ * Otherwise, the game is solved again from the current state within a time budget,
+ * and if no solution is found in time, the hint leads towards the state closest to one, see {@link SearchResult}.
+ * <p>
+ * A hint engine must not be used by several threads at the same time.
+ */
+public class HintEngine {
+
+    /**
+     * Default time to search for a new plan, leaving room below the 50 ms a hint may take.
+     */
+    public static final Duration DEFAULT_TIME_LIMIT = Duration.ofMillis(30);
+
+    private static final long MEMORY_LIMIT = 64L << 20;
+    // Number of cached states above which the cache is cleared
+    private static final int MAX_CACHED_STATES = 1 << 16;
+
+    private final GameMap gameMap;
+    private final Solver solver;
+    private final Duration timeLimit;
+    // States on the plans found so far, by Zobrist hash
+    private final Map<Long, Waypoint> byState = new HashMap<>();
+    // A state on the plans found so far for each layout of boxes, by the Zobrist hash of the boxes alone
+    private final Map<Long, Waypoint> byBoxes = new HashMap<>();
+    private long solveCount;
+
+    /**
+     * Create a hint engine that searches for {@link #DEFAULT_TIME_LIMIT} at most.
+     *
+     * @param gameMap the game map to give hints on.
+     */
+    public HintEngine(@NotNull GameMap gameMap) {
+        this(gameMap, DEFAULT_TIME_LIMIT);
+    }
+
+    /**
+     * @param gameMap   the game map to give hints on.
+     * @param timeLimit the time to search for a new plan.
+     */
+    public HintEngine(@NotNull GameMap gameMap, @NotNull Duration timeLimit) {
+        this.gameMap = gameMap;
+        this.solver = new Solver(gameMap);
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * @return the number of times the game was solved again because no cached plan applied.
+     */
+    public long getSolveCount() {
+        return this.solveCount;
+    }
+
+    /**
+     * Get the next move of a player towards a solution.
+     * If another player has to move first, there is no hint for this player until it has.
+     *
+     * @param gameState the current state of the game, created from the game map of this engine.
+     * @param playerId  the id of the player.
+     * @return the move, or empty if the game is won or cannot be won, or another player has to move first.
+     * @throws IllegalArgumentException if the game state is not created from the game map of this engine.
+     */
+    public @NotNull Optional<Move> hint(@NotNull GameState gameState, int playerId) {
+        return this.hint(gameState, playerId, System.nanoTime() + this.timeLimit.toNanos());
+    }
+
+    /**
+     * Get the next move of a player towards a solution, or if another player has to move first, its next move.
+     * All players share the time limit of one hint, so this takes about as long as {@link #hint(GameState, int)}.
+     *
+     * @param gameState the current state of the game, created from the game map of this engine.
+     * @param playerId  the id of the player to hint first.
+     * @return the move, or empty if the game is won or cannot be won, or no solution was found in time.
+     * @throws IllegalArgumentException if the game state is not created from the game map of this engine.
+     */
+    public @NotNull Optional<Move> hintAnyPlayer(@NotNull GameState gameState, int playerId) {
+        final long deadline = System.nanoTime() + this.timeLimit.toNanos();
+        var hint = this.hint(gameState, playerId, deadline);
+        for (int id: this.gameMap.getPlayerIds()) {
+            if (hint.isEmpty() && id != playerId) {
+                hint = this.hint(gameState, id, deadline);
+            }
+        }
+        return hint;
+    }
+
+    // The next move of a player, solving again until the deadline in System.nanoTime() if no cached plan applies
+    private Optional<Move> hint(GameState gameState, int playerId, long deadline) {
+        if (gameState.getGameMap() != this.gameMap) {
+            throw new IllegalArgumentException("Game state is not of the game map of the hint engine.");
+        }
+        if (gameState.isWin() || gameState.getPlayerPositionById(playerId) == null) {
+            return Optional.empty();
+        }
+
+        // A plan that has run out without solving the game only led as close to a solution as the search got
+        final Waypoint exact = this.byState.get(gameState.getZobristHash());
+        if (exact != null && exact.state().equals(gameState) && exact.index() < exact.moves().size()) {
+            return Optional.ofNullable(exact.nextMove(playerId));
+        }
+
+        final Waypoint sameBoxes = this.byBoxes.get(boxesHash(gameState));
+        if (sameBoxes != null) {
+            final Move move = this.rejoin(gameState, sameBoxes, playerId);
+            if (move != null) {
+                return Optional.of(move);
+            }
+        }
+
+        final long timeLeft = deadline - System.nanoTime();
+        if (timeLeft <= 0) {
+            return Optional.empty();
+        }
+        this.solveCount++;
+        final var result = this.solver.solve(gameState, Duration.ofNanos(timeLeft), MEMORY_LIMIT);
+        // Only reported once every state reachable from here was searched, so no cached plan could lead on either
+        if (result.status() == SearchResult.Status.UNSOLVABLE) {
+            return Optional.empty();
+        }
+        this.cache(gameState, result.moves());
+        return Optional.ofNullable(new Waypoint(gameState, result.moves(), 0).nextMove(playerId));
+    }
+
+    // The first step of the player walking to its cell at the waypoint, if it is elsewhere and all else matches
+    private @Nullable Move rejoin(GameState gameState, Waypoint waypoint, int playerId) {
+        for (int id: this.gameMap.getPlayerIds()) {
+            if (id != playerId
+                && !waypoint.state().getPlayerPositionById(id).equals(gameState.getPlayerPositionById(id))) {
+                return null;
+            }
+        }
+        final Position start = gameState.getPlayerPositionById(playerId);
+        final Position target = waypoint.state().getPlayerPositionById(playerId);
+        if (start.equals(target)) {
+            return null;
+        }
+        // Search backwards from the target, so the direction taken into the start is the first step from it
+        final var reached = new HashMap<Position, Direction>();
+        final var queue = new ArrayDeque<Position>();
+        queue.add(target);
+        reached.put(target, Direction.UP);
+        while (!queue.isEmpty()) {
+            final Position position = queue.poll();
+            for (Direction direction: Direction.ALL) {
+                final Position next = Position.of(position.x() + direction.dx, position.y() + direction.dy);
+                if (next.equals(start)) {
+                    return direction.opposite().toMove(playerId);
+                }
+                if (!reached.containsKey(next) && isInside(gameState, next)
+                    && gameState.getEntity(next) instanceof Empty) {
+                    reached.put(next, direction);
+                    queue.add(next);
+                }
+            }
+        }
+        return null;
+    }
+
+    // Record every state along the moves from the game state
+    private void cache(GameState gameState, List<Move> moves) {
+        if (this.byState.size() + moves.size() > MAX_CACHED_STATES) {
+            this.byState.clear();
+            this.byBoxes.clear();
+        }
+        final var replay = gameState.fork();
+        for (int i = 0; i <= moves.size(); ++i) {
+            final var waypoint = new Waypoint(replay.fork(), moves, i);
+            this.byState.put(replay.getZobristHash(), waypoint);
+            this.byBoxes.put(boxesHash(replay), waypoint);
+            if (i < moves.size()) {
+                apply(replay, moves.get(i));
+            }
+        }
+    }
+
+    // Make a move known to be valid, pushing the box in the way if there is one
+    private static void apply(GameState gameState, Move move) {
+        final Position from = gameState.getPlayerPositionById(move.getInitiator());
+        final Position to = move.nextPosition(from);
+        if (gameState.getEntity(to) instanceof Box) {
+            gameState.move(to, move.nextPosition(to));
+        }
+        gameState.move(from, to);
+    }
+
+    private static long boxesHash(GameState gameState) {
+        long hash = 0;
+        final int width = gameState.getMapMaxWidth();
+        for (int y = 0; y < gameState.getMapMaxHeight(); ++y) {
+            for (int x = 0; x < width; ++x) {
+                if (gameState.getEntity(Position.of(x, y)) instanceof Box box) {
+                    hash ^= Zobrist.box(box.getPlayerId(), y * width + x);
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static boolean isInside(GameState gameState, Position position) {
+        return position.x() >= 0 && position.x() < gameState.getMapMaxWidth()
+            && position.y() >= 0 && position.y() < gameState.getMapMaxHeight();
+    }
+
+    /**
+     * A state along a plan.
+     *
+     * @param state the state, which must not be modified.
+     * @param moves the moves of the plan.
+     * @param index the index of the next move of the plan from the state.
+     */
+    private record Waypoint(@NotNull GameState state, @NotNull List<Move> moves, int index) {
+
+        // The next move of the plan if it is a move of the player, or null
+        @Nullable Move nextMove(int playerId) {
+            if (this.index < this.moves.size() && this.moves.get(this.index).getInitiator() == playerId) {
+                return this.moves.get(this.index);
+            }
+            return null;
+        }
+    }
+}
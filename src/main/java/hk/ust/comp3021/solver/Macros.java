@@ -0,0 +1,266 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.game.Bitboard;
+import hk.ust.comp3021.game.MapStructure;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The macro moves of a board: runs of pushes of one box that the search takes as a single step,
+ * found from the tunnels and goal rooms of the map, see {@link MapStructure}.
+ * <p>
+ * A box pushed along a tunnel, with the player behind it in the tunnel as well, goes on being pushed until it leaves
+ * the tunnel, reaches a destination, or would run into a player, a box or a dead square.
+ * A box pushed onto the entrance of a goal room goes on to the next destination of the room in its fill order,
+ * as long as the room holds no players, and boxes only on the destinations before it in the order.
+ * The fill order is found backwards from the full room, so that every destination can still be reached
+ * with boxes on those before it, and the route to each takes the fewest pushes.
+ * <p>
+ * Macro moves take long chains of forced pushes out of the search, but the fewest pushes through them may be more
+ * than the fewest pushes overall, e.g., if parking a box in a tunnel or filling a room in another order is shorter.
+ */
+final class Macros {
+
+    // Rooms with more cells get no macro moves, which bounds the work of finding routes through them
+    private static final int MAX_ROOM_CELLS = 128;
+
+    private final Board board;
+    private final boolean[] horizontalTunnel;
+    private final boolean[] verticalTunnel;
+    // Room index of each cell, NONE outside rooms
+    private final int[] roomOf;
+    private final int[] entrances;
+    private final int[][] roomCells;
+    // Index of each destination in the fill order of its room, NONE elsewhere or if the room has no fill order
+    private final int[] fillIndex;
+    // Route from the entrance of each room to the destination at each index of its fill order, for each direction
+    // the box was pushed onto the entrance in, as cell * 4 + direction of each push, or null if there is none
+    private final int[][][][] routes;
+    // Symmetries of the board that map the fill order of each room onto the fill order of its image
+    final int[][] symmetries;
+
+    /**
+     * @param board     the board to search on.
+     * @param structure the structure of the game map of the board.
+     */
+    Macros(@NotNull Board board, @NotNull MapStructure structure) {
+        this.board = board;
+        this.horizontalTunnel = toArray(structure.getHorizontalTunnels(), board.area);
+        this.verticalTunnel = toArray(structure.getVerticalTunnels(), board.area);
+
+        final var rooms = structure.getGoalRooms();
+        this.roomOf = new int[board.area];
+        this.fillIndex = new int[board.area];
+        Arrays.fill(this.roomOf, Board.NONE);
+        Arrays.fill(this.fillIndex, Board.NONE);
+        this.entrances = new int[rooms.size()];
+        this.roomCells = new int[rooms.size()][];
+        this.routes = new int[rooms.size()][][][];
+        for (int r = 0; r < rooms.size(); ++r) {
+            final var cells = rooms.get(r).cells();
+            this.entrances[r] = rooms.get(r).entrance();
+            this.roomCells[r] = new int[cells.cardinality()];
+            for (int i = 0, cell = cells.nextSetBit(0); cell != -1; cell = cells.nextSetBit(cell + 1)) {
+                this.roomCells[r][i++] = cell;
+                this.roomOf[cell] = r;
+            }
+        }
+        for (int r = 0; r < rooms.size(); ++r) {
+            this.routes[r] = this.roomCells[r].length <= MAX_ROOM_CELLS ? this.findRoutes(r) : new int[0][][];
+        }
+
+        final var kept = new ArrayList<int[]>();
+        for (int[] image: board.symmetries) {
+            boolean symmetric = true;
+            for (int cell = 0; cell < board.area && symmetric; ++cell) {
+                symmetric = image[cell] == Board.NONE || this.fillIndex[image[cell]] == this.fillIndex[cell];
+            }
+            if (symmetric) {
+                kept.add(image);
+            }
+        }
+        this.symmetries = kept.toArray(int[][]::new);
+    }
+
+    /**
+     * @param cell      the cell of a box and the one the player pushing it stands on.
+     * @param direction the direction of the push.
+     * @return true if the box can only be pushed along the direction or back from the cell.
+     */
+    boolean isTunnel(int cell, @NotNull Direction direction) {
+        return direction.dx != 0 ? this.horizontalTunnel[cell] : this.verticalTunnel[cell];
+    }
+
+    /**
+     * @param cell      the cell a box has just been pushed onto.
+     * @param direction the direction of the push.
+     * @return the index of the room the cell is the entrance of, if the push heads into it, or {@link Board#NONE}.
+     */
+    int roomEntered(int cell, @NotNull Direction direction) {
+        final int next = this.board.neighbour(cell, direction);
+        if (next == Board.NONE || this.roomOf[next] == Board.NONE) {
+            return Board.NONE;
+        }
+        return this.entrances[this.roomOf[next]] == cell ? this.roomOf[next] : Board.NONE;
+    }
+
+    /**
+     * @param room the index of a room.
+     * @return the cells of the room.
+     */
+    int @NotNull [] cells(int room) {
+        return this.roomCells[room];
+    }
+
+    /**
+     * @param cell a cell.
+     * @return the index of the cell in the fill order of its room, or {@link Board#NONE}.
+     */
+    int fillIndex(int cell) {
+        return this.fillIndex[cell];
+    }
+
+    /**
+     * @param room      the index of a room.
+     * @param filled    the number of destinations of the room with boxes on them, the first ones in its fill order.
+     * @param direction the direction a box was pushed onto the entrance of the room in.
+     * @return the pushes taking the box to the next destination, as {@code cell * 4 + direction} of each push,
+     * or null if there is none.
+     */
+    int @Nullable [] route(int room, int filled, @NotNull Direction direction) {
+        return filled < this.routes[room].length ? this.routes[room][filled][direction.ordinal()] : null;
+    }
+
+    // Find the fill order of a room backwards, each time leaving out the destination closest to the entrance
+    private int[][][] findRoutes(int room) {
+        final boolean[] filled = new boolean[this.board.area];
+        int count = 0;
+        for (int cell: this.roomCells[room]) {
+            if (this.board.isDestination(cell)) {
+                filled[cell] = true;
+                count++;
+            }
+        }
+        final int[] order = new int[count];
+        for (int j = count - 1; j >= 0; --j) {
+            int best = Board.NONE;
+            int bestLength = Integer.MAX_VALUE;
+            for (int cell: this.roomCells[room]) {
+                if (!filled[cell]) {
+                    continue;
+                }
+                filled[cell] = false;
+                for (Direction direction: Direction.ALL) {
+                    final int[] route = this.findRoute(room, direction, cell, filled);
+                    if (route != null && route.length < bestLength) {
+                        best = cell;
+                        bestLength = route.length;
+                    }
+                }
+                filled[cell] = true;
+            }
+            if (best == Board.NONE) {
+                return new int[0][][];
+            }
+            order[j] = best;
+            filled[best] = false;
+        }
+
+        final int[][][] roomRoutes = new int[count][Direction.ALL.length][];
+        for (int j = 0; j < count; ++j) {
+            this.fillIndex[order[j]] = j;
+            for (Direction direction: Direction.ALL) {
+                roomRoutes[j][direction.ordinal()] = this.findRoute(room, direction, order[j], filled);
+            }
+            filled[order[j]] = true;
+        }
+        return roomRoutes;
+    }
+
+    // Fewest pushes taking a box from the entrance of a room to a target cell past boxes on the filled cells,
+    // where the player pushed the box onto the entrance in the direction and stays in the room from then on
+    private int @Nullable [] findRoute(int room, Direction direction, int target, boolean[] filled) {
+        final int entrance = this.entrances[room];
+        final int outside = this.board.neighbour(entrance, direction.opposite());
+        final int inside = this.board.neighbour(entrance, direction);
+        if (outside == Board.NONE || this.roomOf[outside] == room || inside == Board.NONE
+            || this.roomOf[inside] != room) {
+            return null;
+        }
+
+        // States are the cell of the box and the direction of the push that moved it there, so the player is behind
+        final int[] previous = new int[this.board.area * Direction.ALL.length];
+        Arrays.fill(previous, Board.NONE);
+        final int[] states = new int[previous.length];
+        final int start = entrance * Direction.ALL.length + direction.ordinal();
+        previous[start] = start;
+        states[0] = start;
+        final boolean[] reached = new boolean[this.board.area];
+        final int[] queue = new int[this.board.area];
+        int tail = 1;
+        for (int head = 0; head < tail; ++head) {
+            final int state = states[head];
+            final int box = state / Direction.ALL.length;
+            if (box == target) {
+                return this.unwind(previous, state);
+            }
+
+            // Walk the player through the room from behind the box
+            final int player = this.board.neighbour(box, Direction.ALL[state % Direction.ALL.length].opposite());
+            Arrays.fill(reached, false);
+            reached[player] = true;
+            queue[0] = player;
+            for (int walkHead = 0, walkTail = 1; walkHead < walkTail; ++walkHead) {
+                for (Direction step: Direction.ALL) {
+                    final int next = this.board.neighbour(queue[walkHead], step);
+                    if (next != Board.NONE && !reached[next] && next != box && !filled[next]
+                        && (this.roomOf[next] == room || next == entrance || next == outside)) {
+                        reached[next] = true;
+                        queue[walkTail++] = next;
+                    }
+                }
+            }
+
+            for (Direction push: Direction.ALL) {
+                final int behind = this.board.neighbour(box, push.opposite());
+                final int ahead = this.board.neighbour(box, push);
+                if (behind == Board.NONE || !reached[behind] || ahead == Board.NONE || filled[ahead]
+                    || this.roomOf[ahead] != room && ahead != entrance) {
+                    continue;
+                }
+                final int next = ahead * Direction.ALL.length + push.ordinal();
+                if (previous[next] == Board.NONE) {
+                    previous[next] = state;
+                    states[tail++] = next;
+                }
+            }
+        }
+        return null;
+    }
+
+    // The pushes leading from the start state to a state, as cell * 4 + direction
+    private int[] unwind(int[] previous, int state) {
+        int length = 0;
+        for (int at = state; previous[at] != at; at = previous[at]) {
+            length++;
+        }
+        final int[] route = new int[length];
+        for (int at = state, i = length - 1; previous[at] != at; at = previous[at], --i) {
+            final var direction = Direction.ALL[at % Direction.ALL.length];
+            final int from = this.board.neighbour(at / Direction.ALL.length, direction.opposite());
+            route[i] = from * Direction.ALL.length + direction.ordinal();
+        }
+        return route;
+    }
+
+    private static boolean[] toArray(Bitboard bitboard, int area) {
+        final boolean[] array = new boolean[area];
+        for (int cell = bitboard.nextSetBit(0); cell != -1; cell = bitboard.nextSetBit(cell + 1)) {
+            array[cell] = true;
+        }
+        return array;
+    }
+}
@@ -0,0 +1,216 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Estimates {@link Heuristic#MIN_COST_MATCHING} with the Hungarian algorithm.
+ * <p>
+ * The cost of assigning a box to a destination is the push distance from the table of the owner of the box,
+ * so boxes of all players compete for the same destinations,
+ * but a box only reaches the destinations its owner can push it to.
+ * Box and destination counts are equal, as checked when the game map is parsed.
+ * <p>
+ * Loading a state solves the assignment from scratch in {@code O(n^3)} for {@code n} boxes.
+ * A push changes the costs of one box only, so the optimal assignment and dual potentials of the loaded state
+ * stay feasible for every other box: the estimate after a push unassigns the box, restores the feasibility of its
+ * potential, and finds a single augmenting path in {@code O(n^2)}.
+ * <p>
+ * Other costs can be given, e.g., to match boxes to the cells they started from in a search backwards.
+ */
+final class MatchingEstimator implements Estimator {
+
+    private final Board board;
+    private final Costs costs;
+    private final int n;
+    // Cost of assigning a box to a destination when it can never reach it, more than any assignment without such
+    private final long forbidden;
+    // Cost of each box row and destination column at index row * n + column
+    private final long[] cost;
+    // Cell of each box row of the loaded state
+    private final int[] cells;
+    // Potentials of rows and columns, and the row assigned to each column, indexed from 1 with 0 as a sentinel
+    private final long[] u;
+    private final long[] v;
+    private final int[] assigned;
+    // Copies of the above for estimating a push without changing the loaded state
+    private final long[] pushU;
+    private final long[] pushV;
+    private final int[] pushAssigned;
+    private final long[] savedRow;
+    // Scratch buffers of the shortest augmenting path search
+    private final long[] minSlack;
+    private final int[] way;
+    private final boolean[] used;
+    private int estimate;
+
+    /**
+     * Create an estimator of the pushes left to move every box onto a destination.
+     *
+     * @param board the board to search on.
+     */
+    MatchingEstimator(@NotNull Board board) {
+        this(board, (k, cell, target) -> board.pushDistances(k).get(cell, target));
+    }
+
+    /**
+     * Create an estimator of the pushes to move every box onto a target, one box per target.
+     *
+     * @param board the board to search on.
+     * @param costs the pushes to move each box to each target, as many targets as boxes.
+     */
+    MatchingEstimator(@NotNull Board board, @NotNull Costs costs) {
+        this.board = board;
+        this.costs = costs;
+        this.n = board.boxCount();
+        this.forbidden = (long) board.area * Math.max(1, this.n) + 1;
+        this.cost = new long[this.n * this.n];
+        this.cells = new int[this.n];
+        this.u = new long[this.n + 1];
+        this.v = new long[this.n + 1];
+        this.assigned = new int[this.n + 1];
+        this.pushU = new long[this.n + 1];
+        this.pushV = new long[this.n + 1];
+        this.pushAssigned = new int[this.n + 1];
+        this.savedRow = new long[this.n];
+        this.minSlack = new long[this.n + 1];
+        this.way = new int[this.n + 1];
+        this.used = new boolean[this.n + 1];
+    }
+
+    @Override
+    public int load(int @NotNull [] boxes) {
+        for (int k = 0; k < this.board.playerCount(); ++k) {
+            for (int b = this.board.boxStart[k]; b < this.board.boxStart[k + 1]; ++b) {
+                this.cells[b] = boxes[b];
+                this.fillRow(b, k, boxes[b]);
+            }
+        }
+        Arrays.fill(this.u, 0);
+        Arrays.fill(this.v, 0);
+        Arrays.fill(this.assigned, 0);
+        for (int row = 1; row <= this.n; ++row) {
+            this.augment(row, this.u, this.v, this.assigned);
+        }
+        this.estimate = this.total(this.assigned);
+        return this.estimate;
+    }
+
+    @Override
+    public int afterPush(@NotNull Step.Push push) {
+        return this.afterMove(push.player(), push.box(), this.board.neighbour(push.box(), push.direction()));
+    }
+
+    @Override
+    public int afterMove(int k, int from, int to) {
+        if (this.estimate == Board.UNREACHABLE) {
+            return Board.UNREACHABLE;
+        }
+        int b = this.board.boxStart[k];
+        while (this.cells[b] != from) {
+            b++;
+        }
+        final int row = b + 1;
+        System.arraycopy(this.cost, b * this.n, this.savedRow, 0, this.n);
+        if (!this.fillRow(b, k, to)) {
+            System.arraycopy(this.savedRow, 0, this.cost, b * this.n, this.n);
+            return Board.UNREACHABLE;
+        }
+        System.arraycopy(this.u, 0, this.pushU, 0, this.n + 1);
+        System.arraycopy(this.v, 0, this.pushV, 0, this.n + 1);
+        System.arraycopy(this.assigned, 0, this.pushAssigned, 0, this.n + 1);
+
+        // Free the destination of the pushed box, and lower its potential until no reduced cost is negative
+        long potential = Long.MAX_VALUE;
+        for (int column = 1; column <= this.n; ++column) {
+            if (this.pushAssigned[column] == row) {
+                this.pushAssigned[column] = 0;
+            }
+            potential = Math.min(potential, this.cost[b * this.n + column - 1] - this.pushV[column]);
+        }
+        this.pushU[row] = potential;
+        this.augment(row, this.pushU, this.pushV, this.pushAssigned);
+        final int result = this.total(this.pushAssigned);
+
+        System.arraycopy(this.savedRow, 0, this.cost, b * this.n, this.n);
+        return result;
+    }
+
+    // Fill the costs of box b of player k at the cell, and tell whether it can reach any target
+    private boolean fillRow(int b, int k, int cell) {
+        boolean reachable = false;
+        for (int d = 0; d < this.n; ++d) {
+            final int distance = this.costs.get(k, cell, d);
+            this.cost[b * this.n + d] = distance == Board.UNREACHABLE ? this.forbidden : distance;
+            reachable |= distance != Board.UNREACHABLE;
+        }
+        return reachable;
+    }
+
+    // Assign a row along a shortest augmenting path, keeping the potentials feasible
+    private void augment(int row, long[] u, long[] v, int[] assigned) {
+        assigned[0] = row;
+        int column = 0;
+        Arrays.fill(this.minSlack, Long.MAX_VALUE);
+        Arrays.fill(this.used, false);
+        do {
+            this.used[column] = true;
+            final int current = assigned[column];
+            long delta = Long.MAX_VALUE;
+            int next = 0;
+            for (int j = 1; j <= this.n; ++j) {
+                if (this.used[j]) {
+                    continue;
+                }
+                final long slack = this.cost[(current - 1) * this.n + j - 1] - u[current] - v[j];
+                if (slack < this.minSlack[j]) {
+                    this.minSlack[j] = slack;
+                    this.way[j] = column;
+                }
+                if (this.minSlack[j] < delta) {
+                    delta = this.minSlack[j];
+                    next = j;
+                }
+            }
+            for (int j = 0; j <= this.n; ++j) {
+                if (this.used[j]) {
+                    u[assigned[j]] += delta;
+                    v[j] -= delta;
+                } else {
+                    this.minSlack[j] -= delta;
+                }
+            }
+            column = next;
+        } while (assigned[column] != 0);
+        do {
+            final int previous = this.way[column];
+            assigned[column] = assigned[previous];
+            column = previous;
+        } while (column != 0);
+    }
+
+    // Total cost of an assignment, or UNREACHABLE if it needs a box to reach a destination it never can
+    private int total(int[] assigned) {
+        long sum = 0;
+        for (int column = 1; column <= this.n; ++column) {
+            sum += this.cost[(assigned[column] - 1) * this.n + column - 1];
+        }
+        return sum >= this.forbidden ? Board.UNREACHABLE : (int) sum;
+    }
+
+    /**
+     * The number of pushes to move a box to each target.
+     */
+    @FunctionalInterface
+    interface Costs {
+
+        /**
+         * @param k      the index of the owner of the box.
+         * @param cell   the cell of the box.
+         * @param target the index of the target.
+         * @return the number of pushes, or {@link Board#UNREACHABLE} if the box can never reach the target.
+         */
+        int get(int k, int cell, int target);
+    }
+}
@@ -0,0 +1,51 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Estimates {@link Heuristic#NEAREST_DESTINATION}: a push changes the distance of one box only.
+ */
+final class NearestDestinationEstimator implements Estimator {
+
+    private final Board board;
+    private int estimate;
+
+    /**
+     * @param board the board to search on.
+     */
+    NearestDestinationEstimator(@NotNull Board board) {
+        this.board = board;
+    }
+
+    @Override
+    public int load(int @NotNull [] boxes) {
+        int sum = 0;
+        for (int k = 0; k < this.board.playerCount(); ++k) {
+            for (int b = this.board.boxStart[k]; b < this.board.boxStart[k + 1]; ++b) {
+                final int distance = this.board.pushDistances(k).getNearest(boxes[b]);
+                if (distance == Board.UNREACHABLE) {
+                    this.estimate = Board.UNREACHABLE;
+                    return Board.UNREACHABLE;
+                }
+                sum += distance;
+            }
+        }
+        this.estimate = sum;
+        return sum;
+    }
+
+    @Override
+    public int afterPush(@NotNull Step.Push push) {
+        return this.afterMove(push.player(), push.box(), this.board.neighbour(push.box(), push.direction()));
+    }
+
+    @Override
+    public int afterMove(int k, int from, int to) {
+        final var distances = this.board.pushDistances(k);
+        final int distance = distances.getNearest(to);
+        if (this.estimate == Board.UNREACHABLE || distance == Board.UNREACHABLE) {
+            return Board.UNREACHABLE;
+        }
+        return this.estimate - distances.getNearest(from) + distance;
+    }
+}
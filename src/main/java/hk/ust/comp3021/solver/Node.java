@@ -0,0 +1,57 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A search state reached by a step from another state.
+ * Only the state the step was taken from is kept, so that open lists do not hold on to whole paths;
+ * the path is recovered from the {@link TranspositionTable} once a solution is found.
+ *
+ * @param state    the search state.
+ * @param parent   the state the last step was taken from, or null for the initial state.
+ * @param step     the last step, or null for the initial state.
+ * @param pushes   the number of pushes from the initial state.
+ * @param walks    the number of walks from the initial state, see {@link Step.Walk}.
+ * @param estimate a lower bound of the number of pushes left to solve the game.
+ */
+record Node(
+    @NotNull SearchState state,
+    @Nullable SearchState parent,
+    @Nullable Step step,
+    int pushes,
+    int walks,
+    int estimate
+) {
+
+    /**
+     * A node whose walks are not counted, such as the node a search starts from.
+     *
+     * @param state    the search state.
+     * @param parent   the state the last step was taken from, or null for the initial state.
+     * @param step     the last step, or null for the initial state.
+     * @param pushes   the number of pushes from the initial state.
+     * @param estimate a lower bound of the number of pushes left to solve the game.
+     */
+    Node(@NotNull SearchState state, @Nullable SearchState parent, @Nullable Step step, int pushes, int estimate) {
+        this(state, parent, step, pushes, 0, estimate);
+    }
+
+    /**
+     * @param next     the state a step from this node leads to.
+     * @param step     the step.
+     * @param estimate a lower bound of the number of pushes left to solve the game from the next state.
+     * @return the node of the next state.
+     */
+    @NotNull Node child(@NotNull SearchState next, @NotNull Step step, int estimate) {
+        final int walks = step instanceof Step.Walk ? this.walks + 1 : this.walks;
+        return new Node(next, this.state, step, this.pushes + step.pushes(), walks, estimate);
+    }
+
+    /**
+     * @return the estimated total number of pushes of a solution through this node.
+     */
+    int cost() {
+        return this.pushes + this.estimate;
+    }
+}
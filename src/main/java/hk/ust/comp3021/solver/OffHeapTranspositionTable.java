@@ -0,0 +1,270 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A transposition table of fixed capacity stored outside the Java heap.
+ * <p>
+ * The table is a direct {@link ByteBuffer} of buckets of {@value #BUCKET_SIZE} fixed-width entries.
+ * Each entry holds the Zobrist hash of a state, the hash of the state it was reached from,
+ * the number of pushes and the step, so paths are recovered by following hashes back to the initial state.
+ * When a bucket is full, a new state replaces another one according to the {@link ReplacementPolicy},
+ * or is searched without being recorded.
+ * States that have been expanded are never replaced, as the paths to all nodes pass through them;
+ * a node whose expansion cannot be recorded because its bucket is full of expanded states is not expanded.
+ * <p>
+ * States are identified by their 64-bit Zobrist hash alone,
+ * so two states with the same hash are taken as the same, which is unlikely enough to be ignored.
+ * Buckets are guarded by striped locks, so the table can be shared by the workers of a parallel search.
+ */
+final class OffHeapTranspositionTable implements TranspositionTable {
+
+    /**
+     * Size of an entry in bytes.
+     */
+    static final int ENTRY_SIZE = 24;
+
+    /**
+     * Number of entries in a bucket, which is also the least capacity of a table.
+     */
+    static final int BUCKET_SIZE = 4;
+
+    private static final int KEY = 0;
+    private static final int PARENT = 8;
+    // Number of pushes shifted left by one, with the lowest bit set once the state has been expanded
+    private static final int PUSHES = 16;
+    private static final int STEP = 20;
+    private static final int EMPTY = -1;
+    private static final int NO_STEP = -1;
+    private static final int PUSH_FLAG = 1 << 30;
+    private static final int ASIDE_FLAG = 1 << 31;
+    private static final int DIRECTION_SHIFT = 22;
+    private static final int ASIDE_SHIFT = 20;
+    private static final int CELL_BITS = 20;
+
+    private final ByteBuffer buffer;
+    private final int bucketMask;
+    private final ReplacementPolicy policy;
+    private final Object[] locks;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param capacity the maximum number of entries, rounded down to a power of two.
+     * @param policy   the replacement policy.
+     * @param threads  the number of threads sharing the table.
+     * @throws IllegalArgumentException if the capacity is less than a bucket or the table would exceed 2 GiB.
+     */
+    OffHeapTranspositionTable(int capacity, @NotNull ReplacementPolicy policy, int threads) {
+        if (capacity < BUCKET_SIZE || (long) capacity * ENTRY_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Transposition table capacity out of range: " + capacity);
+        }
+        final int buckets = Integer.highestOneBit(capacity / BUCKET_SIZE);
+        this.buffer = ByteBuffer.allocateDirect(buckets * BUCKET_SIZE * ENTRY_SIZE);
+        this.bucketMask = buckets - 1;
+        this.policy = policy;
+        for (int entry = 0; entry < buckets * BUCKET_SIZE; ++entry) {
+            this.buffer.putInt(entry * ENTRY_SIZE + PUSHES, EMPTY);
+        }
+        final int lockCount = Math.min(buckets, Integer.highestOneBit(Math.max(1, threads) * 64 - 1) << 1);
+        this.locks = new Object[lockCount];
+        for (int i = 0; i < lockCount; ++i) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public boolean offer(@NotNull Node node) {
+        final long key = node.state().hash;
+        final int bucket = this.bucketOf(key);
+        synchronized (this.lockOf(bucket)) {
+            final int found = this.find(bucket, key);
+            if (found != EMPTY) {
+                if (this.pushesAt(found) <= node.pushes()) {
+                    return false;
+                }
+                this.write(found, node, this.isExpandedAt(found));
+                return true;
+            }
+            final int free = this.findFree(bucket);
+            if (free != EMPTY) {
+                this.write(free, node, false);
+                this.size.incrementAndGet();
+                return true;
+            }
+            final int victim = this.findVictim(bucket);
+            if (victim != EMPTY
+                && (this.policy == ReplacementPolicy.ALWAYS_REPLACE || this.pushesAt(victim) >= node.pushes())) {
+                this.write(victim, node, false);
+            }
+            // Search the state even if it could not be recorded
+            return true;
+        }
+    }
+
+    @Override
+    public boolean isSuperseded(@NotNull Node node) {
+        final long key = node.state().hash;
+        final int bucket = this.bucketOf(key);
+        synchronized (this.lockOf(bucket)) {
+            final int found = this.find(bucket, key);
+            return found != EMPTY && this.pushesAt(found) < node.pushes();
+        }
+    }
+
+    @Override
+    public boolean markExpanded(@NotNull Node node) {
+        final long key = node.state().hash;
+        final int bucket = this.bucketOf(key);
+        synchronized (this.lockOf(bucket)) {
+            int entry = this.find(bucket, key);
+            if (entry == EMPTY) {
+                entry = this.findFree(bucket);
+                if (entry != EMPTY) {
+                    this.size.incrementAndGet();
+                } else {
+                    entry = this.findVictim(bucket);
+                    if (entry == EMPTY) {
+                        return false;
+                    }
+                }
+            }
+            this.write(entry, node, true);
+            return true;
+        }
+    }
+
+    @Override
+    public @NotNull List<Step> path(@NotNull Node goal) {
+        final var steps = new ArrayList<Step>();
+        if (goal.step() == null) {
+            return steps;
+        }
+        steps.add(goal.step());
+        long key = goal.parent().hash;
+        while (true) {
+            final int bucket = this.bucketOf(key);
+            final int packed;
+            synchronized (this.lockOf(bucket)) {
+                final int entry = this.find(bucket, key);
+                if (entry == EMPTY) {
+                    throw new IllegalStateException("Expanded state missing from transposition table.");
+                }
+                packed = this.buffer.getInt(this.offsetOf(entry) + STEP);
+                key = this.buffer.getLong(this.offsetOf(entry) + PARENT);
+            }
+            if (packed == NO_STEP) {
+                break;
+            }
+            steps.add(unpack(packed));
+        }
+        Collections.reverse(steps);
+        return steps;
+    }
+
+    @Override
+    public int size() {
+        return this.size.get();
+    }
+
+    private int bucketOf(long key) {
+        return (int) (key ^ (key >>> 32)) & this.bucketMask;
+    }
+
+    private Object lockOf(int bucket) {
+        return this.locks[bucket & (this.locks.length - 1)];
+    }
+
+    private int offsetOf(int entry) {
+        return entry * ENTRY_SIZE;
+    }
+
+    private int find(int bucket, long key) {
+        for (int entry = bucket * BUCKET_SIZE; entry < (bucket + 1) * BUCKET_SIZE; ++entry) {
+            final int offset = this.offsetOf(entry);
+            if (this.buffer.getInt(offset + PUSHES) != EMPTY && this.buffer.getLong(offset + KEY) == key) {
+                return entry;
+            }
+        }
+        return EMPTY;
+    }
+
+    private int findFree(int bucket) {
+        for (int entry = bucket * BUCKET_SIZE; entry < (bucket + 1) * BUCKET_SIZE; ++entry) {
+            if (this.buffer.getInt(this.offsetOf(entry) + PUSHES) == EMPTY) {
+                return entry;
+            }
+        }
+        return EMPTY;
+    }
+
+    // The entry of a state not expanded yet with the most pushes, or EMPTY if all have been expanded
+    private int findVictim(int bucket) {
+        int victim = EMPTY;
+        for (int entry = bucket * BUCKET_SIZE; entry < (bucket + 1) * BUCKET_SIZE; ++entry) {
+            if (!this.isExpandedAt(entry) && (victim == EMPTY || this.pushesAt(entry) > this.pushesAt(victim))) {
+                victim = entry;
+            }
+        }
+        return victim;
+    }
+
+    private int pushesAt(int entry) {
+        return this.buffer.getInt(this.offsetOf(entry) + PUSHES) >>> 1;
+    }
+
+    private boolean isExpandedAt(int entry) {
+        return (this.buffer.getInt(this.offsetOf(entry) + PUSHES) & 1) != 0;
+    }
+
+    private void write(int entry, Node node, boolean expanded) {
+        final int offset = this.offsetOf(entry);
+        this.buffer.putLong(offset + KEY, node.state().hash);
+        this.buffer.putLong(offset + PARENT, node.parent() == null ? 0 : node.parent().hash);
+        this.buffer.putInt(offset + PUSHES, node.pushes() << 1 | (expanded ? 1 : 0));
+        this.buffer.putInt(offset + STEP, node.step() == null ? NO_STEP : pack(node.step()));
+    }
+
+    // Player index in bits 24 to 29, the direction of a push in bits 22 and 23, and the direction another player
+    // steps aside in bits 20 and 21 below the cell, flagged by the highest bit.
+    // A macro move is kept as its first push, which an expander follows through to the same macro move again.
+    private static int pack(Step step) {
+        return switch (step) {
+            case Step.Push push -> packPush(push.player(), push.box(), push.direction(), push.aside());
+            case Step.Macro macro -> packPush(macro.player(), macro.box(), macro.direction(), null);
+            case Step.Walk walk -> walk.player() << 24 | checkCell(walk.to());
+        };
+    }
+
+    private static int packPush(int player, int box, Direction direction, @Nullable Direction aside) {
+        final int packed = PUSH_FLAG | player << 24 | direction.ordinal() << DIRECTION_SHIFT | checkCell(box);
+        return aside == null ? packed : packed | ASIDE_FLAG | aside.ordinal() << ASIDE_SHIFT;
+    }
+
+    private static Step unpack(int packed) {
+        final int player = (packed >>> 24) & 0x3F;
+        final int cell = packed & ((1 << CELL_BITS) - 1);
+        if ((packed & PUSH_FLAG) != 0) {
+            return new Step.Push(
+                player,
+                cell,
+                Direction.ALL[(packed >>> DIRECTION_SHIFT) & 3],
+                (packed & ASIDE_FLAG) == 0 ? null : Direction.ALL[(packed >>> ASIDE_SHIFT) & 3]
+            );
+        }
+        return new Step.Walk(player, cell);
+    }
+
+    private static int checkCell(int cell) {
+        if (cell >>> CELL_BITS != 0) {
+            throw new IllegalArgumentException("Game map too large for the transposition table.");
+        }
+        return cell;
+    }
+}
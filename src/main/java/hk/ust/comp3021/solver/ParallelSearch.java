@@ -0,0 +1,259 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A best-first search run by several workers on a {@link ForkJoinPool}.
+ * <p>
+ * Each worker has its own open list and adds the successors it generates to it,
+ * so that a worker mostly follows its own branch of the search without contention.
+ * A worker that runs out of nodes steals the best node of another worker, or else waits until a node is added.
+ * All workers share one transposition table.
+ * <p>
+ * Workers do not stop at the first solution, since another worker may still hold a node leading to a shorter one.
+ * Instead, nodes whose estimated cost reaches the number of pushes of the best solution so far are dropped,
+ * and the search ends once every worker is waiting, as only a worker expanding a node adds nodes.
+ * As the estimate never overestimates, the result has as few pushes as the result of the sequential search.
+ */
+final class ParallelSearch {
+
+    private final Board board;
+    private final Heuristic heuristic;
+    private final @Nullable PatternDatabase patterns;
+    private final @Nullable Macros macros;
+    private final int threads;
+    private final TranspositionTable table;
+    private final Worker[] workers;
+    // Guards waiting for nodes and the end of the search
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition nodesAdded = this.idleLock.newCondition();
+    // Number of workers waiting for nodes, only written with idleLock held
+    private volatile int idle;
+    // Whether the search has ended, guarded by idleLock
+    private boolean finished;
+    private volatile Node best;
+    private volatile int bestPushes = Integer.MAX_VALUE;
+
+    /**
+     * @param board     the board to search on.
+     * @param heuristic the heuristic guiding the search.
+     * @param patterns  the pattern databases of the board, or null if there are none.
+     * @param macros    the macro moves to take, or null to push one cell at a time.
+     * @param threads   the number of workers.
+     * @param table     the transposition table shared by the workers, which must be safe to use from several threads.
+     */
+    ParallelSearch(
+        @NotNull Board board,
+        @NotNull Heuristic heuristic,
+        @Nullable PatternDatabase patterns,
+        @Nullable Macros macros,
+        int threads,
+        @NotNull TranspositionTable table
+    ) {
+        this.board = board;
+        this.heuristic = heuristic;
+        this.patterns = patterns;
+        this.macros = macros;
+        this.threads = threads;
+        this.table = table;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; ++i) {
+            this.workers[i] = new Worker();
+        }
+    }
+
+    /**
+     * Search from the initial node until the best solution is found or the search space is exhausted.
+     *
+     * @param initial    the initial node.
+     * @param statistics receives the statistics of each worker.
+     * @return the goal node of the solution with the fewest pushes, or null if there is no solution.
+     */
+    @Nullable Node run(@NotNull Node initial, @NotNull List<WorkerStatistics> statistics) {
+        this.table.offer(initial);
+        this.workers[0].open.add(initial);
+
+        final var pool = new ForkJoinPool(this.threads);
+        try {
+            final var tasks = new ArrayList<ForkJoinTask<?>>();
+            for (Worker worker: this.workers) {
+                tasks.add(pool.submit(worker));
+            }
+            for (var task: tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (Worker worker: this.workers) {
+            statistics.add(new WorkerStatistics(worker.expanded, worker.dropped, worker.nanos));
+        }
+        return this.best;
+    }
+
+    // Wake up to the given number of waiting workers, after nodes have been added
+    private void wake(int count) {
+        this.idleLock.lock();
+        try {
+            for (int i = 0; i < count; ++i) {
+                this.nodesAdded.signal();
+            }
+        } finally {
+            this.idleLock.unlock();
+        }
+    }
+
+    // End the search, also if a worker failed, so that no other worker waits for its nodes
+    private void finish() {
+        this.idleLock.lock();
+        try {
+            this.finished = true;
+            this.nodesAdded.signalAll();
+        } finally {
+            this.idleLock.unlock();
+        }
+    }
+
+    private synchronized void offerSolution(Node goal) {
+        if (goal.pushes() < this.bestPushes) {
+            this.best = goal;
+            this.bestPushes = goal.pushes();
+        }
+    }
+
+    /**
+     * A worker of the search, with its own open list, expander and estimator.
+     */
+    private final class Worker implements Runnable {
+
+        // Guarded by itself, as other workers steal from it
+        private final PriorityQueue<Node> open = new PriorityQueue<>(Solver.BY_COST);
+        private final Expander expander = new Expander(ParallelSearch.this.board, true, ParallelSearch.this.macros);
+        private final Estimator estimator = Estimator.create(
+            ParallelSearch.this.board,
+            ParallelSearch.this.heuristic,
+            ParallelSearch.this.patterns
+        );
+        private long expanded;
+        private long dropped;
+        private long nanos;
+        // Number of nodes added by the expansion in progress
+        private int added;
+
+        @Override
+        public void run() {
+            final long start = System.nanoTime();
+            try {
+                while (true) {
+                    Node node = this.poll();
+                    if (node == null) {
+                        node = this.awaitNode();
+                    }
+                    if (node == null) {
+                        break;
+                    }
+                    this.process(node);
+                }
+            } finally {
+                ParallelSearch.this.finish();
+            }
+            this.nanos = System.nanoTime() - start;
+        }
+
+        // Wait until a node can be stolen, or return null once the search has ended
+        private @Nullable Node awaitNode() {
+            final var search = ParallelSearch.this;
+            search.idleLock.lock();
+            try {
+                // Counted as waiting before looking for nodes, so that a worker adding one after the look wakes it
+                search.idle++;
+                while (!search.finished) {
+                    final Node node = this.poll();
+                    if (node != null) {
+                        search.idle--;
+                        return node;
+                    }
+                    if (search.idle == search.threads) {
+                        search.finished = true;
+                        search.nodesAdded.signalAll();
+                        break;
+                    }
+                    search.nodesAdded.awaitUninterruptibly();
+                }
+                return null;
+            } finally {
+                search.idleLock.unlock();
+            }
+        }
+
+        private void process(Node node) {
+            if (node.cost() >= ParallelSearch.this.bestPushes
+                || ParallelSearch.this.table.isSuperseded(node)) {
+                return;
+            }
+            if (node.estimate() == 0) {
+                ParallelSearch.this.offerSolution(node);
+                return;
+            }
+            if (!ParallelSearch.this.table.markExpanded(node)) {
+                this.dropped++;
+                return;
+            }
+            this.expanded++;
+            this.estimator.load(node.state().boxes);
+            this.added = 0;
+            this.expander.expand(node.state(), (next, step) -> {
+                final int pushes = node.pushes() + step.pushes();
+                final int estimate = this.estimator.afterStep(node, step);
+                if (estimate == Board.UNREACHABLE || pushes + estimate >= ParallelSearch.this.bestPushes) {
+                    return;
+                }
+                final var child = node.child(next, step, estimate);
+                if (ParallelSearch.this.table.offer(child)) {
+                    synchronized (this.open) {
+                        this.open.add(child);
+                    }
+                    this.added++;
+                }
+            });
+            if (this.added > 0 && ParallelSearch.this.idle > 0) {
+                ParallelSearch.this.wake(this.added);
+            }
+        }
+
+        // Take the best node of this worker, or steal one from another worker
+        private Node poll() {
+            synchronized (this.open) {
+                final Node node = this.open.poll();
+                if (node != null) {
+                    return node;
+                }
+            }
+            final var workers = ParallelSearch.this.workers;
+            final int offset = ThreadLocalRandom.current().nextInt(workers.length);
+            for (int i = 0; i < workers.length; ++i) {
+                final Worker victim = workers[(offset + i) % workers.length];
+                if (victim == this) {
+                    continue;
+                }
+                synchronized (victim.open) {
+                    final Node node = victim.open.poll();
+                    if (node != null) {
+                        return node;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
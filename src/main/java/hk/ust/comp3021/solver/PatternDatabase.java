@@ -0,0 +1,433 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.entities.Player;
+import hk.ust.comp3021.entities.Wall;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.utils.ShouldNotReachException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Pattern databases of a board with one player, for {@link Heuristic#PATTERN_DATABASE}.
+ * <p>
+ * The destinations are split into groups of up to {@value #MAX_GROUP_SIZE} destinations close to each other.
+ * The database of a group holds, for every placement of as many boxes as the group has destinations on cells from
+ * which a box can reach a destination, the fewest pushes that move those boxes onto the destinations of the group,
+ * with all other boxes removed and the player starting wherever suits it best.
+ * The boxes that end up on the destinations of a group take at least that many pushes in any solution,
+ * since removing boxes only makes pushing easier, so these are lower bounds.
+ * <p>
+ * A database is found by pulling boxes backwards from the filled group, by a breadth-first search over placements
+ * and cells of the player, and is one byte per placement, indexed by the combinatorial number system.
+ * The groups are only built if the search of each takes at most {@value #MAX_BUILD_STATES} states, so the size of
+ * the group shrinks on large maps, and maps too large for groups of two have no databases.
+ * On maps with more than one player, whose boxes only their owners can push, there are no databases either.
+ * <p>
+ * Databases are built once per map. With a directory, they are kept in a file named by the SHA-256 hash of the map
+ * text, and memory-mapped on later runs instead of built again.
+ * A file that does not match the map, e.g., written by another version, is built and written again.
+ * Instances are immutable, and safe to share between threads.
+ */
+final class PatternDatabase {
+
+    /**
+     * The most destinations in a group.
+     */
+    static final int MAX_GROUP_SIZE = 3;
+
+    // Magic number and version at the start of a file
+    private static final int MAGIC = 0x53504442;
+    private static final int VERSION = 1;
+    // Most placements times player cells searched to build the database of a group
+    private static final long MAX_BUILD_STATES = 1L << 22;
+    // Stored pushes of placements that cannot fill the group, and the most pushes stored,
+    // which placements that take even more are stored as
+    private static final int UNKNOWN = 0xFF;
+    private static final int FAR = 0xFE;
+    // Bits of each cell index of a placement packed into a long
+    private static final int CELL_BITS = 10;
+    private static final String FILE_SUFFIX = ".pdb";
+
+    // Index of each cell among the cells a box can reach a destination from, NONE on other cells
+    private final int[] liveIndex;
+    // Destination indices of each group
+    private final int[][] groups;
+    // Offset of the database of each group in the data
+    private final int[] offsets;
+    // Number of subsets of each size of the live cells, at binomials[n][k]
+    private final long[][] binomials;
+    private final ByteBuffer data;
+
+    private PatternDatabase(int[] liveIndex, int liveCount, int[][] groups, ByteBuffer data) {
+        this.liveIndex = liveIndex;
+        this.groups = groups;
+        this.binomials = binomials(liveCount);
+        this.offsets = new int[groups.length];
+        for (int g = 0, offset = headerSize(groups); g < groups.length; ++g) {
+            this.offsets[g] = offset;
+            offset += (int) this.binomials[liveCount][groups[g].length];
+        }
+        this.data = data;
+    }
+
+    /**
+     * Get the pattern databases of a board, building them unless a file of the map is found in the directory.
+     *
+     * @param board     the board to search on.
+     * @param gameMap   the game map of the board.
+     * @param directory the directory to keep the file of the map in, or null to build the databases in memory.
+     * @return the pattern databases.
+     * @throws UncheckedIOException if the file cannot be read or written.
+     */
+    static @NotNull PatternDatabase load(@NotNull Board board, @NotNull GameMap gameMap, @Nullable Path directory) {
+        final int[] liveIndex = new int[board.area];
+        int liveCount = 0;
+        int floorCount = 0;
+        for (int cell = 0; cell < board.area; ++cell) {
+            liveIndex[cell] = board.isFloor(cell) && board.playerCount() == 1 && !board.isDead(0, cell)
+                ? liveCount++
+                : Board.NONE;
+            floorCount += board.isFloor(cell) ? 1 : 0;
+        }
+        final int[][] groups = board.playerCount() == 1
+            ? findGroups(board, liveCount, floorCount)
+            : new int[0][];
+        final byte[] header = header(board, liveCount, groups);
+        final long[][] binomials = binomials(liveCount);
+        long size = header.length;
+        for (int[] group: groups) {
+            size += binomials[liveCount][group.length];
+        }
+
+        if (directory == null) {
+            final byte[] data = build(board, liveIndex, liveCount, groups, header, size);
+            return new PatternDatabase(liveIndex, liveCount, groups, ByteBuffer.wrap(data));
+        }
+        final var file = directory.resolve(hash(gameMap) + FILE_SUFFIX);
+        try {
+            if (Files.isRegularFile(file) && Files.size(file) == size) {
+                final var mapped = map(file, size);
+                if (mapped.slice(0, header.length).equals(ByteBuffer.wrap(header))) {
+                    return new PatternDatabase(liveIndex, liveCount, groups, mapped);
+                }
+            }
+            // Write to a temporary file first, so that other solvers never map a file that is being written
+            Files.createDirectories(directory);
+            final var temporary = Files.createTempFile(directory, "pdb-", ".tmp");
+            try {
+                Files.write(temporary, build(board, liveIndex, liveCount, groups, header, size));
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            return new PatternDatabase(liveIndex, liveCount, groups, map(file, size));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load pattern database", e);
+        }
+    }
+
+    /**
+     * @return the number of groups of destinations.
+     */
+    int groupCount() {
+        return this.groups.length;
+    }
+
+    /**
+     * @param g the index of a group.
+     * @return the indices of the destinations of the group, as in {@link hk.ust.comp3021.game.PushDistances}.
+     */
+    int @NotNull [] group(int g) {
+        return this.groups[g];
+    }
+
+    /**
+     * @param g     the index of a group.
+     * @param cells the cells of as many boxes as the group has destinations, in any order.
+     * @return the fewest pushes moving the boxes onto the destinations of the group, at most {@value #FAR},
+     * or {@link Board#UNREACHABLE} if they never can.
+     */
+    int pushes(int g, int @NotNull [] cells) {
+        // The rank of the placement, with each cell at its position in ascending order among the few of a group
+        long rank = 0;
+        for (int cell: cells) {
+            final int index = this.liveIndex[cell];
+            if (index == Board.NONE) {
+                return Board.UNREACHABLE;
+            }
+            int position = 0;
+            for (int other: cells) {
+                position += this.liveIndex[other] < index ? 1 : 0;
+            }
+            rank += this.binomials[index][position + 1];
+        }
+        final int pushes = this.data.get(this.offsets[g] + (int) rank) & 0xFF;
+        return pushes == UNKNOWN ? Board.UNREACHABLE : pushes;
+    }
+
+    // Split the destinations into groups of the largest size whose databases can be built, each taking the first
+    // destination left and those closest to it
+    private static int[][] findGroups(Board board, int liveCount, int floorCount) {
+        final var distances = board.pushDistances(0);
+        final int count = distances.getDestinationCount();
+        int size = Math.min(MAX_GROUP_SIZE, count);
+        final long[][] binomials = binomials(liveCount);
+        while (size > 1 && binomials[liveCount][size] * floorCount > MAX_BUILD_STATES) {
+            size--;
+        }
+        if (size < 2 || liveCount >= 1 << CELL_BITS) {
+            return new int[0][];
+        }
+
+        final boolean[] grouped = new boolean[count];
+        final var groups = new ArrayList<int[]>();
+        for (int first = 0; first < count; ++first) {
+            if (grouped[first]) {
+                continue;
+            }
+            final int[] group = new int[Math.min(size, count - groups.size() * size)];
+            group[0] = first;
+            grouped[first] = true;
+            for (int i = 1; i < group.length; ++i) {
+                int closest = Board.NONE;
+                for (int d = first + 1; d < count; ++d) {
+                    if (!grouped[d] && (closest == Board.NONE
+                        || manhattan(board, first, d) < manhattan(board, first, closest))) {
+                        closest = d;
+                    }
+                }
+                group[i] = closest;
+                grouped[closest] = true;
+            }
+            Arrays.sort(group);
+            groups.add(group);
+        }
+        return groups.toArray(int[][]::new);
+    }
+
+    private static int manhattan(Board board, int a, int b) {
+        final int cellA = board.pushDistances(0).getDestinationCell(a);
+        final int cellB = board.pushDistances(0).getDestinationCell(b);
+        return Math.abs(cellA % board.width - cellB % board.width)
+            + Math.abs(cellA / board.width - cellB / board.width);
+    }
+
+    // Build the databases of every group after the header
+    private static byte[] build(Board board, int[] liveIndex, int liveCount, int[][] groups, byte[] header, long size) {
+        final long[][] binomials = binomials(liveCount);
+        final var out = ByteBuffer.allocate((int) size);
+        out.put(header);
+        for (int[] group: groups) {
+            out.put(buildGroup(board, liveIndex, liveCount, binomials, group));
+        }
+        return out.array();
+    }
+
+    // Pull boxes away from the filled group, layer by layer of pulls, with walks of the player taking no pull
+    private static byte[] buildGroup(Board board, int[] liveIndex, int liveCount, long[][] binomials, int[] group) {
+        final int size = group.length;
+        final int placements = (int) binomials[liveCount][size];
+        final int[] floorIndex = new int[board.area];
+        int floorCount = 0;
+        for (int cell = 0; cell < board.area; ++cell) {
+            floorIndex[cell] = board.isFloor(cell) ? floorCount++ : Board.NONE;
+        }
+        // Pulls to each placement and cell of the player, at index placement * floorCount + floor index
+        final byte[] pulls = new byte[placements * floorCount];
+        Arrays.fill(pulls, (byte) UNKNOWN);
+
+        final int[] boxes = new int[size];
+        for (int i = 0; i < size; ++i) {
+            boxes[i] = liveIndex[board.pushDistances(0).getDestinationCell(group[i])];
+        }
+        var current = new long[Math.max(16, floorCount)];
+        int currentSize = 0;
+        var next = new long[current.length];
+        int nextSize = 0;
+        final long filled = rank(binomials, boxes) * floorCount;
+        for (int cell = 0; cell < board.area; ++cell) {
+            if (board.isFloor(cell) && indexOf(boxes, liveIndex[cell]) == Board.NONE) {
+                pulls[(int) filled + floorIndex[cell]] = 0;
+                current[currentSize++] = pack(boxes, cell);
+            }
+        }
+
+        final int[] pulled = new int[size];
+        int layer = 0;
+        for (; layer < FAR && currentSize > 0; ++layer) {
+            for (int i = 0; i < currentSize; ++i) {
+                final int player = unpack(current[i], boxes);
+                final long placement = rank(binomials, boxes);
+                if ((pulls[(int) (placement * floorCount) + floorIndex[player]] & 0xFF) != layer) {
+                    continue;
+                }
+                for (Direction direction: Direction.ALL) {
+                    final int to = board.neighbour(player, direction);
+                    if (to == Board.NONE) {
+                        continue;
+                    }
+                    final int box = indexOf(boxes, liveIndex[to]);
+                    if (box == Board.NONE) {
+                        // Walk into the same layer
+                        final int at = (int) (placement * floorCount) + floorIndex[to];
+                        if ((pulls[at] & 0xFF) > layer) {
+                            pulls[at] = (byte) layer;
+                            if (currentSize == current.length) {
+                                current = Arrays.copyOf(current, current.length * 2);
+                            }
+                            current[currentSize++] = pack(boxes, to);
+                        }
+                        continue;
+                    }
+                    // Pull the box onto the cell of the player, who steps back
+                    final int back = board.neighbour(player, direction.opposite());
+                    if (back == Board.NONE || indexOf(boxes, liveIndex[back]) != Board.NONE
+                        || liveIndex[player] == Board.NONE) {
+                        continue;
+                    }
+                    System.arraycopy(boxes, 0, pulled, 0, size);
+                    pulled[box] = liveIndex[player];
+                    Arrays.sort(pulled);
+                    final int at = (int) (rank(binomials, pulled) * floorCount) + floorIndex[back];
+                    if ((pulls[at] & 0xFF) == UNKNOWN) {
+                        pulls[at] = (byte) (layer + 1);
+                        if (nextSize == next.length) {
+                            next = Arrays.copyOf(next, next.length * 2);
+                        }
+                        next[nextSize++] = pack(pulled, back);
+                    }
+                }
+            }
+            final var swap = current;
+            current = next;
+            currentSize = nextSize;
+            next = swap;
+            nextSize = 0;
+        }
+        // Placements the search did not get to before giving up take more pulls than it did
+        final boolean complete = currentSize == 0;
+
+        final byte[] database = new byte[placements];
+        for (int placement = 0; placement < placements; ++placement) {
+            int fewest = UNKNOWN;
+            for (int player = 0; player < floorCount; ++player) {
+                fewest = Math.min(fewest, pulls[placement * floorCount + player] & 0xFF);
+            }
+            database[placement] = (byte) (fewest == UNKNOWN && !complete ? FAR : fewest);
+        }
+        return database;
+    }
+
+    // Magic number, version, size of the board, number of live cells, and the destination cells of each group
+    private static byte[] header(Board board, int liveCount, int[][] groups) {
+        final var header = ByteBuffer.allocate(headerSize(groups));
+        header.putInt(MAGIC).putInt(VERSION).putInt(board.width).putInt(board.height).putInt(liveCount);
+        header.putInt(groups.length);
+        for (int[] group: groups) {
+            header.putInt(group.length);
+            for (int d: group) {
+                header.putInt(board.pushDistances(0).getDestinationCell(d));
+            }
+        }
+        return header.array();
+    }
+
+    private static int headerSize(int[][] groups) {
+        return Integer.BYTES * (6 + groups.length + Arrays.stream(groups).mapToInt(group -> group.length).sum());
+    }
+
+    private static ByteBuffer map(Path file, long size) throws IOException {
+        // The mapping stays valid after the channel is closed
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    // SHA-256 of the map text: one line per row, with each cell as in a map file
+    private static String hash(GameMap gameMap) {
+        final var text = new StringBuilder();
+        for (int y = 0; y < gameMap.getMaxHeight(); ++y) {
+            for (int x = 0; x < gameMap.getMaxWidth(); ++x) {
+                final var position = Position.of(x, y);
+                text.append(switch (gameMap.getEntity(position)) {
+                    case Wall wall -> '#';
+                    case Player player -> (char) ('A' + player.getId());
+                    case Box box -> (char) ('a' + box.getPlayerId());
+                    case Empty empty -> gameMap.getDestinations().contains(position) ? '@' : '.';
+                    case null, default -> ' ';
+                });
+            }
+            text.append('\n');
+        }
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new ShouldNotReachException();
+        }
+    }
+
+    private static long[][] binomials(int n) {
+        final long[][] binomials = new long[n + 1][MAX_GROUP_SIZE + 1];
+        for (int i = 0; i <= n; ++i) {
+            binomials[i][0] = 1;
+            for (int k = 1; k <= MAX_GROUP_SIZE; ++k) {
+                binomials[i][k] = i == 0 ? 0 : binomials[i - 1][k - 1] + binomials[i - 1][k];
+            }
+        }
+        return binomials;
+    }
+
+    // Index of a placement of live cell indices in ascending order among all placements of as many cells
+    private static long rank(long[][] binomials, int[] sorted) {
+        long rank = 0;
+        for (int i = 0; i < sorted.length; ++i) {
+            rank += binomials[sorted[i]][i + 1];
+        }
+        return rank;
+    }
+
+    private static int indexOf(int[] boxes, int index) {
+        for (int i = 0; i < boxes.length; ++i) {
+            if (boxes[i] == index && index != Board.NONE) {
+                return i;
+            }
+        }
+        return Board.NONE;
+    }
+
+    private static long pack(int[] boxes, int player) {
+        long packed = (long) player << 32;
+        for (int i = 0; i < boxes.length; ++i) {
+            packed |= (long) boxes[i] << (i * CELL_BITS);
+        }
+        return packed;
+    }
+
+    // Unpack the live cell indices of the boxes into the array, and return the cell of the player
+    private static int unpack(long packed, int[] boxes) {
+        for (int i = 0; i < boxes.length; ++i) {
+            boxes[i] = (int) (packed >>> (i * CELL_BITS)) & ((1 << CELL_BITS) - 1);
+        }
+        return (int) (packed >>> 32);
+    }
+}
@@ -0,0 +1,242 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates {@link Heuristic#PATTERN_DATABASE} from the pattern databases of a board with one player.
+ * <p>
+ * The boxes that end up on the destinations of each group are disjoint, and take at least the pushes of the database
+ * of the group, so the sum over the groups of the fewest pushes of any boxes is a lower bound.
+ * The pushes of the database of a group are also never fewer than the push distances of the best assignment of the
+ * same boxes to its destinations, and the assignments of all groups together make up an assignment of every box.
+ * So the minimum-cost matching plus the sum over the groups of the fewest pushes any boxes take beyond their own
+ * assignment is a lower bound as well, and never lower than the matching. The estimate is the larger of both.
+ * <p>
+ * The fewest pushes of each group over the subsets of boxes without each box are kept for the loaded state,
+ * so that the estimate after a push only looks up the subsets with the pushed box.
+ */
+final class PatternDatabaseEstimator implements Estimator {
+
+    private final Board board;
+    private final PatternDatabase patterns;
+    private final MatchingEstimator matching;
+    // Subsets of box indices of each size, and the indices of the subsets with each box
+    private final int[][][] subsets;
+    private final int[][][] subsetsWith;
+    // Orders of the indices of each size, to assign the boxes of a subset to the destinations of a group
+    private final int[][][] permutations;
+    // Cell of each box of the loaded state
+    private final int[] cells;
+    // Fewest pushes of each group, and fewest pushes beyond the assignment, over the subsets without each box
+    private final int[][] pushesWithout;
+    private final int[][] surplusWithout;
+    // Scratch buffers of the cells of a subset, and of the pushes of every subset of a group
+    private final int[][] subsetCells;
+    private final int[] subsetPushes;
+    private final int[] subsetSurplus;
+    // Pushes of the last subset evaluated, and how many more they are than the best assignment of the subset
+    private int lastPushes;
+    private int lastSurplus;
+    private int estimate;
+
+    /**
+     * @param board    the board to search on, with one player.
+     * @param patterns the pattern databases of the board.
+     */
+    PatternDatabaseEstimator(@NotNull Board board, @NotNull PatternDatabase patterns) {
+        this.board = board;
+        this.patterns = patterns;
+        this.matching = new MatchingEstimator(board);
+        final int n = board.boxCount();
+        this.subsets = new int[PatternDatabase.MAX_GROUP_SIZE + 1][][];
+        this.subsetsWith = new int[PatternDatabase.MAX_GROUP_SIZE + 1][][];
+        this.permutations = new int[PatternDatabase.MAX_GROUP_SIZE + 1][][];
+        this.subsetCells = new int[PatternDatabase.MAX_GROUP_SIZE + 1][];
+        int most = 0;
+        for (int g = 0; g < patterns.groupCount(); ++g) {
+            final int size = patterns.group(g).length;
+            if (this.subsets[size] != null) {
+                continue;
+            }
+            final var found = new ArrayList<int[]>();
+            addSubsets(found, new int[size], 0, 0, n);
+            this.subsets[size] = found.toArray(int[][]::new);
+            this.subsetsWith[size] = new int[n][];
+            for (int b = 0; b < n; ++b) {
+                final int box = b;
+                this.subsetsWith[size][b] = IntStream.range(0, found.size())
+                    .filter(i -> Arrays.stream(found.get(i)).anyMatch(member -> member == box))
+                    .toArray();
+            }
+            final var orders = new ArrayList<int[]>();
+            addPermutations(orders, new int[size], new boolean[size], 0);
+            this.permutations[size] = orders.toArray(int[][]::new);
+            this.subsetCells[size] = new int[size];
+            most = Math.max(most, found.size());
+        }
+        this.cells = new int[n];
+        this.pushesWithout = new int[patterns.groupCount()][n];
+        this.surplusWithout = new int[patterns.groupCount()][n];
+        this.subsetPushes = new int[most];
+        this.subsetSurplus = new int[most];
+    }
+
+    @Override
+    public int load(int @NotNull [] boxes) {
+        final int matched = this.matching.load(boxes);
+        if (matched == Board.UNREACHABLE) {
+            this.estimate = Board.UNREACHABLE;
+            return Board.UNREACHABLE;
+        }
+        System.arraycopy(boxes, 0, this.cells, 0, this.cells.length);
+        long pushes = 0;
+        long surplus = 0;
+        for (int g = 0; g < this.patterns.groupCount(); ++g) {
+            final int[][] groupSubsets = this.subsets[this.patterns.group(g).length];
+            int fewestPushes = Board.UNREACHABLE;
+            int fewestSurplus = Board.UNREACHABLE;
+            for (int s = 0; s < groupSubsets.length; ++s) {
+                this.evaluate(g, groupSubsets[s]);
+                this.subsetPushes[s] = this.lastPushes;
+                this.subsetSurplus[s] = this.lastSurplus;
+                fewestPushes = Math.min(fewestPushes, this.lastPushes);
+                fewestSurplus = Math.min(fewestSurplus, this.lastSurplus);
+            }
+            if (fewestPushes == Board.UNREACHABLE) {
+                this.estimate = Board.UNREACHABLE;
+                return Board.UNREACHABLE;
+            }
+            pushes += fewestPushes;
+            surplus += fewestSurplus;
+            this.fillWithout(groupSubsets, this.subsetPushes, fewestPushes, this.pushesWithout[g]);
+            this.fillWithout(groupSubsets, this.subsetSurplus, fewestSurplus, this.surplusWithout[g]);
+        }
+        this.estimate = (int) Math.max(matched + surplus, pushes);
+        return this.estimate;
+    }
+
+    @Override
+    public int afterPush(@NotNull Step.Push push) {
+        return this.afterMove(push.player(), push.box(), this.board.neighbour(push.box(), push.direction()));
+    }
+
+    @Override
+    public int afterMove(int k, int from, int to) {
+        if (this.estimate == Board.UNREACHABLE) {
+            return Board.UNREACHABLE;
+        }
+        final int matched = this.matching.afterMove(k, from, to);
+        if (matched == Board.UNREACHABLE) {
+            return Board.UNREACHABLE;
+        }
+        int b = 0;
+        while (this.cells[b] != from) {
+            b++;
+        }
+        this.cells[b] = to;
+        long pushes = 0;
+        long surplus = 0;
+        for (int g = 0; g < this.patterns.groupCount(); ++g) {
+            final int size = this.patterns.group(g).length;
+            int fewestPushes = this.pushesWithout[g][b];
+            int fewestSurplus = this.surplusWithout[g][b];
+            for (int s: this.subsetsWith[size][b]) {
+                this.evaluate(g, this.subsets[size][s]);
+                fewestPushes = Math.min(fewestPushes, this.lastPushes);
+                fewestSurplus = Math.min(fewestSurplus, this.lastSurplus);
+            }
+            if (fewestPushes == Board.UNREACHABLE) {
+                this.cells[b] = from;
+                return Board.UNREACHABLE;
+            }
+            pushes += fewestPushes;
+            surplus += fewestSurplus;
+        }
+        this.cells[b] = from;
+        return (int) Math.max(matched + surplus, pushes);
+    }
+
+    // Look up the pushes of a subset of boxes onto a group, and how many more they are than the best assignment
+    private void evaluate(int g, int[] subset) {
+        final int[] group = this.patterns.group(g);
+        final int[] subsetCells = this.subsetCells[group.length];
+        for (int i = 0; i < subset.length; ++i) {
+            subsetCells[i] = this.cells[subset[i]];
+        }
+        this.lastPushes = this.patterns.pushes(g, subsetCells);
+        if (this.lastPushes == Board.UNREACHABLE) {
+            this.lastSurplus = Board.UNREACHABLE;
+            return;
+        }
+        final var distances = this.board.pushDistances(0);
+        int assigned = Board.UNREACHABLE;
+        for (int[] order: this.permutations[group.length]) {
+            int sum = 0;
+            for (int i = 0; i < order.length && sum != Board.UNREACHABLE; ++i) {
+                final int distance = distances.get(subsetCells[i], group[order[i]]);
+                sum = distance == Board.UNREACHABLE ? Board.UNREACHABLE : sum + distance;
+            }
+            assigned = Math.min(assigned, sum);
+        }
+        // Pushes above the most stored are only a lower bound, which may fall below the assignment
+        this.lastSurplus = Math.max(0, this.lastPushes - assigned);
+    }
+
+    // The least of the values of the subsets without each box: the least of all unless the box is in its subset
+    private void fillWithout(int[][] groupSubsets, int[] values, int fewest, int[] without) {
+        Arrays.fill(without, fewest);
+        int least = 0;
+        while (values[least] != fewest) {
+            least++;
+        }
+        for (int box: groupSubsets[least]) {
+            int value = Board.UNREACHABLE;
+            for (int s = 0; s < groupSubsets.length; ++s) {
+                if (values[s] < value && !contains(groupSubsets[s], box)) {
+                    value = values[s];
+                }
+            }
+            without[box] = value;
+        }
+    }
+
+    private static boolean contains(int[] subset, int box) {
+        for (int member: subset) {
+            if (member == box) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addSubsets(List<int[]> subsets, int[] subset, int i, int from, int n) {
+        if (i == subset.length) {
+            subsets.add(subset.clone());
+            return;
+        }
+        for (int b = from; b < n; ++b) {
+            subset[i] = b;
+            addSubsets(subsets, subset, i + 1, b + 1, n);
+        }
+    }
+
+    private static void addPermutations(List<int[]> permutations, int[] order, boolean[] used, int i) {
+        if (i == order.length) {
+            permutations.add(order.clone());
+            return;
+        }
+        for (int j = 0; j < order.length; ++j) {
+            if (!used[j]) {
+                used[j] = true;
+                order[i] = j;
+                addPermutations(permutations, order, used, i + 1);
+                used[j] = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package hk.ust.comp3021.solver;
+
+/**
+ * Which state a bounded transposition table forgets when a new state falls into a full bucket.
+ * States that have been expanded are never forgotten, as solutions are recovered through them.
+ */
+public enum ReplacementPolicy {
+
+    /**
+     * Replace the recorded state with the most pushes, but only if the new state has no more pushes.
+     * States close to the initial state cut off larger parts of the search when they are reached again,
+     * so they are worth more than the new state.
+     */
+    KEEP_SHALLOWER,
+
+    /**
+     * Always replace the recorded state with the most pushes, favoring the part of the search currently explored.
+     */
+    ALWAYS_REPLACE
+}
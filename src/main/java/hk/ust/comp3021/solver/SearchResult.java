@@ -0,0 +1,62 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The best result a {@link Solver} found within a time and memory budget.
+ * If no solution was found, the moves lead to the state with the lowest estimate of pushes left among those expanded.
+ *
+ * @param status         how far the search got.
+ * @param moves          the moves of all players, in the order to perform them,
+ *                       leading to a solution if one was found, or else to the state closest to one.
+ * @param pushes         the number of moves that push a box.
+ * @param estimate       a lower bound of the number of pushes left after the moves, 0 if they solve the game.
+ * @param expandedStates the number of search states expanded.
+ * @param peakMemory     the approximate largest number of bytes the states held by the search took at once,
+ *                       estimated the same way as the memory limit of the search.
+ */
+public record SearchResult(
+    @NotNull Status status,
+    @NotNull List<Move> moves,
+    int pushes,
+    int estimate,
+    long expandedStates,
+    long peakMemory
+) {
+
+    /**
+     * @return true if the moves solve the game.
+     */
+    public boolean isSolved() {
+        return this.status == Status.OPTIMAL || this.status == Status.SOLVED;
+    }
+
+    /**
+     * How far a search got within its budget.
+     */
+    public enum Status {
+
+        /**
+         * A solution with the fewest pushes was found.
+         */
+        OPTIMAL,
+
+        /**
+         * A solution was found, but the budget ran out before a solution with fewer pushes could be ruled out.
+         */
+        SOLVED,
+
+        /**
+         * The budget ran out before any solution was found.
+         */
+        PARTIAL,
+
+        /**
+         * Every state reachable from the initial state was searched, and none is a solution.
+         */
+        UNSOLVABLE
+    }
+}
@@ -0,0 +1,50 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The locations of players and boxes in a node of the search.
+ * <p>
+ * Boxes of the same player are interchangeable, so each group of boxes is kept in ascending order of cells.
+ * A player that is the only one in its area of the map, i.e., the cells it could reach if no other player was there,
+ * is moved to the first cell of the area, so that layouts differing only by where such a player walked are the same.
+ * See {@link Expander} for how players sharing an area are handled.
+ */
+final class SearchState {
+
+    // Cell of each player index
+    final int[] players;
+    // Cells of boxes grouped by owner, see Board
+    final int[] boxes;
+    final long hash;
+
+    /**
+     * @param players cell of each player index.
+     * @param boxes   cells of boxes grouped by owner, ascending within each group.
+     * @param hash    the Zobrist hash of the layout.
+     */
+    SearchState(int @NotNull [] players, int @NotNull [] boxes, long hash) {
+        this.players = players;
+        this.boxes = boxes;
+        this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SearchState other)) {
+            return false;
+        }
+        return this.hash == other.hash && Arrays.equals(this.players, other.players)
+            && Arrays.equals(this.boxes, other.boxes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.hash);
+    }
+}
@@ -0,0 +1,16 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A solution of a game found by the {@link Solver}.
+ *
+ * @param moves          the moves of all players, in the order to perform them.
+ * @param pushes         the number of moves that push a box.
+ * @param expandedStates the number of search states expanded to find the solution.
+ */
+public record Solution(@NotNull List<Move> moves, int pushes, long expandedStates) {
+}
@@ -0,0 +1,193 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.entities.Player;
+import hk.ust.comp3021.entities.Wall;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.Position;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Results of solving game maps from their initial state, shared by solvers so that a map that is a mirror image or a
+ * rotation of a map solved before is not solved again, see {@link Solver#setSolutionCache(SolutionCache)}.
+ * <p>
+ * Maps are keyed by their canonical layout: the least of the images of the walls, destinations, players and boxes of
+ * the map under the symmetries of its bounding rectangle. The moves of a result are kept as taken on the canonical
+ * layout, and turned by the symmetry of each map they are returned for.
+ * <p>
+ * A cache is safe to use from several threads. While a map is being solved, solvers asking for a map with the same
+ * canonical layout wait for its result rather than solving it again.
+ */
+public final class SolutionCache {
+
+    private final Map<String, CompletableFuture<Optional<Solution>>> solutions = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<SearchResult>> results = new ConcurrentHashMap<>();
+
+    /**
+     * @return the number of canonical layouts with a result kept.
+     */
+    public int size() {
+        return this.solutions.size() + this.results.size();
+    }
+
+    /**
+     * Get the solution of a map by an unbounded search, solving it if no map with the same canonical layout was.
+     *
+     * @param gameMap the game map.
+     * @param solve   solves the map from its initial state.
+     * @param keep    whether a result of solving is kept, e.g., not if the search gave up on some states.
+     * @return the solution, with moves for the map, or empty if the map cannot be solved.
+     */
+    @NotNull Optional<Solution> solution(
+        @NotNull GameMap gameMap,
+        @NotNull Supplier<Optional<Solution>> solve,
+        @NotNull Predicate<Optional<Solution>> keep
+    ) {
+        return get(this.solutions, gameMap, solve, keep, (solution, turn) -> solution.map(
+            found -> new Solution(turn.apply(found.moves()), found.pushes(), found.expandedStates())
+        ));
+    }
+
+    /**
+     * Get the result of a map by a search within a budget, solving it if no map with the same canonical layout was.
+     * Only results that hold whatever the budget are kept, i.e., optimal solutions and unsolvable maps.
+     * A search only reports those once it has searched every reachable state, so no larger budget could change them.
+     *
+     * @param gameMap the game map.
+     * @param solve   solves the map from its initial state within the budget.
+     * @return the result, with moves for the map.
+     */
+    @NotNull SearchResult result(@NotNull GameMap gameMap, @NotNull Supplier<SearchResult> solve) {
+        return get(
+            this.results,
+            gameMap,
+            solve,
+            result -> result.status() == SearchResult.Status.OPTIMAL
+                || result.status() == SearchResult.Status.UNSOLVABLE,
+            (result, turn) -> new SearchResult(
+                result.status(),
+                turn.apply(result.moves()),
+                result.pushes(),
+                result.estimate(),
+                result.expandedStates(),
+                result.peakMemory()
+            )
+        );
+    }
+
+    // Look up the result of the canonical layout of a map, or solve the map and offer its result
+    private static <T> T get(
+        Map<String, CompletableFuture<T>> cache,
+        GameMap gameMap,
+        Supplier<T> solve,
+        Predicate<T> keep,
+        BiFunction<T, Function<List<Move>, List<Move>>, T> turn
+    ) {
+        final var key = Key.of(gameMap);
+        final var future = new CompletableFuture<T>();
+        final var existing = cache.putIfAbsent(key.layout(), future);
+        if (existing != null) {
+            try {
+                return turn.apply(existing.join(), moves -> turn(moves, key.symmetry()::unapply));
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        final T result;
+        try {
+            result = solve.get();
+        } catch (RuntimeException e) {
+            cache.remove(key.layout(), future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        // Threads already waiting get the result either way
+        if (!keep.test(result)) {
+            cache.remove(key.layout(), future);
+        }
+        future.complete(turn.apply(result, moves -> turn(moves, key.symmetry()::apply)));
+        return result;
+    }
+
+    private static List<Move> turn(List<Move> moves, Function<Direction, Direction> turn) {
+        final var turned = new ArrayList<Move>(moves.size());
+        for (Move move: moves) {
+            turned.add(turn.apply(Direction.of(move)).toMove(move.getInitiator()));
+        }
+        return turned;
+    }
+
+    /**
+     * The canonical layout of the initial state of a map, and the symmetry of the map onto it.
+     *
+     * @param layout   the canonical layout, one row per line, with two characters per cell:
+     *                 the entity as in a map file, and {@code @} for a destination.
+     * @param symmetry the symmetry of the map onto the canonical layout.
+     */
+    private record Key(String layout, Symmetry symmetry) {
+
+        static Key of(GameMap gameMap) {
+            int minX = gameMap.getMaxWidth();
+            int minY = gameMap.getMaxHeight();
+            int maxX = -1;
+            int maxY = -1;
+            for (int y = 0; y < gameMap.getMaxHeight(); ++y) {
+                for (int x = 0; x < gameMap.getMaxWidth(); ++x) {
+                    if (gameMap.getEntity(Position.of(x, y)) != null) {
+                        minX = Math.min(minX, x);
+                        minY = Math.min(minY, y);
+                        maxX = Math.max(maxX, x);
+                        maxY = Math.max(maxY, y);
+                    }
+                }
+            }
+            final int width = Math.max(0, maxX - minX + 1);
+            final int height = Math.max(0, maxY - minY + 1);
+
+            Key least = null;
+            for (Symmetry symmetry: Symmetry.ALL) {
+                final int imageWidth = symmetry.swapsAxes() ? height : width;
+                final int imageHeight = symmetry.swapsAxes() ? width : height;
+                final char[] cells = new char[imageHeight * (imageWidth * 2 + 1)];
+                for (int y = 0; y < height; ++y) {
+                    for (int x = 0; x < width; ++x) {
+                        final var position = Position.of(minX + x, minY + y);
+                        final int at = symmetry.y(x, y, width, height) * (imageWidth * 2 + 1)
+                            + symmetry.x(x, y, width, height) * 2;
+                        cells[at] = switch (gameMap.getEntity(position)) {
+                            case Wall wall -> '#';
+                            case Player player -> (char) ('A' + player.getId());
+                            case Box box -> (char) ('a' + box.getPlayerId());
+                            case Empty empty -> '.';
+                            case null, default -> ' ';
+                        };
+                        cells[at + 1] = gameMap.getDestinations().contains(position) ? '@' : ' ';
+                    }
+                }
+                for (int y = 0; y < imageHeight; ++y) {
+                    cells[y * (imageWidth * 2 + 1) + imageWidth * 2] = '\n';
+                }
+                final var layout = new String(cells);
+                if (least == null || layout.compareTo(least.layout()) < 0) {
+                    least = new Key(layout, symmetry);
+                }
+            }
+            return least;
+        }
+    }
+}
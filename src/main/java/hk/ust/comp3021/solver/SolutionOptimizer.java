@@ -0,0 +1,347 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Action;
+import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.Exit;
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.actions.Undo;
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Shortens a sequence of actions on a game map, e.g., a recorded game or a solution found by a search that does not
+ * find the fewest pushes, into moves that leave the boxes where the actions do, or also solve the game if they do.
+ * <p>
+ * The actions are replayed to find the pushes that last, i.e., that are not undone, and the cells every player stands
+ * on before each of them. The moves in between are then replaced by shortest walks to those cells, or only of the
+ * pushing player when no other player is in its way. After that, pushes are rewritten locally for as long as it
+ * helps: a push that the next push of the same box takes back is dropped together with it, and two pushes of
+ * different boxes in a row are swapped if that saves walking.
+ * <p>
+ * Every candidate is checked by replaying its moves through {@link AbstractSokobanGame}, so the moves returned are
+ * valid under the rules of the game. A walk between two pushes that cannot be shortened, e.g., because players
+ * have to step around each other, is kept as it was.
+ */
+public class SolutionOptimizer {
+
+    private final GameMap gameMap;
+
+    /**
+     * @param gameMap the game map the actions are taken on.
+     */
+    public SolutionOptimizer(@NotNull GameMap gameMap) {
+        this.gameMap = gameMap;
+    }
+
+    /**
+     * A push of a plan.
+     *
+     * @param move    the move that pushes the box.
+     * @param players the cell of every player just before the push, by player id.
+     * @param walk    the moves leading to those cells from the state after the previous push in the actions.
+     */
+    private record Push(@NotNull Move move, @NotNull Map<Integer, Position> players, @NotNull List<Move> walk) {
+
+        @NotNull Position box() {
+            return this.move.nextPosition(this.players.get(this.move.getInitiator()));
+        }
+    }
+
+    /**
+     * Shorten actions taken from the initial state of the game map.
+     * Actions that fail, and actions after the game is won or exited, have no effect and are left out.
+     *
+     * @param actions the actions, in the order they are taken.
+     * @return moves with at most as many pushes, and usually fewer moves, leaving the boxes where the actions do,
+     * or solving the game if the actions do.
+     */
+    public @NotNull List<Move> optimize(@NotNull List<? extends Action> actions) {
+        final var replay = new Replay(this.gameMap);
+        final var plan = new ArrayList<Push>();
+        // State after each push of the plan, to tell which pushes an undo took back
+        final var after = new ArrayList<byte[]>();
+        var walk = new ArrayList<Move>();
+        for (Action action: actions) {
+            if (action instanceof Exit || replay.state().isWin()) {
+                break;
+            }
+            if (!(action instanceof Move) && !(action instanceof Undo)) {
+                continue;
+            }
+            final var players = replay.players();
+            final boolean pushing = action instanceof Move move
+                && replay.state().getEntity(move.nextPosition(players.get(move.getInitiator()))) instanceof Box;
+            if (!replay.apply(action)) {
+                continue;
+            }
+            if (action instanceof Move move && pushing) {
+                plan.add(new Push(move, players, walk));
+                after.add(replay.state().encode());
+                walk = new ArrayList<>();
+            } else if (action instanceof Move move) {
+                walk.add(move);
+            } else {
+                // An undo goes back to the state after an earlier push, or the initial state
+                final byte[] current = replay.state().encode();
+                while (!plan.isEmpty() && !Arrays.equals(after.get(after.size() - 1), current)) {
+                    plan.remove(plan.size() - 1);
+                    after.remove(after.size() - 1);
+                }
+                walk = new ArrayList<>();
+            }
+        }
+        final var target = replay.state();
+        final boolean won = target.isWin();
+
+        List<Move> best = this.bestMoves(plan, target, won);
+        if (best == null) {
+            // Cannot happen for the plan as taken, since the kept walks lead through the same states
+            return List.of();
+        }
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i + 1 < plan.size(); ++i) {
+                final var candidate = rewrite(plan, i);
+                if (candidate == null) {
+                    continue;
+                }
+                final var moves = this.bestMoves(candidate, target, won);
+                if (moves != null && (candidate.size() < plan.size() || moves.size() < best.size())) {
+                    plan.clear();
+                    plan.addAll(candidate);
+                    best = moves;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Drop the push at the index and the next push of the same box if it takes the first one back,
+    // or else swap the push with the next one if they push different boxes; null if neither applies
+    private static @Nullable List<Push> rewrite(List<Push> plan, int i) {
+        final var push = plan.get(i);
+        final var moved = push.move().nextPosition(push.box());
+        for (int j = i + 1; j < plan.size(); ++j) {
+            final var later = plan.get(j);
+            if (!later.box().equals(moved)) {
+                continue;
+            }
+            if (later.move().getInitiator() == push.move().getInitiator()
+                && later.move().nextPosition(moved).equals(push.box())) {
+                final var candidate = new ArrayList<>(plan);
+                candidate.remove(j);
+                candidate.remove(i);
+                return candidate;
+            }
+            break;
+        }
+        if (plan.get(i + 1).box().equals(moved)) {
+            return null;
+        }
+        final var candidate = new ArrayList<>(plan);
+        candidate.set(i, plan.get(i + 1));
+        candidate.set(i + 1, push);
+        return candidate;
+    }
+
+    // The fewer moves of carrying out the plan with every player walking to its cell before each push,
+    // or with only the pushing player walking where possible; null if neither leads to the target
+    private @Nullable List<Move> bestMoves(List<Push> plan, GameState target, boolean won) {
+        final var all = this.toMoves(plan, target, won, false);
+        final var pushing = this.toMoves(plan, target, won, true);
+        if (all == null || pushing == null) {
+            return all == null ? pushing : all;
+        }
+        return pushing.size() < all.size() ? pushing : all;
+    }
+
+    /**
+     * Carry out a plan, replaying each move as it is chosen.
+     *
+     * @param plan        the pushes.
+     * @param target      the state the actions led to.
+     * @param won         whether the target state is won, in which case any won state will do.
+     * @param onlyPushing whether other players only walk to their cells if they are in the way of the push.
+     * @return the moves, or null if one of them fails or they do not lead to the target.
+     */
+    private @Nullable List<Move> toMoves(List<Push> plan, GameState target, boolean won, boolean onlyPushing) {
+        final var replay = new Replay(this.gameMap);
+        final var moves = new ArrayList<Move>();
+        for (Push push: plan) {
+            if (replay.state().isWin()) {
+                break;
+            }
+            final int pusher = push.move().getInitiator();
+            final var behind = push.players().get(pusher);
+            final var ahead = push.move().nextPosition(push.box());
+            final var path = onlyPushing ? replay.path(pusher, behind) : null;
+            final int start = moves.size();
+            final boolean placed = path != null && replay.state().getEntity(ahead) instanceof Empty
+                ? replay.applyAll(path, moves)
+                : replay.walkAll(push.players(), moves);
+            if (!placed) {
+                // The walk as taken only leads there from the same cells as before it
+                replay.walkBack(moves, start);
+                if (!replay.players().equals(cellsBeforeWalk(push)) || !replay.applyAll(push.walk(), moves)) {
+                    return null;
+                }
+            }
+            if (!replay.apply(push.move())) {
+                return null;
+            }
+            moves.add(push.move());
+        }
+        final boolean reached = won ? replay.state().isWin() : sameBoxes(replay.state(), target);
+        return reached ? moves : null;
+    }
+
+    // The cells of the players before the walk as taken leading to a push
+    private static Map<Integer, Position> cellsBeforeWalk(Push push) {
+        final var cells = new HashMap<>(push.players());
+        for (int i = push.walk().size() - 1; i >= 0; --i) {
+            final var move = push.walk().get(i);
+            final var back = Direction.of(move).opposite().toMove(move.getInitiator());
+            cells.put(move.getInitiator(), back.nextPosition(cells.get(move.getInitiator())));
+        }
+        return cells;
+    }
+
+    private static boolean sameBoxes(GameState a, GameState b) {
+        for (int y = 0; y < a.getMapMaxHeight(); ++y) {
+            for (int x = 0; x < a.getMapMaxWidth(); ++x) {
+                final var position = Position.of(x, y);
+                final var boxA = a.getEntity(position) instanceof Box box ? box.getPlayerId() : -1;
+                final var boxB = b.getEntity(position) instanceof Box box ? box.getPlayerId() : -1;
+                if (boxA != boxB) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A game that only replays the actions it is given, and the state it plays on.
+     */
+    private static final class Replay extends AbstractSokobanGame {
+
+        Replay(GameMap gameMap) {
+            super(new GameState(gameMap));
+        }
+
+        @Override
+        public void run() {
+            // Actions are given one at a time by apply
+        }
+
+        GameState state() {
+            return this.state;
+        }
+
+        boolean apply(Action action) {
+            return this.processAction(action) instanceof ActionResult.Success;
+        }
+
+        // Apply moves, adding them to the moves taken, and return false as soon as one fails
+        boolean applyAll(List<Move> path, List<Move> moves) {
+            for (Move move: path) {
+                if (!this.apply(move)) {
+                    return false;
+                }
+                moves.add(move);
+            }
+            return true;
+        }
+
+        // Walk every player to its cell, one player at a time, for as long as some player can get there
+        boolean walkAll(Map<Integer, Position> cells, List<Move> moves) {
+            boolean progress = true;
+            while (progress) {
+                progress = false;
+                boolean done = true;
+                for (var entry: cells.entrySet()) {
+                    if (entry.getValue().equals(this.state.getPlayerPositionById(entry.getKey()))) {
+                        continue;
+                    }
+                    final var path = this.path(entry.getKey(), entry.getValue());
+                    if (path == null) {
+                        done = false;
+                    } else if (this.applyAll(path, moves)) {
+                        progress = true;
+                    } else {
+                        return false;
+                    }
+                }
+                if (done) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Take back the walks taken since the given number of moves, which frees each cell again in reverse order
+        void walkBack(List<Move> moves, int start) {
+            while (moves.size() > start) {
+                final var move = moves.remove(moves.size() - 1);
+                this.apply(Direction.of(move).opposite().toMove(move.getInitiator()));
+            }
+        }
+
+        Map<Integer, Position> players() {
+            final var cells = new HashMap<Integer, Position>();
+            for (int id: this.state.getGameMap().getPlayerIds()) {
+                cells.put(id, Objects.requireNonNull(this.state.getPlayerPositionById(id)));
+            }
+            return cells;
+        }
+
+        // A shortest walk of a player to a cell through empty cells, or null if there is none
+        @Nullable List<Move> path(int playerId, Position target) {
+            final var start = Objects.requireNonNull(this.state.getPlayerPositionById(playerId));
+            final var via = new HashMap<Position, Direction>();
+            final var queue = new ArrayDeque<Position>();
+            queue.add(start);
+            via.put(start, Direction.UP);
+            while (!queue.isEmpty() && !via.containsKey(target)) {
+                final var cell = queue.poll();
+                for (Direction direction: Direction.ALL) {
+                    final var next = Position.of(cell.x() + direction.dx, cell.y() + direction.dy);
+                    if (next.x() < 0 || next.x() >= this.state.getMapMaxWidth()
+                        || next.y() < 0 || next.y() >= this.state.getMapMaxHeight()) {
+                        continue;
+                    }
+                    if (!via.containsKey(next) && this.state.getEntity(next) instanceof Empty) {
+                        via.put(next, direction);
+                        queue.add(next);
+                    }
+                }
+            }
+            if (!via.containsKey(target)) {
+                return null;
+            }
+            final var path = new ArrayDeque<Move>();
+            for (var cell = target; !cell.equals(start); ) {
+                final var direction = via.get(cell);
+                path.push(direction.toMove(playerId));
+                cell = Position.of(cell.x() - direction.dx, cell.y() - direction.dy);
+            }
+            return new ArrayList<>(path);
+        }
+    }
+}
@@ -0,0 +1,558 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.utils.ShouldNotReachException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * A solver of Sokoban games under the rules of {@link hk.ust.comp3021.game.AbstractSokobanGame}:
+ * a box can only be pushed by the player with the same letter, one box at a time,
+ * and players cannot walk through each other.
+ * <p>
+ * The search is an A* over pushes rather than single moves.
+ * Walking between pushes is free, so a solution has the fewest pushes among those the search can find,
+ * and the moves in between are shortest walks.
+ * States are ordered by a {@link Heuristic} lower bound of the pushes left, by default a minimum-cost matching
+ * of boxes to destinations, and boxes are never pushed onto cells from which no destination can be reached.
+ * A transposition table keeps the search from expanding the same layout of players and boxes twice,
+ * nor two layouts that are mirror images or rotations of each other on a symmetric map, see {@link Expander}.
+ * <p>
+ * With more than one thread, the search is run by several workers that steal work from each other,
+ * see {@link ParallelSearch}. It finds a solution with the same number of pushes, but the moves may differ.
+ * On maps with many boxes, the search can also run backwards from solved states and meet the forward search halfway,
+ * see {@link #setBidirectional(boolean)}.
+ * On maps with long corridors or rooms full of destinations, the search can also push boxes through tunnels and into
+ * goal rooms in single steps, see {@link #setMacroMoves(boolean)}.
+ * On hard maps that are solved again and again, {@link Heuristic#PATTERN_DATABASE} gives a stronger bound from
+ * pattern databases, which can be kept on disk between runs, see {@link #setPatternDatabaseDirectory(Path)}.
+ * <p>
+ * Where an unbounded search is not acceptable, {@link #solve(GameState, Duration, long)} searches within a time
+ * and memory budget and returns the best it found, see {@link AnytimeSearch}.
+ * A solver must not be used by several threads at the same time.
+ */
+public class Solver {
+
+    /**
+     * Order of nodes in open lists: lowest estimated total cost first, and among those the one closest to a goal.
+     * Players sharing an area may walk anywhere at no cost, so nodes reached with fewer walks go first in between,
+     * and the many layouts of walking players are only tried once pushing alone gets no further at the same cost.
+     */
+    static final Comparator<Node> BY_COST =
+        Comparator.comparingInt(Node::cost).thenComparingInt(Node::walks).thenComparingInt(Node::estimate);
+
+    // Rough heap footprint of a state held by a search, apart from the cells of its players and boxes
+    private static final long STATE_BYTES = 160;
+
+    private final GameMap gameMap;
+    private final Board board;
+    private final int threads;
+    // Capacity of the off-heap transposition table, 0 to record states on the heap
+    private final int tableCapacity;
+    private final ReplacementPolicy replacementPolicy;
+    private Heuristic heuristic = Heuristic.MIN_COST_MATCHING;
+    private boolean bidirectional;
+    private boolean macroMoves;
+    // Built on first use with macro moves
+    private @Nullable Macros macros;
+    private @Nullable Path patternDatabaseDirectory;
+    // Loaded on first use with the pattern database heuristic
+    private @Nullable PatternDatabase patternDatabase;
+    private @Nullable SolutionCache solutionCache;
+    private List<WorkerStatistics> workerStatistics = List.of();
+
+    /**
+     * Create a single-threaded solver.
+     *
+     * @param gameMap the game map to solve.
+     */
+    public Solver(@NotNull GameMap gameMap) {
+        this(gameMap, 1);
+    }
+
+    /**
+     * Create a solver that records the states it reaches on the heap, without limit.
+     *
+     * @param gameMap the game map to solve.
+     * @param threads the number of threads to search with.
+     * @throws IllegalArgumentException if the number of threads is not positive.
+     */
+    public Solver(@NotNull GameMap gameMap, int threads) {
+        this(gameMap, threads, 0, ReplacementPolicy.KEEP_SHALLOWER);
+    }
+
+    /**
+     * Create a solver that records the states it reaches in a table of fixed size outside the heap.
+     * Each entry takes {@value OffHeapTranspositionTable#ENTRY_SIZE} bytes.
+     * Once the table is full, states are forgotten according to the replacement policy,
+     * so the search may expand some states more than once, and in the worst case give up on some,
+     * but the table never grows.
+     *
+     * @param gameMap           the game map to solve.
+     * @param threads           the number of threads to search with.
+     * @param tableCapacity     the maximum number of states recorded, at least
+     *                          {@value OffHeapTranspositionTable#BUCKET_SIZE}, or 0 to record all states on the heap.
+     * @param replacementPolicy which states to forget once the table is full.
+     * @throws IllegalArgumentException if the number of threads is not positive or the capacity is out of range.
+     */
+    public Solver(
+        @NotNull GameMap gameMap,
+        int threads,
+        int tableCapacity,
+        @NotNull ReplacementPolicy replacementPolicy
+    ) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive.");
+        }
+        if (tableCapacity < 0
+            || (tableCapacity != 0 && tableCapacity < OffHeapTranspositionTable.BUCKET_SIZE)
+            || (long) tableCapacity * OffHeapTranspositionTable.ENTRY_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Transposition table capacity out of range.");
+        }
+        this.gameMap = gameMap;
+        this.board = new Board(gameMap);
+        this.threads = threads;
+        this.tableCapacity = tableCapacity;
+        this.replacementPolicy = replacementPolicy;
+    }
+
+    /**
+     * @return the number of threads to search with.
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * @return the heuristic guiding the search.
+     */
+    public @NotNull Heuristic getHeuristic() {
+        return this.heuristic;
+    }
+
+    /**
+     * Set the heuristic guiding the following searches.
+     * Every heuristic leads to a solution with the same number of pushes, but they differ in the work done.
+     *
+     * @param heuristic the heuristic.
+     */
+    public void setHeuristic(@NotNull Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * @return true if searches also run backwards from solved states, see {@link #setBidirectional(boolean)}.
+     */
+    public boolean isBidirectional() {
+        return this.bidirectional;
+    }
+
+    /**
+     * Set whether the following unbounded searches also run backwards from solved states by pulling boxes,
+     * and stop once both directions meet, see {@link BidirectionalSearch}.
+     * The solution has the same number of pushes, but the states expanded differ.
+     * A bidirectional search runs on the calling thread and records states on the heap,
+     * whatever the number of threads and the transposition table of the solver.
+     *
+     * @param bidirectional whether to search in both directions.
+     */
+    public void setBidirectional(boolean bidirectional) {
+        this.bidirectional = bidirectional;
+    }
+
+    /**
+     * @return true if searches take macro moves, see {@link #setMacroMoves(boolean)}.
+     */
+    public boolean isMacroMoves() {
+        return this.macroMoves;
+    }
+
+    /**
+     * Set whether the following searches push a box on through a tunnel, or into a goal room up to its next
+     * destination, in a single step rather than one push at a time, see {@link Macros}.
+     * This takes chains of forced pushes out of the search, so it expands far fewer states on maps with long tunnels
+     * or goal rooms, but the solution may take more pushes than the fewest possible, and a map may only be solvable
+     * without macro moves. Solutions found with macro moves are therefore neither cached nor reported as optimal,
+     * and a bidirectional search, which meets the backward search one push at a time, does without them.
+     *
+     * @param macroMoves whether to take macro moves.
+     */
+    public void setMacroMoves(boolean macroMoves) {
+        this.macroMoves = macroMoves;
+    }
+
+    /**
+     * @return the directory pattern databases are kept in, or null if they are built in memory.
+     */
+    public @Nullable Path getPatternDatabaseDirectory() {
+        return this.patternDatabaseDirectory;
+    }
+
+    /**
+     * Set the directory the pattern databases of {@link Heuristic#PATTERN_DATABASE} are kept in, see
+     * {@link PatternDatabase}. The first search with the heuristic maps the file of the game map in the directory,
+     * which is named by a hash of the map text, or builds the databases and writes the file if there is none,
+     * so that later runs on the same map skip building them.
+     * Without a directory, each solver builds the databases in memory once.
+     * Files that cannot be read or written make searches with the heuristic throw {@link java.io.UncheckedIOException}.
+     *
+     * @param directory the directory, which is created if it does not exist, or null to keep nothing on disk.
+     */
+    public void setPatternDatabaseDirectory(@Nullable Path directory) {
+        this.patternDatabaseDirectory = directory;
+        this.patternDatabase = null;
+    }
+
+    /**
+     * @return the cache of results of solving from the initial state of the game map, or null if there is none.
+     */
+    public @Nullable SolutionCache getSolutionCache() {
+        return this.solutionCache;
+    }
+
+    /**
+     * Set a cache of results shared with other solvers, so that solving from the initial state of the game map
+     * returns the result of a map with the same layout up to rotations and reflections if there is one,
+     * see {@link SolutionCache}. Searches from other states are not cached.
+     *
+     * @param solutionCache the cache, or null to always search.
+     */
+    public void setSolutionCache(@Nullable SolutionCache solutionCache) {
+        this.solutionCache = solutionCache;
+    }
+
+    /**
+     * Get how much work each thread did in the most recent search, e.g., to compare states expanded per second.
+     *
+     * @return the statistics of each thread, or an empty list if nothing has been searched.
+     */
+    public @NotNull @Unmodifiable List<WorkerStatistics> getWorkerStatistics() {
+        return this.workerStatistics;
+    }
+
+    /**
+     * Solve the game from the initial state of the game map.
+     * With a {@link SolutionCache}, the solution of a map with the same layout up to symmetry is reused.
+     *
+     * @return the solution, or empty if the game cannot be solved, see {@link #solve(GameState)}.
+     */
+    public @NotNull Optional<Solution> solve() {
+        if (this.solutionCache == null || this.macroMoves) {
+            return this.solve(new GameState(this.gameMap));
+        }
+        // A search that gave up on some states may have missed a solution, so only its solutions are kept
+        this.workerStatistics = List.of();
+        return this.solutionCache.solution(
+            this.gameMap,
+            () -> this.solve(new GameState(this.gameMap)),
+            solution -> solution.isPresent()
+                || this.workerStatistics.stream().allMatch(statistics -> statistics.droppedStates() == 0)
+        );
+    }
+
+    /**
+     * Solve the game from a state of the game map.
+     *
+     * @param gameState the state to solve from, which is not modified.
+     * @return the solution, or empty if the game cannot be solved from the state,
+     * or if a bounded transposition table ran out of room and the search gave up on some states,
+     * see {@link WorkerStatistics#droppedStates()}.
+     */
+    public @NotNull Optional<Solution> solve(@NotNull GameState gameState) {
+        final int[] players = new int[this.board.playerCount()];
+        final int[] boxes = new int[this.board.boxCount()];
+        this.board.read(gameState, players, boxes);
+        final var patterns = this.patterns();
+        final int estimate = Estimator.create(this.board, this.heuristic, patterns).load(boxes);
+        this.workerStatistics = List.of();
+        if (estimate == Board.UNREACHABLE) {
+            return Optional.empty();
+        }
+
+        // The backward search meets forward states by their exact layout, so it does without symmetry reduction
+        final var macros = this.bidirectional ? null : this.macros();
+        final var expander = new Expander(this.board, !this.bidirectional, macros);
+        final var initialState = expander.initial(players.clone(), boxes.clone());
+        final var initial = new Node(initialState, null, null, 0, estimate);
+        if (this.bidirectional) {
+            final long start = System.nanoTime();
+            final var search = new BidirectionalSearch(this.board, this.heuristic, patterns, expander, players, boxes);
+            final var steps = search.run(initial);
+            this.workerStatistics = List.of(new WorkerStatistics(search.expanded(), 0, System.nanoTime() - start));
+            if (steps == null) {
+                return Optional.empty();
+            }
+            final int pushes = steps.stream().mapToInt(Step::pushes).sum();
+            final var moves = this.toMoves(expander, initialState, steps, players, boxes);
+            return Optional.of(new Solution(moves, pushes, search.expanded()));
+        }
+        final var table = this.createTable(this.threads);
+        final var statistics = new ArrayList<WorkerStatistics>();
+        final Node goal = this.threads == 1
+            ? this.search(initial, table, macros, statistics)
+            : new ParallelSearch(this.board, this.heuristic, patterns, macros, this.threads, table)
+                .run(initial, statistics);
+        this.workerStatistics = List.copyOf(statistics);
+        if (goal == null) {
+            return Optional.empty();
+        }
+        final long expanded = statistics.stream().mapToLong(WorkerStatistics::expandedStates).sum();
+        final var steps = expander.unfold(initialState, table.path(goal));
+        final var moves = this.toMoves(expander, initialState, steps, players, boxes);
+        return Optional.of(new Solution(moves, goal.pushes(), expanded));
+    }
+
+    /**
+     * Search for a solution from the initial state of the game map within a budget.
+     * With a {@link SolutionCache}, an optimal solution or unsolvable result of a map with the same layout
+     * up to symmetry is reused.
+     *
+     * @param timeLimit   the wall-clock time to search for.
+     * @param memoryLimit the approximate number of bytes the states held by the search may take.
+     * @return the best result found, see {@link #solve(GameState, Duration, long)}.
+     */
+    public @NotNull SearchResult solve(@NotNull Duration timeLimit, long memoryLimit) {
+        if (this.solutionCache == null || this.macroMoves) {
+            return this.solve(new GameState(this.gameMap), timeLimit, memoryLimit);
+        }
+        this.workerStatistics = List.of();
+        return this.solutionCache.result(
+            this.gameMap,
+            () -> this.solve(new GameState(this.gameMap), timeLimit, memoryLimit)
+        );
+    }
+
+    /**
+     * Search for a solution from a state of the game map within a budget, and return the best result found
+     * once the budget runs out: a solution, or else the moves to the state that came closest to one.
+     * <p>
+     * The search finds a first solution quickly, then goes on looking for solutions with fewer pushes
+     * until it can tell the best one has the fewest, see {@link AnytimeSearch}.
+     * It runs on the calling thread whatever the number of threads of the solver.
+     *
+     * @param gameState   the state to solve from, which is not modified.
+     * @param timeLimit   the wall-clock time to search for.
+     * @param memoryLimit the approximate number of bytes the states held by the search may take.
+     * @return the best result found.
+     * @throws IllegalArgumentException if the time limit is negative or the memory limit is not positive.
+     */
+    public @NotNull SearchResult solve(@NotNull GameState gameState, @NotNull Duration timeLimit, long memoryLimit) {
+        if (timeLimit.isNegative() || memoryLimit <= 0) {
+            throw new IllegalArgumentException("Search budget must not be negative.");
+        }
+        final long deadline = System.nanoTime() + Math.min(timeLimit.toNanos(), Long.MAX_VALUE / 2);
+        final int[] players = new int[this.board.playerCount()];
+        final int[] boxes = new int[this.board.boxCount()];
+        this.board.read(gameState, players, boxes);
+        final var patterns = this.patterns();
+        final int estimate = Estimator.create(this.board, this.heuristic, patterns).load(boxes);
+        this.workerStatistics = List.of();
+        if (estimate == Board.UNREACHABLE) {
+            return new SearchResult(SearchResult.Status.UNSOLVABLE, List.of(), 0, estimate, 0, 0);
+        }
+
+        final long start = System.nanoTime();
+        final var macros = this.macros();
+        final var expander = new Expander(this.board, true, macros);
+        final var initialState = expander.initial(players.clone(), boxes.clone());
+        final var table = this.createTable(1);
+        final long stateBytes = STATE_BYTES + 4L * (players.length + boxes.length);
+        final long maxStates = memoryLimit / stateBytes;
+        final var search = new AnytimeSearch(
+            this.board, this.heuristic, patterns, macros, table, deadline, maxStates
+        );
+        search.run(new Node(initialState, null, null, 0, estimate));
+        this.workerStatistics = List.of(
+            new WorkerStatistics(search.expanded(), search.dropped(), System.nanoTime() - start)
+        );
+
+        // Macro moves leave out some solutions, so only a search without them can tell that none is better
+        final boolean complete = search.isExhausted() && search.dropped() == 0 && macros == null;
+        final Node goal = search.goal();
+        final Node best = goal != null ? goal : search.closest();
+        final SearchResult.Status status;
+        if (goal != null) {
+            status = complete ? SearchResult.Status.OPTIMAL : SearchResult.Status.SOLVED;
+        } else {
+            status = complete ? SearchResult.Status.UNSOLVABLE : SearchResult.Status.PARTIAL;
+        }
+        final var steps = expander.unfold(initialState, table.path(best));
+        final var moves = this.toMoves(expander, initialState, steps, players, boxes);
+        return new SearchResult(
+            status, moves, best.pushes(), best.estimate(), search.expanded(), search.peakStates() * stateBytes
+        );
+    }
+
+    private @Nullable Macros macros() {
+        if (this.macroMoves && this.macros == null) {
+            this.macros = new Macros(this.board, this.gameMap.getMapStructure());
+        }
+        return this.macroMoves ? this.macros : null;
+    }
+
+    private @Nullable PatternDatabase patterns() {
+        if (this.heuristic == Heuristic.PATTERN_DATABASE && this.patternDatabase == null) {
+            this.patternDatabase = PatternDatabase.load(this.board, this.gameMap, this.patternDatabaseDirectory);
+        }
+        return this.heuristic == Heuristic.PATTERN_DATABASE ? this.patternDatabase : null;
+    }
+
+    private TranspositionTable createTable(int threads) {
+        if (this.tableCapacity > 0) {
+            return new OffHeapTranspositionTable(this.tableCapacity, this.replacementPolicy, threads);
+        }
+        return threads == 1 ? new HashTranspositionTable() : new StripedTranspositionTable(threads);
+    }
+
+    // Sequential A* from the initial node, returning the goal node or null
+    private Node search(
+        Node initial,
+        TranspositionTable table,
+        @Nullable Macros macros,
+        List<WorkerStatistics> statistics
+    ) {
+        final long start = System.nanoTime();
+        final var expander = new Expander(this.board, true, macros);
+        final var estimator = Estimator.create(this.board, this.heuristic, this.patterns());
+        final var open = new PriorityQueue<>(BY_COST);
+        table.offer(initial);
+        open.add(initial);
+        long expanded = 0;
+        long dropped = 0;
+        Node goal = null;
+        while (!open.isEmpty()) {
+            final Node node = open.poll();
+            if (table.isSuperseded(node)) {
+                continue;
+            }
+            if (node.estimate() == 0) {
+                goal = node;
+                break;
+            }
+            if (!table.markExpanded(node)) {
+                dropped++;
+                continue;
+            }
+            expanded++;
+            estimator.load(node.state().boxes);
+            expander.expand(node.state(), (next, step) -> {
+                final int pushes = node.pushes() + step.pushes();
+                final int estimate = estimator.afterStep(node, step);
+                if (estimate == Board.UNREACHABLE) {
+                    return;
+                }
+                final var child = node.child(next, step, estimate);
+                if (table.offer(child)) {
+                    open.add(child);
+                }
+            });
+        }
+        statistics.add(new WorkerStatistics(expanded, dropped, System.nanoTime() - start));
+        return goal;
+    }
+
+    /**
+     * Replay the steps to a goal from the actual layout of the initial state, filling in the walks.
+     * <p>
+     * A player alone in its area may be somewhere else than in the search state.
+     * Such a player walks to its cell in the search state before a push that could let other players into its area,
+     * so that the exact cells of players sharing an area always match the search.
+     * Before a macro move, which may take a box into the area of such a player, all other players do.
+     * Before a push that has such a player step aside, it walks to its cell after the push instead.
+     */
+    private List<Move> toMoves(
+        Expander expander,
+        SearchState initial,
+        List<Step> steps,
+        int[] players,
+        int[] boxes
+    ) {
+        final boolean[] occupied = new boolean[this.board.area];
+        for (int cell: players) {
+            occupied[cell] = true;
+        }
+        for (int cell: boxes) {
+            occupied[cell] = true;
+        }
+        final var moves = new ArrayList<Move>();
+        SearchState before = initial;
+        for (Step step: steps) {
+            final SearchState after = expander.apply(before, step);
+            if (step instanceof Step.Walk walk) {
+                this.walk(walk.player(), walk.to(), players, occupied, moves);
+                before = after;
+                continue;
+            }
+            final var pushes = expander.pushes(before, step);
+            final int aside = step instanceof Step.Push push && push.aside() != null
+                ? expander.stepsAside(before, push)
+                : -1;
+            for (int k = 0; k < players.length; ++k) {
+                if (k == aside) {
+                    // A player alone in its area steps aside to the part of it the box leaves it in
+                    this.walk(k, after.players[k], players, occupied, moves);
+                } else if (k != step.player() && (after.players[k] == before.players[k] || pushes.size() > 1)) {
+                    this.walk(k, before.players[k], players, occupied, moves);
+                }
+            }
+            for (Step.Push push: pushes) {
+                final int from = this.board.neighbour(push.box(), push.direction().opposite());
+                final int to = this.board.neighbour(push.box(), push.direction());
+                this.walk(push.player(), from, players, occupied, moves);
+                moves.add(push.direction().toMove(this.board.playerIds[push.player()]));
+                occupied[from] = false;
+                occupied[to] = true;
+                players[push.player()] = push.box();
+            }
+            before = after;
+        }
+        return moves;
+    }
+
+    // Append the moves of a shortest walk of player k to the target cell, and update its cell
+    private void walk(int k, int target, int[] players, boolean[] occupied, List<Move> moves) {
+        final int start = players[k];
+        if (start == target) {
+            return;
+        }
+        // Direction taken to reach each cell, -1 if not reached
+        final int[] via = new int[this.board.area];
+        Arrays.fill(via, -1);
+        final var queue = new ArrayDeque<Integer>();
+        via[start] = 0;
+        queue.add(start);
+        while (!queue.isEmpty() && via[target] == -1) {
+            final int cell = queue.poll();
+            for (Direction direction: Direction.ALL) {
+                final int next = this.board.neighbour(cell, direction);
+                if (next != Board.NONE && !occupied[next] && via[next] == -1) {
+                    via[next] = direction.ordinal();
+                    queue.add(next);
+                }
+            }
+        }
+        if (via[target] == -1) {
+            throw new ShouldNotReachException();
+        }
+
+        final var steps = new ArrayDeque<Direction>();
+        for (int cell = target; cell != start; ) {
+            final var direction = Direction.ALL[via[cell]];
+            steps.push(direction);
+            cell = this.board.neighbour(cell, direction.opposite());
+        }
+        for (Direction direction: steps) {
+            moves.add(direction.toMove(this.board.playerIds[k]));
+        }
+        occupied[start] = false;
+        occupied[target] = true;
+        players[k] = target;
+    }
+}
@@ -0,0 +1,80 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An edge of the search, i.e., what a player does between two search states.
+ * Walking to reach the cell a push starts from is implied and filled in when the solution is turned into moves.
+ */
+sealed interface Step {
+
+    /**
+     * @return the index of the player taking the step.
+     */
+    int player();
+
+    /**
+     * @return the number of pushes the step takes.
+     */
+    int pushes();
+
+    /**
+     * A player pushes one of its boxes by one cell.
+     * <p>
+     * The box may be pushed into the area of a player alone in it, see {@link SearchState}, even into its cell.
+     * The player then steps aside to the part of its area that the neighbour of the cell in the given direction is in.
+     *
+     * @param player    the index of the player.
+     * @param box       the cell of the box before the push.
+     * @param direction the direction of the push.
+     * @param aside     the direction from the cell the box is pushed into to where a player alone in the area
+     *                  steps aside, or null if no player does.
+     */
+    record Push(int player, int box, @NotNull Direction direction, @Nullable Direction aside) implements Step {
+
+        /**
+         * A push that has no other player step aside.
+         *
+         * @param player    the index of the player.
+         * @param box       the cell of the box before the push.
+         * @param direction the direction of the push.
+         */
+        Push(int player, int box, @NotNull Direction direction) {
+            this(player, box, direction, null);
+        }
+
+        @Override
+        public int pushes() {
+            return 1;
+        }
+    }
+
+    /**
+     * A player pushes one of its boxes by one cell, and on through a tunnel or into a goal room without stopping,
+     * see {@link Macros}. The pushes after the first one are forced by the state the macro move is taken from,
+     * so the same first push from the same state always leads to the same macro move.
+     *
+     * @param player    the index of the player.
+     * @param box       the cell of the box before the first push.
+     * @param direction the direction of the first push.
+     * @param to        the cell of the box after the last push.
+     * @param pushes    the number of pushes.
+     */
+    record Macro(int player, int box, @NotNull Direction direction, int to, int pushes) implements Step {
+    }
+
+    /**
+     * A player walks out of the way of another player without pushing.
+     *
+     * @param player the index of the player.
+     * @param to     the cell the player walks to.
+     */
+    record Walk(int player, int to) implements Step {
+
+        @Override
+        public int pushes() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A transposition table shared by the workers of a parallel search.
+ * <p>
+ * States are spread over stripes by their Zobrist hash, and each stripe is a hash map with its own lock,
+ * so workers only contend when they touch states of the same stripe at the same time.
+ */
+final class StripedTranspositionTable implements TranspositionTable {
+
+    private final List<Map<SearchState, Entry>> stripes;
+    private final int mask;
+
+    /**
+     * @param threads the number of threads sharing the table.
+     */
+    StripedTranspositionTable(int threads) {
+        // Many more stripes than threads keeps the chance of two threads meeting on a stripe low
+        final int count = Integer.highestOneBit(Math.max(1, threads) * 64 - 1) << 1;
+        final var stripes = new ArrayList<Map<SearchState, Entry>>(count);
+        for (int i = 0; i < count; ++i) {
+            stripes.add(new HashMap<>());
+        }
+        this.stripes = List.copyOf(stripes);
+        this.mask = count - 1;
+    }
+
+    @Override
+    public boolean offer(@NotNull Node node) {
+        final var stripe = this.stripeOf(node.state());
+        synchronized (stripe) {
+            final Entry best = stripe.get(node.state());
+            if (best != null && best.pushes() <= node.pushes()) {
+                return false;
+            }
+            stripe.put(node.state(), Entry.of(node));
+            return true;
+        }
+    }
+
+    @Override
+    public boolean isSuperseded(@NotNull Node node) {
+        final var stripe = this.stripeOf(node.state());
+        synchronized (stripe) {
+            final Entry best = stripe.get(node.state());
+            return best != null && best.pushes() < node.pushes();
+        }
+    }
+
+    @Override
+    public boolean markExpanded(@NotNull Node node) {
+        return true;
+    }
+
+    @Override
+    public @NotNull List<Step> path(@NotNull Node goal) {
+        return HashTranspositionTable.walkBack(goal, state -> {
+            final var stripe = this.stripeOf(state);
+            synchronized (stripe) {
+                return stripe.get(state);
+            }
+        });
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (var stripe: this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Map<SearchState, Entry> stripeOf(SearchState state) {
+        // The low bits of the hash also pick the bucket inside the map, so use the high bits here
+        return this.stripes.get((int) (state.hash >>> 40) & this.mask);
+    }
+}
@@ -0,0 +1,92 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.utils.ShouldNotReachException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The symmetries of a rectangle of cells: the rotations by quarter turns clockwise, and the reflections.
+ * Each maps the cells of a rectangle onto the cells of the same rectangle,
+ * or of the rectangle with width and height swapped if it {@link #swapsAxes() swaps axes}.
+ */
+enum Symmetry {
+    IDENTITY(1, 0, 0, 1),
+    ROTATE_90(0, -1, 1, 0),
+    ROTATE_180(-1, 0, 0, -1),
+    ROTATE_270(0, 1, -1, 0),
+    FLIP_HORIZONTAL(-1, 0, 0, 1),
+    FLIP_VERTICAL(1, 0, 0, -1),
+    TRANSPOSE(0, 1, 1, 0),
+    ANTI_TRANSPOSE(0, -1, -1, 0);
+
+    static final Symmetry[] ALL = values();
+
+    // The image of (x, y) is (xx * x + xy * y, yx * x + yy * y), shifted back into the rectangle
+    private final int xx;
+    private final int xy;
+    private final int yx;
+    private final int yy;
+
+    Symmetry(int xx, int xy, int yx, int yy) {
+        this.xx = xx;
+        this.xy = xy;
+        this.yx = yx;
+        this.yy = yy;
+    }
+
+    /**
+     * @return true if the image of a rectangle has its width and height swapped.
+     */
+    boolean swapsAxes() {
+        return this.xx == 0;
+    }
+
+    /**
+     * @param x      the column of a cell.
+     * @param y      the row of the cell.
+     * @param width  the width of the rectangle.
+     * @param height the height of the rectangle.
+     * @return the column of the image of the cell.
+     */
+    int x(int x, int y, int width, int height) {
+        return this.xx * x + this.xy * y + (this.xx < 0 ? width - 1 : 0) + (this.xy < 0 ? height - 1 : 0);
+    }
+
+    /**
+     * @param x      the column of a cell.
+     * @param y      the row of the cell.
+     * @param width  the width of the rectangle.
+     * @param height the height of the rectangle.
+     * @return the row of the image of the cell.
+     */
+    int y(int x, int y, int width, int height) {
+        return this.yx * x + this.yy * y + (this.yx < 0 ? width - 1 : 0) + (this.yy < 0 ? height - 1 : 0);
+    }
+
+    /**
+     * @param direction a direction.
+     * @return the image of the direction.
+     */
+    @NotNull Direction apply(@NotNull Direction direction) {
+        final int dx = this.xx * direction.dx + this.xy * direction.dy;
+        final int dy = this.yx * direction.dx + this.yy * direction.dy;
+        for (Direction image: Direction.ALL) {
+            if (image.dx == dx && image.dy == dy) {
+                return image;
+            }
+        }
+        throw new ShouldNotReachException();
+    }
+
+    /**
+     * @param direction the image of a direction.
+     * @return the direction whose image it is.
+     */
+    @NotNull Direction unapply(@NotNull Direction direction) {
+        for (Direction preimage: Direction.ALL) {
+            if (this.apply(preimage) == direction) {
+                return preimage;
+            }
+        }
+        throw new ShouldNotReachException();
+    }
+}
@@ -0,0 +1,69 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * The fewest pushes found so far to reach each search state, and the step it was reached by.
+ * It lets the search skip states that were already reached at no greater cost by another sequence of pushes,
+ * and recovers the steps to a goal once it is found.
+ */
+interface TranspositionTable {
+
+    /**
+     * Record a way to reach a state if it is better than all ways recorded before.
+     *
+     * @param node the node reaching the state.
+     * @return true if the state was not reached before with at most the same number of pushes,
+     * i.e., the node should be searched.
+     */
+    boolean offer(@NotNull Node node);
+
+    /**
+     * @param node a node reaching a state.
+     * @return true if a way to reach the state with fewer pushes has been recorded since the node was offered.
+     */
+    boolean isSuperseded(@NotNull Node node);
+
+    /**
+     * Record that a node is about to be expanded, so that the way it was reached is kept
+     * for as long as any path through it may be needed.
+     *
+     * @param node the node.
+     * @return false if the way the node was reached cannot be kept, in which case it must not be expanded.
+     */
+    boolean markExpanded(@NotNull Node node);
+
+    /**
+     * Recover the steps leading to a node from the initial state.
+     *
+     * @param goal the node, whose parent must have been expanded.
+     * @return the steps in order.
+     */
+    @NotNull List<Step> path(@NotNull Node goal);
+
+    /**
+     * @return the number of states recorded.
+     */
+    int size();
+
+    /**
+     * The way a state was reached.
+     *
+     * @param pushes the number of pushes from the initial state.
+     * @param parent the state the step was taken from, or null for the initial state.
+     * @param step   the step, or null for the initial state.
+     */
+    record Entry(int pushes, @Nullable SearchState parent, @Nullable Step step) {
+
+        /**
+         * @param node the node reaching a state.
+         * @return the way the node reached it.
+         */
+        static @NotNull Entry of(@NotNull Node node) {
+            return new Entry(node.pushes(), node.parent(), node.step());
+        }
+    }
+}
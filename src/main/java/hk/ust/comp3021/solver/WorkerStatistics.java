@@ -0,0 +1,19 @@
+package hk.ust.comp3021.solver;
+
+/**
+ * How much work one thread of the {@link Solver} did in a search.
+ *
+ * @param expandedStates the number of search states expanded by the thread.
+ * @param droppedStates  the number of search states the thread gave up on,
+ *                       because the transposition table had no room to record their expansion.
+ * @param nanos          the wall-clock time the thread spent searching, in nanoseconds.
+ */
+public record WorkerStatistics(long expandedStates, long droppedStates, long nanos) {
+
+    /**
+     * @return the number of search states expanded per second.
+     */
+    public double statesPerSecond() {
+        return this.nanos == 0 ? 0 : this.expandedStates * 1e9 / this.nanos;
+    }
+}
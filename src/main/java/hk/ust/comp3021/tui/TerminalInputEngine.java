@@ -3,9 +3,11 @@ package hk.ust.comp3021.tui;
 import hk.ust.comp3021.actions.*;
 import hk.ust.comp3021.game.InputEngine;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.InputStream;
 import java.util.Scanner;
+import java.util.function.IntConsumer;
 
 /**
  * An input engine that fetches actions from terminal input.
@@ -17,6 +19,9 @@ public class TerminalInputEngine implements InputEngine {
      */
     private final Scanner terminalScanner;
 
+    // Receives the id of a player asking for a hint, or null if hints are not offered
+    private @Nullable IntConsumer hintListener;
+
     /**
      * @param terminalStream The stream to read terminal inputs.
      */
@@ -24,6 +29,16 @@ public class TerminalInputEngine implements InputEngine {
         this.terminalScanner = new Scanner(terminalStream);
     }
 
+    /**
+     * Set what to do when a player asks for a hint of its next move with Q or I.
+     * A hint does not change the game, so it is not an action: the listener is called and the next input is read.
+     *
+     * @param hintListener receives the id of the player asking, or null to treat the input as invalid.
+     */
+    public void setHintListener(@Nullable IntConsumer hintListener) {
+        this.hintListener = hintListener;
+    }
+
     /**
      * Fetch an action from user in terminal to process.
      *
@@ -33,7 +48,13 @@ public class TerminalInputEngine implements InputEngine {
     public @NotNull Action fetchAction() {
         // This is an example showing how to read a line from the Scanner class.
         // Feel free to change it if you do not like it.
-        final var inputLine = terminalScanner.nextLine();
+        var inputLine = terminalScanner.nextLine();
+
+        // QI: hint the next move of Player with ID 0 or 1, and read on
+        while (this.hintListener != null && (inputLine.equalsIgnoreCase("Q") || inputLine.equalsIgnoreCase("I"))) {
+            this.hintListener.accept(inputLine.equalsIgnoreCase("Q") ? 0 : 1);
+            inputLine = terminalScanner.nextLine();
+        }
 
         // DONE
         String instruction = inputLine.toUpperCase();
@@ -15,6 +15,9 @@ public class TerminalRenderingEngine implements RenderingEngine {
 
     private final PrintStream outputSteam;
 
+    // Reused across renders so that rendering does not allocate once the buffer fits the map
+    private byte[] frame = new byte[0];
+
     /**
      * @param outputSteam The {@link PrintStream} to write the output to.
      */
@@ -24,17 +27,22 @@ public class TerminalRenderingEngine implements RenderingEngine {
 
     @Override
     public void render(@NotNull GameState state) {
-        final var builder = new StringBuilder();
+        final int frameLength = (state.getMapMaxWidth() + 1) * state.getMapMaxHeight();
+        if (this.frame.length < frameLength) {
+            this.frame = new byte[frameLength];
+        }
+        int length = 0;
         for (int y = 0; y < state.getMapMaxHeight(); y++) {
             for (int x = 0; x < state.getMapMaxWidth(); x++) {
-                final var entity = state.getEntity(Position.of(x, y));
+                final var position = Position.of(x, y);
+                final var entity = state.getEntity(position);
                 final var charToPrint = switch (entity) {
                     // DONE
                     case Wall ignored -> '#';
                     case Box b -> (char) ('a' + b.getPlayerId());
                     case Player p -> (char) ('A' + p.getId());
                     case Empty ignored -> {
-                        if (state.getDestinations().contains(Position.of(x, y))) {
+                        if (state.getDestinations().contains(position)) {
                             yield '@';
                         } else {
                             yield '.';
@@ -42,11 +50,12 @@ public class TerminalRenderingEngine implements RenderingEngine {
                     }
                     case null -> ' ';
                 };
-                builder.append(charToPrint);
+                // All characters of the game map are ASCII
+                this.frame[length++] = (byte) charToPrint;
             }
-            builder.append('\n');
+            this.frame[length++] = '\n';
         }
-        outputSteam.print(builder);
+        outputSteam.write(this.frame, 0, length);
     }
 
     @Override
@@ -2,10 +2,14 @@ package hk.ust.comp3021.tui;
 
 
 import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.Move;
 import hk.ust.comp3021.game.AbstractSokobanGame;
 import hk.ust.comp3021.game.GameState;
 import hk.ust.comp3021.game.InputEngine;
 import hk.ust.comp3021.game.RenderingEngine;
+import hk.ust.comp3021.solver.HintEngine;
+import hk.ust.comp3021.utils.StringResources;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A Sokoban game running in the terminal.
@@ -16,6 +20,9 @@ public class TerminalSokobanGame extends AbstractSokobanGame {
 
     private final RenderingEngine renderingEngine;
 
+    // Created on the first hint if the game was not given one
+    private @Nullable HintEngine hintEngine;
+
     /**
      * Create a new instance of TerminalSokobanGame.
      * Terminal-based game only support at most two players, although the hk.ust.comp3021.game package supports up to 26 players.
@@ -27,14 +34,35 @@ public class TerminalSokobanGame extends AbstractSokobanGame {
      * @throws IllegalArgumentException when there are more than two players in the map.
      */
     public TerminalSokobanGame(GameState gameState, TerminalInputEngine inputEngine, TerminalRenderingEngine renderingEngine) {
+        this(gameState, inputEngine, renderingEngine, null);
+    }
+
+    /**
+     * Create a new instance of TerminalSokobanGame that answers hints with an engine built ahead,
+     * so that building it does not delay the first hint.
+     *
+     * @param gameState       The game state.
+     * @param inputEngine     the terminal input engin.
+     * @param renderingEngine the terminal rendering engine.
+     * @param hintEngine      the hint engine for the game map of the game state, or null to build it on the first hint.
+     * @throws IllegalArgumentException when there are more than two players in the map.
+     */
+    public TerminalSokobanGame(
+        GameState gameState,
+        TerminalInputEngine inputEngine,
+        TerminalRenderingEngine renderingEngine,
+        @Nullable HintEngine hintEngine
+    ) {
         super(gameState);
         this.inputEngine = inputEngine;
         this.renderingEngine = renderingEngine;
+        this.hintEngine = hintEngine;
         // DONE
         // Check the number of players
         if (gameState.getAllPlayerPositions().size() > 2) {
             throw new IllegalArgumentException("There cannot be more than two players in the map!");
         }
+        inputEngine.setHintListener(this::showHint);
     }
 
     @Override
@@ -43,8 +71,8 @@ public class TerminalSokobanGame extends AbstractSokobanGame {
         this.renderingEngine.message("Sokoban game is ready.");
         this.renderingEngine.render(this.state);
 
-        // Game terminates when the game is won or the player performs Exit action
-        // Deadlock checking is not required
+        // Game terminates when the game is won, the player performs Exit action,
+        // or the game is deadlocked with no undo left
         while (!this.shouldStop()) {
             // Game loop
             if (this.state.getUndoQuota().isPresent()) {
@@ -54,12 +82,19 @@ public class TerminalSokobanGame extends AbstractSokobanGame {
             }
             this.renderingEngine.message(">>>");
 
-            switch (this.processAction(this.inputEngine.fetchAction())) {
+            final var action = this.inputEngine.fetchAction();
+            switch (this.processAction(action)) {
                 case ActionResult.Success success -> {}
                 case ActionResult.Failed failed -> {
                     this.renderingEngine.message(failed.getReason());
                 }
             }
+            if (this.isDeadlocked()) {
+                this.renderingEngine.message(StringResources.DEADLOCK_MESSAGE);
+                if (!this.shouldStop()) {
+                    this.renderingEngine.message(StringResources.DEADLOCK_UNDO_MESSAGE);
+                }
+            }
 
             this.renderingEngine.render(this.state);
         }
@@ -69,4 +104,26 @@ public class TerminalSokobanGame extends AbstractSokobanGame {
             this.renderingEngine.message("You win.");
         }
     }
+
+    private void showHint(int playerId) {
+        if (this.hintEngine == null) {
+            this.hintEngine = new HintEngine(this.state.getGameMap());
+        }
+        // If the other player has to move first, hint its move instead, within the time of one hint
+        this.hintEngine.hintAnyPlayer(this.state, playerId).ifPresentOrElse(
+            move -> this.renderingEngine.message(StringResources.HINT_TEMPLATE.formatted(keyOf(move))),
+            () -> this.renderingEngine.message(StringResources.NO_HINT_MESSAGE)
+        );
+    }
+
+    // The key to press for a move, see TerminalInputEngine
+    private static String keyOf(Move move) {
+        final boolean first = move.getInitiator() == 0;
+        return switch (move) {
+            case Move.Up up -> first ? "W" : "K";
+            case Move.Down down -> first ? "S" : "J";
+            case Move.Left left -> first ? "A" : "H";
+            case Move.Right right -> first ? "D" : "L";
+        };
+    }
 }
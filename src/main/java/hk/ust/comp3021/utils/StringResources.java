@@ -15,6 +15,10 @@ public class StringResources {
 
     public static final String GAME_EXIT_MESSAGE = "Game exits.";
     public static final String WIN_MESSAGE = "You win.";
+    public static final String DEADLOCK_MESSAGE = "Deadlock: a box can no longer reach a destination.";
+    public static final String DEADLOCK_UNDO_MESSAGE = "Undo to continue.";
+    public static final String HINT_TEMPLATE = "Hint: %s";
+    public static final String NO_HINT_MESSAGE = "No hint available.";
 
     public static final String EXIT_COMMAND_TEXT = "exit";
 }
@@ -0,0 +1,106 @@
+package hk.ust.comp3021;
+
+import hk.ust.comp3021.solver.SearchResult;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSolverTest {
+
+    private static final String SOLVABLE_MAP = """
+        233
+        ######
+        #A.a@#
+        #....#
+        #.a.@#
+        ######
+        """;
+
+    @TempDir
+    private Path tempDir;
+
+    private List<BatchSolver.MapReport> solveAll() throws IOException, InterruptedException {
+        Files.writeString(tempDir.resolve("b.map"), SOLVABLE_MAP);
+        Files.writeString(tempDir.resolve("a.map"), """
+            233
+            ######
+            #A.a@#
+            #..a.#
+            ######
+            """);
+        Files.writeString(tempDir.resolve("notes.txt"), SOLVABLE_MAP);
+        return new BatchSolver(2, Duration.ofSeconds(1), 16L << 20).solveAll(tempDir);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveAll() throws IOException, InterruptedException {
+        final var reports = solveAll();
+
+        assertEquals(2, reports.size());
+        final var invalid = reports.get(0);
+        assertEquals("a.map", invalid.map());
+        assertNull(invalid.result());
+        assertNotNull(invalid.error());
+        assertEquals("ERROR", invalid.getStatus());
+
+        final var solved = reports.get(1);
+        assertEquals("b.map", solved.map());
+        assertTrue(solved.isSolved());
+        assertNull(solved.error());
+        assertEquals(SearchResult.Status.OPTIMAL, solved.result().status());
+        assertEquals(3, solved.result().pushes());
+        assertTrue(solved.getExpandedStates() > 0);
+        assertTrue(solved.getPeakMemory() > 0);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCsvReport() throws IOException, InterruptedException {
+        final var reports = solveAll();
+        final var reportFile = tempDir.resolve("report.csv");
+        BatchSolver.writeReport(reports, reportFile);
+
+        final var lines = Files.readAllLines(reportFile);
+        assertEquals(3, lines.size());
+        assertEquals("map,status,pushes,moves,expanded_states,time_ms,peak_memory_bytes,error", lines.get(0));
+        assertTrue(lines.get(1).startsWith("a.map,ERROR,,,0,"));
+        final var moves = reports.get(1).result().moves().size();
+        assertTrue(lines.get(2).startsWith("b.map,OPTIMAL,3," + moves + ","));
+        assertTrue(lines.get(2).endsWith(","));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testJsonReport() throws IOException, InterruptedException {
+        final var reports = solveAll();
+        final var reportFile = tempDir.resolve("report.json");
+        BatchSolver.writeReport(reports, reportFile);
+
+        final var json = Files.readString(reportFile);
+        assertTrue(json.startsWith("[\n  {\"map\": \"a.map\", \"status\": \"ERROR\", \"pushes\": null"));
+        assertTrue(json.contains("{\"map\": \"b.map\", \"status\": \"OPTIMAL\", \"pushes\": 3, "));
+        assertTrue(json.contains("\"error\": null}\n]"));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testReportQuotesFields() {
+        final var report = new BatchSolver.MapReport("x,\"y\".map", null, 0, "line\nbreak");
+        assertEquals(
+            "\"x,\"\"y\"\".map\",ERROR,,,0,0,0,\"line\nbreak\"",
+            BatchSolver.toCsv(List.of(report)).lines().skip(1).reduce((a, b) -> a + "\n" + b).orElseThrow()
+        );
+        assertTrue(BatchSolver.toJson(List.of(report)).contains("\"map\": \"x,\\\"y\\\".map\""));
+        assertTrue(BatchSolver.toJson(List.of(report)).contains("\"error\": \"line\\nbreak\""));
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class MoveTest {
 
@@ -19,4 +20,13 @@ class MoveTest {
             new Move.Left(-1).nextPosition(pos)
         );
     }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void moveDownReusesCachedPosition() {
+        assertSame(
+            Position.of(3, 4),
+            new Move.Down(-1).nextPosition(Position.of(3, 3))
+        );
+    }
 }
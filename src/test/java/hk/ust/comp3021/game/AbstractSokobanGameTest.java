@@ -3,11 +3,13 @@ package hk.ust.comp3021.game;
 import hk.ust.comp3021.actions.Action;
 import hk.ust.comp3021.actions.ActionResult;
 import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.actions.Undo;
 import hk.ust.comp3021.utils.TestHelper;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -88,6 +90,50 @@ class AbstractSokobanGameTest {
         assertTrue(game.shouldStop());
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDeadlockedAfterPushIntoDeadSquare() {
+        String mapText = """
+            233
+            ######
+            #A...#
+            #.a.@#
+            #....#
+            ######
+            """;
+        final var testMap = TestHelper.parseGameMap(mapText);
+        final var game = new SokobanGameForTesting(new GameState(testMap));
+
+        game.feedActionForProcessing(new Move.Right(0));
+        assertFalse(game.isDeadlocked());
+        game.feedActionForProcessing(new Move.Down(0));
+        assertTrue(game.isDeadlocked());
+        assertFalse(game.shouldStop());
+
+        game.feedActionForProcessing(new Undo(0));
+        assertFalse(game.isDeadlocked());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testShouldStopWhenDeadlockedWithoutUndoQuota() {
+        String mapText = """
+            0
+            ######
+            #A...#
+            #.a.@#
+            #....#
+            ######
+            """;
+        final var testMap = TestHelper.parseGameMap(mapText);
+        final var game = new SokobanGameForTesting(new GameState(testMap));
+
+        game.feedActionForProcessing(new Move.Right(0));
+        game.feedActionForProcessing(new Move.Down(0));
+        assertTrue(game.isDeadlocked());
+        assertTrue(game.shouldStop());
+    }
+
     private static class SokobanGameForTesting extends AbstractSokobanGame {
 
         protected SokobanGameForTesting(GameState gameState) {
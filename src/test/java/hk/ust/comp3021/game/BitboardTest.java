@@ -0,0 +1,75 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitboardTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSetAndClear() {
+        final var bitboard = new Bitboard(70, 3);
+        bitboard.set(Position.of(69, 0));
+        bitboard.set(Position.of(0, 1));
+
+        assertTrue(bitboard.get(69));
+        assertTrue(bitboard.get(Position.of(0, 1)));
+        assertFalse(bitboard.get(71));
+        assertEquals(2, bitboard.cardinality());
+        assertEquals(70, bitboard.nextSetBit(70));
+        assertEquals(69, bitboard.nextSetBit(0));
+
+        bitboard.clear(69);
+        assertEquals(70, bitboard.nextSetBit(0));
+        assertEquals(-1, bitboard.nextSetBit(71));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testContainsAll() {
+        final var all = new Bitboard(10, 10);
+        final var some = new Bitboard(10, 10);
+        for (int cell = 0; cell < 100; cell += 3) {
+            all.set(cell);
+        }
+        some.set(99);
+        some.set(3);
+
+        assertTrue(all.containsAll(some));
+        some.set(98);
+        assertFalse(all.containsAll(some));
+        assertTrue(all.intersects(some));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testFloodDoesNotWrapAcrossRows() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #########
+            #A..#...#
+            #a..#..@#
+            #########
+            """);
+        final var floor = new Bitboard(gameMap.getMaxWidth(), gameMap.getMaxHeight());
+        for (int y = 0; y < gameMap.getMaxHeight(); ++y) {
+            for (int x = 0; x < gameMap.getMaxWidth(); ++x) {
+                floor.set(y * gameMap.getMaxWidth() + x);
+            }
+        }
+        floor.andNot(gameMap.getWallsBitboard());
+        // Open the right wall so that a wrapping flood would leak into the next row
+        floor.set(Position.of(8, 1));
+        floor.set(Position.of(0, 2));
+
+        final var reached = floor.flood(gameMap.getMaxWidth() + 1);
+        assertEquals(7, reached.cardinality());
+        assertTrue(reached.get(Position.of(0, 2)));
+        assertFalse(reached.get(Position.of(5, 1)));
+        assertFalse(reached.get(Position.of(8, 1)));
+    }
+}
@@ -0,0 +1,50 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointHistoryTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBoundedHistoryDropsOldest() {
+        final var history = new CheckpointHistory<Integer>(3);
+        for (int i = 0; i < 100; ++i) {
+            history.push(i);
+        }
+
+        assertEquals(3, history.size());
+        assertEquals(99, history.pop());
+        assertEquals(98, history.pop());
+        assertEquals(97, history.pop());
+        assertNull(history.pop());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUnboundedHistoryKeepsAll() {
+        final var history = new CheckpointHistory<Integer>(-1);
+        for (int i = 0; i < 100; ++i) {
+            history.push(i);
+        }
+
+        assertEquals(100, history.size());
+        for (int i = 99; i >= 0; --i) {
+            assertEquals(i, history.pop());
+        }
+        assertTrue(history.isEmpty());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testZeroCapacityHistoryKeepsNothing() {
+        final var history = new CheckpointHistory<Integer>(0);
+        history.push(1);
+
+        assertTrue(history.isEmpty());
+        assertNull(history.pop());
+    }
+}
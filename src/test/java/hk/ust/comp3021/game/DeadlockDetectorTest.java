@@ -0,0 +1,132 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlockDetectorTest {
+
+    private static DeadlockDetector detectorOf(GameState gameState) {
+        return new DeadlockDetector(gameState, gameState.getGameMap());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBoxOnDeadSquare() {
+        final var testMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A...#
+            #.a.@#
+            #....#
+            ######
+            """);
+        final var gameState = new GameState(testMap);
+        final var detector = detectorOf(gameState);
+        assertFalse(detector.isDeadlockedAt(Position.of(2, 2)));
+
+        gameState.move(Position.of(2, 2), Position.of(2, 3));
+        assertTrue(detector.isDeadlockedAt(Position.of(2, 3)));
+        assertTrue(detector.isDeadlocked());
+        assertFalse(detector.isDeadlockedAt(Position.of(1, 1)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testFrozenBlockOffDestination() {
+        final var testMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.....#
+            #..##..#
+            #..aa..#
+            #......#
+            #...@@.#
+            ########
+            """);
+        final var detector = detectorOf(new GameState(testMap));
+        assertTrue(detector.isDeadlockedAt(Position.of(3, 3)));
+        assertTrue(detector.isDeadlockedAt(Position.of(4, 3)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBoxesThatCanStillMoveAreNotFrozen() {
+        final var testMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.....#
+            #..#...#
+            #..aa..#
+            #......#
+            #...@@.#
+            ########
+            """);
+        final var detector = detectorOf(new GameState(testMap));
+        assertFalse(detector.isDeadlockedAt(Position.of(3, 3)));
+        assertFalse(detector.isDeadlockedAt(Position.of(4, 3)));
+        assertFalse(detector.isDeadlocked());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testFrozenBoxesOnDestinations() {
+        final var testMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.....#
+            #..##..#
+            #..@@..#
+            #..aa..#
+            #......#
+            ########
+            """);
+        final var gameState = new GameState(testMap);
+        final var detector = detectorOf(gameState);
+        gameState.move(Position.of(3, 4), Position.of(3, 3));
+        gameState.move(Position.of(4, 4), Position.of(4, 3));
+        assertFalse(detector.isDeadlockedAt(Position.of(3, 3)));
+        assertFalse(detector.isDeadlocked());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testFrozenWithBoxOffDestination() {
+        final var testMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.....#
+            #..##..#
+            #..@a..#
+            #..a...#
+            #.....@#
+            ########
+            """);
+        final var gameState = new GameState(testMap);
+        final var detector = detectorOf(gameState);
+        assertFalse(detector.isDeadlocked());
+
+        gameState.move(Position.of(3, 4), Position.of(3, 3));
+        assertTrue(detector.isDeadlockedAt(Position.of(3, 3)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBoxesOfAnotherPlayerFreeze() {
+        final var testMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A....B#
+            #..##..#
+            #..ab..#
+            #......#
+            #...@@.#
+            ########
+            """);
+        final var detector = detectorOf(new GameState(testMap));
+        assertTrue(detector.isDeadlockedAt(Position.of(3, 3)));
+    }
+}
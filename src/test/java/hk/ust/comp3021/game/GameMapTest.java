@@ -86,4 +86,111 @@ class GameMapTest {
         assertTrue(entity instanceof Wall);
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBitboards() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        assertEquals(22, gameMap.getWallsBitboard().cardinality());
+        assertTrue(gameMap.getWallsBitboard().get(Position.of(0, 0)));
+        assertFalse(gameMap.getWallsBitboard().get(Position.of(1, 1)));
+        assertEquals(2, gameMap.getDestinationsBitboard().cardinality());
+        assertTrue(gameMap.getDestinationsBitboard().get(Position.of(4, 2)));
+        assertTrue(gameMap.getInitialBoxesBitboard(0).get(Position.of(3, 5)));
+        assertEquals(2, gameMap.getInitialBoxesBitboard(0).cardinality());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testEntitiesAreShared() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        assertSame(gameMap.getEntity(Position.of(0, 0)), gameMap.getEntity(Position.of(5, 6)));
+        assertSame(gameMap.getEntity(Position.of(2, 1)), gameMap.getEntity(Position.of(4, 1)));
+        assertSame(gameMap.getEntity(Position.of(2, 4)), gameMap.getEntity(Position.of(3, 5)));
+        assertSame(Player.of(0), gameMap.getEntity(Position.of(1, 1)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPushDistances() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        final var distances = gameMap.getPushDistances(0);
+        final int width = gameMap.getMaxWidth();
+        assertEquals(2, distances.getDestinationCount());
+        assertEquals(width + 4, distances.getDestinationCell(0));
+        assertEquals(0, distances.getNearest(2 * width + 4));
+        assertEquals(4, distances.getNearest(4 * width + 2));
+        assertEquals(5, distances.get(4 * width + 2, 0));
+        assertEquals(1, distances.getNearest(width + 3));
+        assertEquals(PushDistances.UNREACHABLE, distances.getNearest(5 * width + 3));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDeadSquares() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        final var deadSquares = gameMap.getPushDistances(0).getDeadSquares();
+        // The left column and the bottom row, as no box can be pushed away from them
+        assertEquals(8, deadSquares.cardinality());
+        assertTrue(deadSquares.get(Position.of(1, 1)));
+        assertTrue(deadSquares.get(Position.of(3, 5)));
+        assertFalse(deadSquares.get(Position.of(2, 1)));
+        assertFalse(deadSquares.get(Position.of(4, 4)));
+        assertFalse(deadSquares.get(Position.of(0, 0)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testMapStructure() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ###############
+            #.....#####...#
+            #.A.a.a.....@.#
+            #.....#####.@.#
+            ###############
+            """);
+        final var structure = gameMap.getMapStructure();
+        final int width = gameMap.getMaxWidth();
+        // The corridor between the two open areas
+        assertEquals(5, structure.getHorizontalTunnels().cardinality());
+        assertTrue(structure.getHorizontalTunnels().get(Position.of(8, 2)));
+        assertTrue(structure.getVerticalTunnels().isEmpty());
+        // The corridor and the cells at both of its ends
+        assertEquals(7, structure.getArticulationPoints().cardinality());
+        assertTrue(structure.getArticulationPoints().get(Position.of(5, 2)));
+        assertTrue(structure.getArticulationPoints().get(Position.of(11, 2)));
+        assertFalse(structure.getArticulationPoints().get(Position.of(12, 2)));
+
+        // The room is entered right past the box in the corridor, and rooms behind the rest of the corridor are inside
+        assertEquals(1, structure.getGoalRooms().size());
+        final var room = structure.getGoalRooms().get(0);
+        assertEquals(2 * width + 7, room.entrance());
+        assertEquals(12, room.cells().cardinality());
+        assertTrue(room.cells().containsAll(gameMap.getDestinationsBitboard()));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBoxesOutOfReachOfOwnerAreDead() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A#.a.@#
+            ##B.b.@#
+            ########
+            """);
+        final var deadSquares = gameMap.getPushDistances(0).getDeadSquares();
+        assertTrue(deadSquares.get(Position.of(4, 1)));
+        // A box of player A is only not dead when it is already on a destination
+        assertEquals(gameMap.getFloorBitboard().cardinality() - 2, deadSquares.cardinality());
+        assertFalse(deadSquares.get(Position.of(6, 1)));
+        assertFalse(gameMap.getPushDistances(1).getDeadSquares().get(Position.of(4, 2)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPushDistancesAreShared() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        assertSame(gameMap.getPushDistances(0), gameMap.getPushDistances(0));
+    }
 }
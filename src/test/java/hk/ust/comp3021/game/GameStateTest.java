@@ -46,6 +46,35 @@ class GameStateTest {
         assertTrue(gameState.isWin());
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testWinTracksBoxesLeavingDestinations() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            #######
+            #.Aa@.#
+            #...a@#
+            #######
+            """
+        ));
+        assertFalse(gameState.isWin());
+
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+        gameState.checkpoint();
+        assertFalse(gameState.isWin());
+
+        gameState.move(Position.of(4, 2), Position.of(5, 2));
+        assertTrue(gameState.isWin());
+
+        gameState.move(Position.of(4, 1), Position.of(5, 1));
+        assertFalse(gameState.isWin());
+
+        gameState.undo();
+        assertFalse(gameState.isWin());
+        assertInstanceOf(Box.class, gameState.getEntity(Position.of(3, 1)));
+    }
+
     @Tag(TestKind.PUBLIC)
     @Test
     void testMove() {
@@ -118,4 +147,189 @@ class GameStateTest {
         assertEquals(232, gameState.getUndoQuota().orElse(null));
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUndoRevertsWalkingAndLastPush() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            #######
+            #.Aa.@#
+            #...a@#
+            #######
+            """
+        ));
+        // First push
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+        gameState.checkpoint();
+        // Second push
+        gameState.move(Position.of(4, 1), Position.of(5, 1));
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        gameState.checkpoint();
+        // Walking without pushing
+        gameState.move(Position.of(4, 1), Position.of(3, 1));
+        gameState.move(Position.of(3, 1), Position.of(3, 2));
+
+        gameState.undo();
+        assertEquals(Position.of(3, 1), gameState.getPlayerPositionById(0));
+        assertInstanceOf(Box.class, gameState.getEntity(Position.of(4, 1)));
+        assertInstanceOf(Empty.class, gameState.getEntity(Position.of(5, 1)));
+        assertInstanceOf(Empty.class, gameState.getEntity(Position.of(3, 2)));
+        assertEquals(232, gameState.getUndoQuota().orElse(null));
+
+        gameState.undo();
+        assertEquals(Position.of(2, 1), gameState.getPlayerPositionById(0));
+        assertInstanceOf(Box.class, gameState.getEntity(Position.of(3, 1)));
+        assertInstanceOf(Empty.class, gameState.getEntity(Position.of(4, 1)));
+        assertEquals(231, gameState.getUndoQuota().orElse(null));
+        assertFalse(gameState.isWin());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUndoWithinUndoLimit() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            1
+            #######
+            #.Aa..#
+            #...@@#
+            #....a#
+            #######
+            """
+        ));
+        for (int x = 2; x < 4; ++x) {
+            gameState.move(Position.of(x + 1, 1), Position.of(x + 2, 1));
+            gameState.move(Position.of(x, 1), Position.of(x + 1, 1));
+            gameState.checkpoint();
+        }
+
+        gameState.undo();
+        assertEquals(Position.of(3, 1), gameState.getPlayerPositionById(0));
+        assertInstanceOf(Box.class, gameState.getEntity(Position.of(4, 1)));
+        assertEquals(0, gameState.getUndoQuota().orElse(null));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUndoPagesInSpilledCheckpoints() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            ############
+            #Aa........#
+            #.........@#
+            ############
+            """
+        ), 2);
+        for (int x = 1; x < 9; ++x) {
+            gameState.move(Position.of(x + 1, 1), Position.of(x + 2, 1));
+            gameState.move(Position.of(x, 1), Position.of(x + 1, 1));
+            gameState.checkpoint();
+        }
+
+        for (int x = 8; x > 0; --x) {
+            gameState.undo();
+            assertEquals(Position.of(x, 1), gameState.getPlayerPositionById(0));
+            assertInstanceOf(Box.class, gameState.getEntity(Position.of(x + 1, 1)));
+            assertInstanceOf(Empty.class, gameState.getEntity(Position.of(x + 2, 1)));
+        }
+        assertTrue(gameState.getUndoQuota().isEmpty());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testForkIsIndependent() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #.Aa@#
+            #..a@#
+            ######
+            """
+        ));
+        final var fork = gameState.fork();
+
+        fork.move(Position.of(3, 1), Position.of(4, 1));
+        fork.move(Position.of(2, 1), Position.of(3, 1));
+        fork.checkpoint();
+        assertEquals(Position.of(3, 1), fork.getPlayerPositionById(0));
+        assertEquals(Position.of(2, 1), gameState.getPlayerPositionById(0));
+        assertInstanceOf(Box.class, gameState.getEntity(Position.of(3, 1)));
+
+        gameState.move(Position.of(2, 1), Position.of(2, 2));
+        assertInstanceOf(Empty.class, fork.getEntity(Position.of(2, 2)));
+        assertInstanceOf(Box.class, fork.getEntity(Position.of(4, 1)));
+
+        final var forkOfFork = fork.fork();
+        forkOfFork.move(Position.of(3, 2), Position.of(4, 2));
+        assertTrue(forkOfFork.isWin());
+        assertFalse(fork.isWin());
+
+        fork.undo();
+        assertEquals(Position.of(2, 1), fork.getPlayerPositionById(0));
+        assertTrue(forkOfFork.isWin());
+        assertEquals(232, fork.getUndoQuota().orElse(null));
+        assertEquals(233, gameState.getUndoQuota().orElse(null));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testZobristHashIsRestoredByUndo() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #.Aa@#
+            #..a@#
+            ######
+            """
+        ));
+        final long initialHash = gameState.getZobristHash();
+        final var initialEncoding = gameState.encode();
+
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+        gameState.checkpoint();
+        assertNotEquals(initialHash, gameState.getZobristHash());
+
+        gameState.undo();
+        assertEquals(initialHash, gameState.getZobristHash());
+        assertArrayEquals(initialEncoding, gameState.encode());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testStatesWithSameLocationsAreEqual() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A..@#
+            #.a..#
+            #....#
+            ######
+            """
+        );
+        final var viaRight = new GameState(gameMap);
+        viaRight.move(Position.of(1, 1), Position.of(2, 1));
+        viaRight.move(Position.of(2, 1), Position.of(3, 1));
+        final var viaDown = new GameState(gameMap);
+        viaDown.move(Position.of(1, 1), Position.of(1, 2));
+        viaDown.move(Position.of(1, 2), Position.of(1, 3));
+        assertNotEquals(viaRight, viaDown);
+
+        viaDown.move(Position.of(1, 3), Position.of(2, 3));
+        viaDown.move(Position.of(2, 3), Position.of(3, 3));
+        viaDown.move(Position.of(3, 3), Position.of(3, 2));
+        viaDown.move(Position.of(3, 2), Position.of(3, 1));
+        assertEquals(viaRight, viaDown);
+        assertEquals(viaRight.hashCode(), viaDown.hashCode());
+        assertArrayEquals(viaRight.encode(), viaDown.encode());
+        assertEquals(viaRight, new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #..A@#
+            #.a..#
+            #....#
+            ######
+            """
+        )));
+    }
 }
@@ -0,0 +1,35 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OccupancyTableTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testMatchesHashMap() {
+        final var table = new OccupancyTable(16);
+        final var expected = new HashMap<Integer, Short>();
+        final var random = new Random(3021);
+        for (int i = 0; i < 10000; ++i) {
+            final int cell = random.nextInt(64);
+            if (expected.size() < 16 && random.nextBoolean()) {
+                final short code = (short) random.nextInt(100);
+                table.put(cell, code);
+                expected.put(cell, code);
+            } else {
+                table.remove(cell);
+                expected.remove(cell);
+            }
+            for (int probe = 0; probe < 64; ++probe) {
+                assertEquals(expected.getOrDefault(probe, OccupancyTable.NONE), table.get(probe));
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.utils.TestKind;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillingCheckpointHistoryTest {
+
+    private static final SpillingCheckpointHistory.Codec<String> CODEC = new SpillingCheckpointHistory.Codec<>() {
+        @Override
+        public void write(@NotNull String checkpoint, @NotNull DataOutput out) throws IOException {
+            out.writeUTF(checkpoint);
+        }
+
+        @Override
+        public @NotNull String read(@NotNull DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSpilledCheckpointsArePoppedInOrder() {
+        final var history = new SpillingCheckpointHistory<>(4, CODEC);
+        // Large enough to cross the boundary of memory-mapped segments
+        final var padding = "x".repeat(1000);
+        for (int i = 0; i < 3000; ++i) {
+            history.push(i + padding);
+        }
+
+        assertEquals(3000, history.size());
+        for (int i = 2999; i >= 0; --i) {
+            assertEquals(i + padding, history.pop());
+        }
+        assertTrue(history.isEmpty());
+        assertNull(history.pop());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPushAfterPagingIn() {
+        final var history = new SpillingCheckpointHistory<>(1, CODEC);
+        history.push("a");
+        history.push("b");
+        history.push("c");
+        assertEquals("c", history.pop());
+        assertEquals("b", history.pop());
+        history.push("d");
+        history.push("e");
+
+        assertEquals("e", history.pop());
+        assertEquals("d", history.pop());
+        assertEquals("a", history.pop());
+        assertTrue(history.isEmpty());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testNegativeInMemoryCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SpillingCheckpointHistory<>(-1, CODEC));
+    }
+}
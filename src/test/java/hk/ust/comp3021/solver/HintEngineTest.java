@@ -0,0 +1,193 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Action;
+import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HintEngineTest {
+
+    private static final String MAP = """
+        233
+        ########
+        #A.....#
+        #.a.a..#
+        #..a..@#
+        #.@..@.#
+        ########
+        """;
+
+    // A game whose actions can be applied directly
+    private static final class Game extends AbstractSokobanGame {
+
+        Game(GameState gameState) {
+            super(gameState);
+        }
+
+        @Override
+        public void run() {
+        }
+
+        ActionResult apply(Action action) {
+            return this.processAction(action);
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testFollowingHintsWinsWithOneSolve() {
+        final var gameMap = TestHelper.parseGameMap(MAP);
+        final var state = new GameState(gameMap);
+        final var game = new Game(state);
+        final var engine = new HintEngine(gameMap, Duration.ofSeconds(10));
+        for (int i = 0; i < 200 && !state.isWin(); ++i) {
+            final Move move = engine.hint(state, 0).orElseThrow();
+            assertInstanceOf(ActionResult.Success.class, game.apply(move));
+        }
+        assertTrue(state.isWin());
+        assertEquals(1, engine.getSolveCount());
+        assertTrue(engine.hint(state, 0).isEmpty());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testWalkingOffThePlanIsLedBack() {
+        final var gameMap = TestHelper.parseGameMap(MAP);
+        final var state = new GameState(gameMap);
+        final var game = new Game(state);
+        final var engine = new HintEngine(gameMap, Duration.ofSeconds(10));
+        final Move first = engine.hint(state, 0).orElseThrow();
+
+        // Walk the other way than hinted, without pushing a box
+        final Move detour = first instanceof Move.Right ? new Move.Down(0) : new Move.Right(0);
+        assertInstanceOf(ActionResult.Success.class, game.apply(detour));
+        for (int i = 0; i < 200 && !state.isWin(); ++i) {
+            assertInstanceOf(ActionResult.Success.class, game.apply(engine.hint(state, 0).orElseThrow()));
+        }
+        assertTrue(state.isWin());
+        assertEquals(1, engine.getSolveCount());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolvesAgainAfterPushingOffThePlan() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #A....#
+            #.a..@#
+            #.....#
+            #.....#
+            #######
+            """);
+        final var state = new GameState(gameMap);
+        final var game = new Game(state);
+        final var engine = new HintEngine(gameMap, Duration.ofSeconds(10));
+        assertTrue(engine.hint(state, 0).isPresent());
+
+        // Push the box down instead of to the right
+        game.apply(new Move.Right(0));
+        game.apply(new Move.Down(0));
+        for (int i = 0; i < 200 && !state.isWin(); ++i) {
+            assertInstanceOf(ActionResult.Success.class, game.apply(engine.hint(state, 0).orElseThrow()));
+        }
+        assertTrue(state.isWin());
+        assertEquals(2, engine.getSolveCount());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testHintsLeadAPlayerAloneInItsAreaOutOfTheWay() {
+        // A pushes its box into the first cell of the area of B, so B has to be somewhere else by then
+        final var gameMap = TestHelper.parseGameMap("""
+            0
+            #######
+            #A.a@.#
+            #####B#
+            #####b#
+            #####@#
+            #######
+            """);
+        final var state = new GameState(gameMap);
+        final var game = new Game(state);
+        final var engine = new HintEngine(gameMap, Duration.ofSeconds(10));
+        assertTrue(engine.hint(state, 0).isPresent() || engine.hint(state, 1).isPresent());
+        for (int i = 0; i < 200 && !state.isWin(); ++i) {
+            final Move move = engine.hint(state, 0).or(() -> engine.hint(state, 1)).orElseThrow();
+            assertInstanceOf(ActionResult.Success.class, game.apply(move));
+        }
+        assertTrue(state.isWin());
+        assertEquals(1, engine.getSolveCount());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testHintsLeadPlayersMakingRoomForEachOther() {
+        // A has to push its box up and step back before B can get round to its box
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            ##.@.#
+            #.b@.#
+            #.a.##
+            #BA#.#
+            ######
+            """);
+        final var state = new GameState(gameMap);
+        final var game = new Game(state);
+        final var engine = new HintEngine(gameMap, Duration.ofSeconds(10));
+        for (int i = 0; i < 200 && !state.isWin(); ++i) {
+            assertInstanceOf(ActionResult.Success.class, game.apply(engine.hintAnyPlayer(state, 0).orElseThrow()));
+        }
+        assertTrue(state.isWin());
+        assertEquals(1, engine.getSolveCount());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testHintOfAnyPlayerTakesAsLongAsOneHint() {
+        // Two players with more boxes than a search within the time limit solves
+        final var gameMap = TestHelper.parseGameMap("""
+            -1
+            ############
+            #....AB....#
+            #@aaa....b.#
+            #@@a.....@.#
+            #..........#
+            #.@...@b...#
+            ############
+            """);
+        final var engine = new HintEngine(gameMap);
+        final var state = new GameState(gameMap);
+        for (int id: gameMap.getPlayerIds()) {
+            // A search that runs out of time uses up the time limit of the other players too
+            final long solveCount = engine.getSolveCount();
+            engine.hintAnyPlayer(state, id);
+            assertTrue(engine.getSolveCount() - solveCount <= 1);
+        }
+        assertTrue(engine.getSolveCount() >= 1);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testNoHintWhenUnsolvable() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A..@#
+            #....#
+            #...a#
+            ######
+            """);
+        assertTrue(new HintEngine(gameMap).hint(new GameState(gameMap), 0).isEmpty());
+    }
+}
@@ -0,0 +1,105 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchingEstimatorTest {
+
+    // Load the initial state of a game map into an estimator, returning the estimate
+    private static int loadInitial(GameMap gameMap, Board board, Estimator estimator) {
+        final int[] players = new int[board.playerCount()];
+        final int[] boxes = new int[board.boxCount()];
+        board.read(new GameState(gameMap), players, boxes);
+        return estimator.load(boxes);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBoxesCannotShareDestination() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.....#
+            #.a.a@.#
+            #......#
+            #.....@#
+            ########
+            """
+        );
+        final var board = new Board(gameMap);
+        // Both boxes are nearest to the same destination, but only one of them can take it
+        assertEquals(4, loadInitial(gameMap, board, Estimator.create(board, Heuristic.NEAREST_DESTINATION)));
+        assertEquals(7, loadInitial(gameMap, board, Estimator.create(board, Heuristic.MIN_COST_MATCHING)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDestinationsOutOfReachOfOwner() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #A.a.@#
+            #######
+            #B.b.@#
+            #######
+            """
+        );
+        final var board = new Board(gameMap);
+        assertEquals(4, loadInitial(gameMap, board, Estimator.create(board, Heuristic.MIN_COST_MATCHING)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPushUpdateAgreesWithFullSolve() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.....#
+            #.a.a..#
+            #..a..@#
+            #.@..@.#
+            ########
+            """
+        );
+        final var board = new Board(gameMap);
+        final var expander = new Expander(board);
+        final var incremental = Estimator.create(board, Heuristic.MIN_COST_MATCHING);
+        final var fromScratch = Estimator.create(board, Heuristic.MIN_COST_MATCHING);
+        final int[] players = new int[board.playerCount()];
+        final int[] boxes = new int[board.boxCount()];
+        board.read(new GameState(gameMap), players, boxes);
+
+        final var queue = new ArrayDeque<SearchState>();
+        final var seen = new HashSet<SearchState>();
+        queue.add(expander.initial(players, boxes));
+        int checked = 0;
+        while (!queue.isEmpty() && checked < 2000) {
+            final var state = queue.poll();
+            incremental.load(state.boxes);
+            final var successors = new ArrayList<SearchState>();
+            expander.expand(state, (next, step) -> {
+                if (step instanceof Step.Push push) {
+                    assertEquals(fromScratch.load(next.boxes), incremental.afterPush(push));
+                }
+                successors.add(next);
+            });
+            for (var next: successors) {
+                checked++;
+                if (seen.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        assertTrue(checked > 100);
+    }
+}
@@ -0,0 +1,72 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTranspositionTableTest {
+
+    // States whose hashes all fall into the first bucket of a table of 4 entries
+    private static SearchState state(int id) {
+        return new SearchState(new int[]{id}, new int[0], (long) id << 32);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testOfferKeepsFewestPushes() {
+        final var table = new OffHeapTranspositionTable(4, ReplacementPolicy.KEEP_SHALLOWER, 1);
+        final var node = new Node(state(1), null, null, 5, 0);
+
+        assertTrue(table.offer(node));
+        assertFalse(table.offer(new Node(state(1), null, null, 5, 0)));
+        assertTrue(table.offer(new Node(state(1), null, null, 3, 0)));
+        assertTrue(table.isSuperseded(node));
+        assertEquals(1, table.size());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testReplacementPolicies() {
+        for (var policy: ReplacementPolicy.values()) {
+            final var table = new OffHeapTranspositionTable(4, policy, 1);
+            for (int id = 1; id <= 4; ++id) {
+                assertTrue(table.offer(new Node(state(id), null, null, id, 0)));
+            }
+            // The bucket is full, so the deeper state 4 is the one to go
+            final var deeper = new Node(state(5), null, null, 9, 0);
+            assertTrue(table.offer(deeper));
+            // It is recorded only if states may be replaced by deeper ones
+            assertEquals(policy == ReplacementPolicy.KEEP_SHALLOWER, table.offer(new Node(state(5), null, null, 9, 0)));
+            assertEquals(4, table.size());
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testExpandedStatesAreKept() {
+        final var table = new OffHeapTranspositionTable(4, ReplacementPolicy.ALWAYS_REPLACE, 1);
+        final var root = new Node(state(1), null, null, 0, 0);
+        assertTrue(table.offer(root));
+        assertTrue(table.markExpanded(root));
+        SearchState parent = root.state();
+        for (int id = 2; id <= 4; ++id) {
+            final var node = new Node(state(id), parent, new Step.Walk(0, id), id - 1, 0);
+            assertTrue(table.offer(node));
+            assertTrue(table.markExpanded(node));
+            parent = node.state();
+        }
+
+        // The bucket is full of expanded states, so nothing can be recorded
+        final var goal = new Node(state(5), parent, new Step.Push(0, 7, Direction.LEFT), 4, 0);
+        assertTrue(table.offer(goal));
+        assertFalse(table.markExpanded(goal));
+        assertEquals(
+            List.of(new Step.Walk(0, 2), new Step.Walk(0, 3), new Step.Walk(0, 4), new Step.Push(0, 7, Direction.LEFT)),
+            table.path(goal)
+        );
+    }
+}
@@ -0,0 +1,106 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternDatabaseTest {
+
+    // Two boxes in the way of each other on the way to the destinations on the left
+    private static final String MAP = """
+        233
+          ####
+        ###..####
+        #.....a.#
+        #.#..#a.#
+        #.@.@#A.#
+        #########
+        """;
+
+    @TempDir
+    Path directory;
+
+    private static int loadInitial(GameMap gameMap, Board board, Estimator estimator) {
+        final int[] players = new int[board.playerCount()];
+        final int[] boxes = new int[board.boxCount()];
+        board.read(new GameState(gameMap), players, boxes);
+        return estimator.load(boxes);
+    }
+
+    private static long fileCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testEstimateIsAboveMatchingWhenBoxesBlockEachOther() {
+        final var gameMap = TestHelper.parseGameMap(MAP);
+        final var board = new Board(gameMap);
+        final var patterns = PatternDatabase.load(board, gameMap, null);
+        assertEquals(1, patterns.groupCount());
+
+        final int matching = loadInitial(gameMap, board, Estimator.create(board, Heuristic.MIN_COST_MATCHING));
+        final int estimate = loadInitial(
+            gameMap, board, Estimator.create(board, Heuristic.PATTERN_DATABASE, patterns)
+        );
+        final int pushes = new Solver(gameMap).solve().orElseThrow().pushes();
+        assertTrue(matching < estimate);
+        assertTrue(estimate <= pushes);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSameSolutionWithFewerExpandedStates() {
+        final var gameMap = TestHelper.parseGameMap(MAP);
+        final var solution = new Solver(gameMap).solve().orElseThrow();
+        final var solver = new Solver(gameMap);
+        solver.setHeuristic(Heuristic.PATTERN_DATABASE);
+        final var withPatterns = solver.solve().orElseThrow();
+        assertEquals(solution.pushes(), withPatterns.pushes());
+        assertTrue(withPatterns.expandedStates() < solution.expandedStates());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDatabasesAreKeptInTheDirectoryAndReused() throws IOException {
+        final var gameMap = TestHelper.parseGameMap(MAP);
+        final var board = new Board(gameMap);
+        final int[] boxes = new int[board.boxCount()];
+        board.read(new GameState(gameMap), new int[board.playerCount()], boxes);
+        final int pushes = PatternDatabase.load(board, gameMap, null).pushes(0, boxes);
+
+        assertEquals(pushes, PatternDatabase.load(board, gameMap, this.directory).pushes(0, boxes));
+        assertEquals(1, fileCount(this.directory));
+        final Path file;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            file = files.findFirst().orElseThrow();
+        }
+        final var written = Files.getLastModifiedTime(file);
+        assertEquals(pushes, PatternDatabase.load(board, gameMap, this.directory).pushes(0, boxes));
+        assertEquals(written, Files.getLastModifiedTime(file));
+        assertEquals(1, fileCount(this.directory));
+
+        // A file that does not match the map is built again
+        Files.write(file, new byte[]{1, 2, 3});
+        assertEquals(pushes, PatternDatabase.load(board, gameMap, this.directory).pushes(0, boxes));
+        assertEquals(1, fileCount(this.directory));
+
+        final var solver = new Solver(gameMap);
+        solver.setHeuristic(Heuristic.PATTERN_DATABASE);
+        solver.setPatternDatabaseDirectory(this.directory);
+        assertEquals(new Solver(gameMap).solve().orElseThrow().pushes(), solver.solve().orElseThrow().pushes());
+    }
+}
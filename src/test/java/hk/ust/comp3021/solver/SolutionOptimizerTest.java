@@ -0,0 +1,90 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Action;
+import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.Exit;
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.actions.Undo;
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolutionOptimizerTest {
+
+    private static final String MAP = """
+        233
+        ######
+        #A.a@#
+        #....#
+        #.a.@#
+        ######
+        """;
+
+    // Replay moves through the game rules, checking that every move succeeds, and return the resulting state
+    private static GameState replay(GameMap gameMap, List<Move> moves) {
+        final var state = new GameState(gameMap);
+        final var game = new AbstractSokobanGame(state) {
+            @Override
+            public void run() {
+            }
+
+            ActionResult apply(Action action) {
+                return this.processAction(action);
+            }
+        };
+        for (var move: moves) {
+            assertInstanceOf(ActionResult.Success.class, game.apply(move));
+        }
+        return state;
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDetoursAndPushesTakenBackAreLeftOut() {
+        final var gameMap = TestHelper.parseGameMap(MAP);
+        final List<Move> moves = List.of(
+            // A detour, then the first box onto its destination
+            new Move.Down(0), new Move.Up(0), new Move.Right(0), new Move.Right(0),
+            // The second box pushed right, around it, and back left
+            new Move.Left(0), new Move.Left(0), new Move.Down(0), new Move.Down(0), new Move.Right(0),
+            new Move.Up(0), new Move.Right(0), new Move.Right(0), new Move.Down(0), new Move.Left(0),
+            // Around it again, and onto its destination
+            new Move.Up(0), new Move.Left(0), new Move.Left(0), new Move.Down(0), new Move.Right(0), new Move.Right(0)
+        );
+        assertTrue(replay(gameMap, moves).isWin());
+
+        final var optimized = new SolutionOptimizer(gameMap).optimize(moves);
+        assertEquals(8, optimized.size());
+        assertTrue(replay(gameMap, optimized).isWin());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUndoneAndFailedActionsAreLeftOut() {
+        final var gameMap = TestHelper.parseGameMap(MAP);
+        final List<Action> actions = List.of(
+            // A push taken back by an undo
+            new Move.Right(0), new Move.Right(0), new Undo(0),
+            // A move into the wall, then the second box one cell right
+            new Move.Up(0), new Move.Down(0), new Move.Down(0), new Move.Right(0),
+            new Exit(0), new Move.Right(0)
+        );
+
+        final var optimized = new SolutionOptimizer(gameMap).optimize(actions);
+        assertEquals(3, optimized.size());
+        final var state = replay(gameMap, optimized);
+        assertInstanceOf(Box.class, state.getEntity(Position.of(3, 3)));
+        assertInstanceOf(Box.class, state.getEntity(Position.of(3, 1)));
+        assertFalse(state.isWin());
+    }
+}
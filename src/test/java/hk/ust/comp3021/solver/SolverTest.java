@@ -0,0 +1,730 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Action;
+import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverTest {
+
+    // Replay moves through the game rules, checking that every move succeeds, and return the resulting state
+    private static GameState replay(GameMap gameMap, List<Move> moves) {
+        final var state = new GameState(gameMap);
+        final var game = new AbstractSokobanGame(state) {
+            @Override
+            public void run() {
+            }
+
+            ActionResult apply(Action action) {
+                return this.processAction(action);
+            }
+        };
+        for (var move: moves) {
+            assertInstanceOf(ActionResult.Success.class, game.apply(move));
+        }
+        return state;
+    }
+
+    // Fewest pushes to win by trying every move of every player through the game rules, or -1 if there is no way
+    private static int fewestPushesByBruteForce(GameMap gameMap) {
+        // Walking costs nothing, so states reached without a push go to the front of the queue
+        final var pushes = new HashMap<GameState, Integer>();
+        final var queue = new ArrayDeque<GameState>();
+        final var initial = new GameState(gameMap);
+        pushes.put(initial, 0);
+        queue.add(initial);
+        while (!queue.isEmpty()) {
+            final var state = queue.poll();
+            final int done = pushes.get(state);
+            if (state.isWin()) {
+                return done;
+            }
+            for (int id: gameMap.getPlayerIds()) {
+                for (Move move: List.of(new Move.Up(id), new Move.Down(id), new Move.Left(id), new Move.Right(id))) {
+                    final var next = state.fork();
+                    final var target = move.nextPosition(Objects.requireNonNull(next.getPlayerPositionById(id)));
+                    final int cost = next.getEntity(target) instanceof Box ? 1 : 0;
+                    final var game = new AbstractSokobanGame(next) {
+                        @Override
+                        public void run() {
+                        }
+
+                        ActionResult apply(Action action) {
+                            return this.processAction(action);
+                        }
+                    };
+                    if (!(game.apply(move) instanceof ActionResult.Success)) {
+                        continue;
+                    }
+                    final Integer known = pushes.get(next);
+                    if (known == null || known > done + cost) {
+                        pushes.put(next, done + cost);
+                        if (cost == 0) {
+                            queue.addFirst(next);
+                        } else {
+                            queue.addLast(next);
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Replay a solution through the game rules and check that every move succeeds and the game is won
+    private static void assertSolves(GameMap gameMap, Solution solution) {
+        assertTrue(replay(gameMap, solution.moves()).isWin());
+    }
+
+    // Solve with one thread, several threads, a bounded table, bidirectionally and with each heuristic,
+    // each with the given pushes
+    private static void assertSolvesInEveryMode(GameMap gameMap, int pushes) {
+        final var bidirectional = new Solver(gameMap);
+        bidirectional.setBidirectional(true);
+        final var nearest = new Solver(gameMap);
+        nearest.setHeuristic(Heuristic.NEAREST_DESTINATION);
+        final var patterns = new Solver(gameMap);
+        patterns.setHeuristic(Heuristic.PATTERN_DATABASE);
+        final var solvers = List.of(
+            new Solver(gameMap),
+            new Solver(gameMap, 4),
+            new Solver(gameMap, 1, 1 << 12, ReplacementPolicy.KEEP_SHALLOWER),
+            bidirectional,
+            nearest,
+            patterns
+        );
+        for (var solver: solvers) {
+            final var solution = solver.solve().orElseThrow();
+            assertEquals(pushes, solution.pushes());
+            assertSolves(gameMap, solution);
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveSinglePlayer() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A.a@#
+            #....#
+            #.a.@#
+            ######
+            """
+        );
+        final var solution = new Solver(gameMap).solve().orElseThrow();
+        assertEquals(3, solution.pushes());
+        assertSolves(gameMap, solution);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveRespectsBoxOwners() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #A.b.@#
+            #B....#
+            #..a.@#
+            #######
+            """
+        );
+        final var solution = new Solver(gameMap).solve().orElseThrow();
+        assertEquals(4, solution.pushes());
+        assertSolves(gameMap, solution);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveWhenPlayersBlockEachOther() {
+        // A can only pass B if B steps into the alcove, and B can only reach its box once A has left
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ##########
+            ####.#####
+            #A..B..a@#
+            #.b@######
+            ##########
+            """
+        );
+        final var solution = new Solver(gameMap).solve().orElseThrow();
+        assertEquals(2, solution.pushes());
+        assertSolves(gameMap, solution);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolvePushesIntoCellOfLonePlayer() {
+        // A lone player is kept at the first cell of its area, which is also where the last box goes
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ##########
+            #@..A...@#
+            #..a..a..#
+            #.a....a.#
+            #@.....@.#
+            ##########
+            """
+        );
+        final var solution = new Solver(gameMap).solve().orElseThrow();
+        assertEquals(9, solution.pushes());
+        assertSolves(gameMap, solution);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolvePushesIntoCellOfOtherLonePlayer() {
+        // B is alone in its area and kept at its first cell, which is where A pushes its box
+        final var gameMap = TestHelper.parseGameMap("""
+            0
+            #######
+            #A.a@.#
+            #####B#
+            #####b#
+            #####@#
+            #######
+            """
+        );
+        assertSolvesInEveryMode(gameMap, 2);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolvePushesIntoCellOfOtherLonePlayerStepsAside() {
+        // A pushes its box where B is kept, and B steps aside below before pushing its own box
+        final var gameMap = TestHelper.parseGameMap("""
+            0
+            ######
+            #..A##
+            #@.a@#
+            #.b.B#
+            ##..##
+            ######
+            """
+        );
+        assertSolvesInEveryMode(gameMap, 3);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveWhenPlayersMakeRoomForEachOther() {
+        // A pushes its box up and steps back, so that B can get round to its box again
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            ##.@.#
+            #.b@.#
+            #.a.##
+            #BA#.#
+            ######
+            """
+        );
+        assertEquals(4, fewestPushesByBruteForce(gameMap));
+        assertSolvesInEveryMode(gameMap, 4);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveWhenPlayerWaitsInPocket() {
+        // A waits below its box for B to pass on the way to its own box
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #####
+            #AB@#
+            #.a##
+            #..##
+            #.b@#
+            #####
+            """
+        );
+        assertEquals(3, fewestPushesByBruteForce(gameMap));
+        assertSolvesInEveryMode(gameMap, 3);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveWhenPlayerStepsBackIntoCorridor() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #@#@B#
+            #.a.##
+            #.b.##
+            #A.#.#
+            ######
+            """
+        );
+        assertEquals(5, fewestPushesByBruteForce(gameMap));
+        assertSolvesInEveryMode(gameMap, 5);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveWhenBoxIsPushedIntoAreaOfLonePlayer() {
+        // B finally pushes its box up into the cell of A, which is alone in its area and steps aside
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #@.##A#
+            #.aBb.#
+            #.@...#
+            #######
+            """
+        );
+        assertEquals(7, fewestPushesByBruteForce(gameMap));
+        assertSolvesInEveryMode(gameMap, 7);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUnsolvable() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A..@#
+            #....#
+            #...a#
+            ######
+            """
+        );
+        assertTrue(new Solver(gameMap).solve().isEmpty());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveFromOngoingGame() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A.a@#
+            #....#
+            #.a.@#
+            ######
+            """
+        );
+        final var state = new GameState(gameMap);
+        state.move(Position.of(3, 1), Position.of(4, 1));
+        state.move(Position.of(1, 1), Position.of(3, 1));
+        assertEquals(2, new Solver(gameMap).solve(state).orElseThrow().pushes());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testParallelSolveFindsAsFewPushes() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #A.b.@#
+            #B....#
+            #..a.@#
+            #######
+            """
+        );
+        final var solver = new Solver(gameMap, 4);
+        final var solution = solver.solve().orElseThrow();
+        assertEquals(new Solver(gameMap).solve().orElseThrow().pushes(), solution.pushes());
+        assertSolves(gameMap, solution);
+        assertEquals(4, solver.getWorkerStatistics().size());
+        assertEquals(
+            solution.expandedStates(),
+            solver.getWorkerStatistics().stream().mapToLong(WorkerStatistics::expandedStates).sum()
+        );
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testParallelUnsolvable() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A..@#
+            #....#
+            #...a#
+            ######
+            """
+        );
+        assertTrue(new Solver(gameMap, 3).solve().isEmpty());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveWithBoundedTable() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #A.b.@#
+            #B....#
+            #..a.@#
+            #######
+            """
+        );
+        for (var policy: ReplacementPolicy.values()) {
+            final var solution = new Solver(gameMap, 1, 64, policy).solve().orElseThrow();
+            assertSolves(gameMap, solution);
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBoundedTableHoldsAtLeastOneBucket() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #A.a.@#
+            #######
+            """
+        );
+        final var policy = ReplacementPolicy.KEEP_SHALLOWER;
+        assertThrows(IllegalArgumentException.class, () -> new Solver(gameMap, 1, -1, policy));
+        assertThrows(IllegalArgumentException.class, () -> new Solver(gameMap, 1, 1, policy));
+        assertThrows(IllegalArgumentException.class, () -> new Solver(gameMap, 1, 3, policy));
+        assertEquals(2, new Solver(gameMap, 1, 4, policy).solve().orElseThrow().pushes());
+        assertEquals(2, new Solver(gameMap, 1, 0, policy).solve().orElseThrow().pushes());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testHeuristicsFindAsFewPushes() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.....#
+            #.a.a..#
+            #..a..@#
+            #.@..@.#
+            ########
+            """
+        );
+        final var solver = new Solver(gameMap);
+        final var matching = solver.solve().orElseThrow();
+        solver.setHeuristic(Heuristic.NEAREST_DESTINATION);
+        final var nearest = solver.solve().orElseThrow();
+        assertEquals(nearest.pushes(), matching.pushes());
+        assertTrue(matching.expandedStates() <= nearest.expandedStates());
+        assertSolves(gameMap, matching);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBidirectionalSolveFindsAsFewPushes() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ##########
+            #A.......#
+            #.a.a.a..#
+            #..####..#
+            #.a....a.#
+            #..@.@...#
+            #.@.@.@..#
+            ##########
+            """
+        );
+        final var solver = new Solver(gameMap);
+        final var forward = solver.solve().orElseThrow();
+        solver.setBidirectional(true);
+        final var bidirectional = solver.solve().orElseThrow();
+        assertEquals(forward.pushes(), bidirectional.pushes());
+        assertTrue(bidirectional.expandedStates() < forward.expandedStates());
+        assertSolves(gameMap, bidirectional);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBidirectionalSolveRespectsBoxOwners() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #A.b.@#
+            #B....#
+            #..a.@#
+            #######
+            """
+        );
+        final var solver = new Solver(gameMap);
+        solver.setBidirectional(true);
+        final var solution = solver.solve().orElseThrow();
+        assertEquals(4, solution.pushes());
+        assertSolves(gameMap, solution);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveSymmetricMap() {
+        // Symmetric states are searched once, so the steps must be turned back onto the actual map
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #@...@#
+            #.a.a.#
+            #..A..#
+            #.a.a.#
+            #@...@#
+            #######
+            """
+        );
+        final var solution = new Solver(gameMap).solve().orElseThrow();
+        assertEquals(8, solution.pushes());
+        assertSolves(gameMap, solution);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolutionCacheReusesRotatedMap() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #A.b.@#
+            #B....#
+            #..a.@#
+            #######
+            """
+        );
+        final var rotated = TestHelper.parseGameMap("""
+            233
+            #####
+            #.BA#
+            #...#
+            #a.b#
+            #...#
+            #@.@#
+            #####
+            """
+        );
+        final var cache = new SolutionCache();
+        final var solver = new Solver(gameMap);
+        solver.setSolutionCache(cache);
+        final var solution = solver.solve().orElseThrow();
+        final var rotatedSolver = new Solver(rotated);
+        rotatedSolver.setSolutionCache(cache);
+        final var rotatedSolution = rotatedSolver.solve().orElseThrow();
+        assertTrue(rotatedSolver.getWorkerStatistics().isEmpty());
+        assertEquals(solution.pushes(), rotatedSolution.pushes());
+        assertSolves(rotated, rotatedSolution);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolutionCacheReusesBudgetedResultOfMirroredMap() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            ##.@.#
+            #.b@.#
+            #.a.##
+            #BA#.#
+            ######
+            """
+        );
+        final var mirrored = TestHelper.parseGameMap("""
+            233
+            ######
+            #.@.##
+            #.@b.#
+            ##.a.#
+            #.#AB#
+            ######
+            """
+        );
+        final var cache = new SolutionCache();
+        final var solver = new Solver(gameMap);
+        solver.setSolutionCache(cache);
+        final var result = solver.solve(Duration.ofMinutes(1), 1L << 30);
+        assertEquals(SearchResult.Status.OPTIMAL, result.status());
+        assertEquals(fewestPushesByBruteForce(gameMap), result.pushes());
+
+        final var mirroredSolver = new Solver(mirrored);
+        mirroredSolver.setSolutionCache(cache);
+        final var mirroredResult = mirroredSolver.solve(Duration.ofMinutes(1), 1L << 30);
+        assertTrue(mirroredSolver.getWorkerStatistics().isEmpty());
+        assertEquals(SearchResult.Status.OPTIMAL, mirroredResult.status());
+        assertEquals(result.pushes(), mirroredResult.pushes());
+        assertTrue(replay(mirrored, mirroredResult.moves()).isWin());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testMacroMovesThroughTunnelIntoGoalRoom() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ###############
+            #.....#####...#
+            #.A.a.a.....@.#
+            #..B..#####.@.#
+            #..b.....#....#
+            ####.###########
+            #...@..#
+            ########
+            """
+        );
+        final var solver = new Solver(gameMap);
+        final var single = solver.solve().orElseThrow();
+        solver.setMacroMoves(true);
+        final var macro = solver.solve().orElseThrow();
+        assertEquals(single.pushes(), macro.pushes());
+        assertTrue(macro.expandedStates() < single.expandedStates());
+        assertSolves(gameMap, macro);
+
+        // Without the states skipped by macro moves, the search cannot tell the solution has the fewest pushes
+        final var result = solver.solve(Duration.ofMinutes(1), 1L << 30);
+        assertEquals(SearchResult.Status.SOLVED, result.status());
+        assertEquals(single.pushes(), result.pushes());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBudgetedSolveFindsFewestPushes() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.....#
+            #.a.a..#
+            #..a..@#
+            #.@..@.#
+            ########
+            """
+        );
+        final var solver = new Solver(gameMap);
+        final var result = solver.solve(Duration.ofMinutes(1), 1L << 30);
+        assertEquals(SearchResult.Status.OPTIMAL, result.status());
+        assertEquals(solver.solve().orElseThrow().pushes(), result.pushes());
+        assertEquals(0, result.estimate());
+        assertTrue(replay(gameMap, result.moves()).isWin());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBudgetedSolveReturnsClosestState() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.....#
+            #.a.a..#
+            #..a..@#
+            #.@..@.#
+            ########
+            """
+        );
+        final var solver = new Solver(gameMap);
+        final int initialEstimate = solver.solve(Duration.ZERO, 1L << 30).estimate();
+        final var result = solver.solve(Duration.ofMinutes(1), 4096);
+        assertEquals(SearchResult.Status.PARTIAL, result.status());
+        assertFalse(result.isSolved());
+        assertTrue(result.estimate() <= initialEstimate);
+        assertFalse(replay(gameMap, result.moves()).isWin());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBudgetedSolveAgreesWithBruteForce() {
+        final var maps = List.of(
+            // A lone player kept where another pushes its box, which must step aside
+            """
+                0
+                #######
+                #A.a@.#
+                #####B#
+                #####b#
+                #####@#
+                #######
+                """,
+            """
+                0
+                ######
+                #..A##
+                #@.a@#
+                #.b.B#
+                ##..##
+                ######
+                """,
+            // B can never get behind its box
+            """
+                0
+                #######
+                #A.a@B#
+                #######
+                #b@...#
+                #######
+                """,
+            """
+                0
+                #######
+                #A.b.@#
+                #B....#
+                #..a.@#
+                #######
+                """,
+            """
+                0
+                ######
+                #A..@#
+                #....#
+                #...a#
+                ######
+                """,
+            // Players sharing an area have to step back into cells where they block no one yet
+            """
+                0
+                ######
+                ##.@.#
+                #.b@.#
+                #.a.##
+                #BA#.#
+                ######
+                """,
+            """
+                0
+                #####
+                #AB@#
+                #.a##
+                #..##
+                #.b@#
+                #####
+                """
+        );
+        for (var map: maps) {
+            final var gameMap = TestHelper.parseGameMap(map);
+            final int pushes = fewestPushesByBruteForce(gameMap);
+            final var result = new Solver(gameMap).solve(Duration.ofMinutes(1), 1L << 30);
+            if (pushes == -1) {
+                assertEquals(SearchResult.Status.UNSOLVABLE, result.status());
+            } else {
+                assertEquals(SearchResult.Status.OPTIMAL, result.status());
+                assertEquals(pushes, result.pushes());
+                assertTrue(replay(gameMap, result.moves()).isWin());
+            }
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBudgetedSolveUnsolvable() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A..@#
+            #....#
+            #...a#
+            ######
+            """
+        );
+        final var result = new Solver(gameMap).solve(Duration.ofSeconds(1), 1L << 20);
+        assertEquals(SearchResult.Status.UNSOLVABLE, result.status());
+        assertTrue(result.moves().isEmpty());
+    }
+}
@@ -1,6 +1,7 @@
 package hk.ust.comp3021.tui;
 
 import hk.ust.comp3021.actions.Exit;
+import hk.ust.comp3021.actions.InvalidInput;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -8,7 +9,10 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TerminalInputEngineTest {
@@ -25,6 +29,27 @@ class TerminalInputEngineTest {
         assertTrue(action instanceof Exit);
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testHint() {
+        final var inputEngine = new TerminalInputEngine(fixValueStream("i\nq\nexit"));
+        final var hinted = new ArrayList<Integer>();
+        inputEngine.setHintListener(hinted::add);
+        final var action = inputEngine.fetchAction();
+
+        assertTrue(action instanceof Exit);
+        assertEquals(List.of(1, 0), hinted);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testHintWithoutListener() {
+        final var inputEngine = new TerminalInputEngine(fixValueStream("q"));
+        final var action = inputEngine.fetchAction();
+
+        assertTrue(action instanceof InvalidInput);
+    }
+
     private InputStream fixValueStream(String content) {
         final var bytes = content.getBytes(StandardCharsets.UTF_8);
         return new ByteArrayInputStream(bytes);